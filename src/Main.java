@@ -1,9 +1,17 @@
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
+import controller.BatchCoordinator;
 import controller.GUIController;
 import controller.ImageController;
+import controller.ImageDaemon;
+import controller.ImageServer;
+import model.CachedImageEditor;
 import model.GUIImageEditor;
 import model.GUIImageEditorImpl;
 import model.ImageEditor;
@@ -17,15 +25,26 @@ import view.TextView;
  */
 public class Main {
 
+  private static final int WARM_UP_RUNS = 200;
+
+  private static final long CACHE_PIXELS = 1L << 24;
+
   /**
    * Main class to start the application. This class initialises the model, the controller and the
-   * view. Supports a file argument to execute a script file.
+   * view. Supports a file argument to execute a script file, optionally followed by the path of a
+   * csv file, to which the statistics of the commands are then written.
+   * The server argument starts an HTTP server on the given port instead, optionally followed by
+   * the number of workers and the number of requests which can wait for them. The daemon argument
+   * listens on the Unix domain socket at the given path, and runs a session for every connection.
+   * The batch argument, followed by the number of workers, a script file, an output directory and
+   * the files, runs the script over the files with that many worker JVMs.
    *
    * @param args The args passed to the main function for start up.
    */
   public static void main(String... args) {
 
     Readable r = null;
+    String statsPath = null;
 
 
     if (args.length == 0) {
@@ -34,8 +53,27 @@ public class Main {
       GUIController controller = new GUIController(editor, jFrameView);
       return;
     }
-    else if (args.length == 2 && args[0].equals("-file")) {
+    else if ((args.length == 2 || args.length == 4) && args[0].equals("-server")) {
+      startServer(args);
+      return;
+    }
+    else if (args.length == 2 && args[0].equals("-daemon")) {
+      ImageDaemon daemon = new ImageDaemon(Path.of(args[1]), new CachedImageEditor(CACHE_PIXELS));
+      try {
+        daemon.start();
+        System.out.println("Listening on " + args[1]);
+      } catch (IOException e) {
+        System.out.println(e.getMessage());
+      }
+      return;
+    }
+    else if (args.length >= 5 && args[0].equals("-batch")) {
+      runBatch(args);
+      return;
+    }
+    else if ((args.length == 2 || args.length == 3) && args[0].equals("-file")) {
       r = new StringReader(String.format("run %s \nquit", args[1]));
+      statsPath = args.length == 3 ? args[2] : null;
     } else if (args[0].equals("-text")) {
       r = new InputStreamReader(System.in);
     }
@@ -47,11 +85,58 @@ public class Main {
     TextView view = new TextView(System.out);
 
     ImageEditor editor = new ImageEditorImpl();
-    ImageController imageController = new ImageController(view, r, editor);
+    ImageController imageController = new ImageController(view, r, editor, statsPath);
     try {
       imageController.start();
     } catch (IOException ex) {
       System.out.println(ex.getMessage());
     }
   }
+
+  private static void runBatch(String... args) {
+    BatchCoordinator coordinator;
+    List<String> script;
+    try {
+      coordinator = new BatchCoordinator(Integer.parseInt(args[1]), List.of());
+      script = Files.readAllLines(Path.of(args[2]));
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Invalid Arguments");
+      return;
+    }
+    try {
+      coordinator.start();
+      List<String> failed = coordinator.run(Arrays.asList(args).subList(4, args.length), script,
+              args[3]);
+      for (String input : failed) {
+        System.out.println("Failed " + input);
+      }
+      System.out.print(coordinator.getSummary());
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    } finally {
+      try {
+        coordinator.stop();
+      } catch (IOException e) {
+        System.out.println(e.getMessage());
+      }
+    }
+  }
+
+  private static void startServer(String... args) {
+    int workers = Runtime.getRuntime().availableProcessors();
+    try {
+      int port = Integer.parseInt(args[1]);
+      if (args.length == 4) {
+        workers = Integer.parseInt(args[2]);
+      }
+      int queueCapacity = args.length == 4 ? Integer.parseInt(args[3]) : 4 * workers;
+      ImageServer server = new ImageServer(port, workers, queueCapacity, new ImageEditorImpl());
+      server.start(WARM_UP_RUNS);
+      System.out.println("Listening on port " + server.getPort());
+    } catch (NumberFormatException e) {
+      System.out.println("Invalid Arguments");
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+  }
 }
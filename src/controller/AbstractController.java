@@ -5,6 +5,7 @@ import java.io.IOException;
 import model.Image;
 import model.ImageEditor;
 
+import static util.Constants.HAAR;
 import static util.Constants.JPG;
 import static util.Constants.PNG;
 import static util.Constants.PPM;
@@ -35,6 +36,9 @@ public abstract class AbstractController {
       case JPG:
         editor.saveAsJPG(savedImage, saveDestinationPath);
         break;
+      case HAAR:
+        editor.saveAsHaar(savedImage, saveDestinationPath);
+        break;
       default:
         editor.saveAsPNG(savedImage, saveDestinationPath);
     }
@@ -54,7 +58,7 @@ public abstract class AbstractController {
       // Extract the file extension
       String ext = filePath.substring(lastDot + 1);
 
-      return !ext.equals(PPM) && !ext.equals(PNG) && !ext.equals(JPG);
+      return !ext.equals(PPM) && !ext.equals(PNG) && !ext.equals(JPG) && !ext.equals(HAAR);
 
     }
     return true;
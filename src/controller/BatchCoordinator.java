@@ -0,0 +1,378 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A coordinator which runs a script over many files with several local worker JVMs, each running
+ * the application as a daemon. Every file is processed in a session of its own, so a file which
+ * makes a worker fail, even by running out of memory, only fails itself, and the workers together
+ * can use more memory than a single JVM allows.
+ *
+ * <p>The files are handed out largest first, each worker taking the next file when it is done
+ * with the previous one, so that the large files do not all end up at the end of the batch. A
+ * file which fails is tried again on another worker, and a worker which stopped is started again
+ * before it takes its next file. The number of files and bytes processed by every worker, and the
+ * time it was busy, are kept for the summary.
+ */
+public class BatchCoordinator {
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final List<String> command;
+
+  private final Worker[] workers;
+
+  private Path socketDirectory;
+
+  /**
+   * The files waiting for a worker, largest first.
+   */
+  private final List<Task> pending;
+
+  private final List<String> failed;
+
+  private int running;
+
+  /**
+   * Creates the coordinator, which does not start the workers until it is started.
+   *
+   * @param workerCount The number of worker JVMs.
+   * @param jvmOptions  The options of the worker JVMs, such as their heap size.
+   * @throws IllegalArgumentException if the number of workers is not positive.
+   */
+  public BatchCoordinator(int workerCount, List<String> jvmOptions) {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("The batch needs at least one worker");
+    }
+    if (jvmOptions == null) {
+      throw new IllegalArgumentException("null not allowed");
+    }
+    this.command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-XX:+ExitOnOutOfMemoryError");
+    command.addAll(jvmOptions);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("Main");
+    command.add("-daemon");
+
+    this.workers = new Worker[workerCount];
+    this.pending = new ArrayList<>();
+    this.failed = new ArrayList<>();
+  }
+
+  /**
+   * Starts the workers, and waits for all of them to listen.
+   *
+   * @throws IOException if a worker could not be started.
+   */
+  public void start() throws IOException {
+    socketDirectory = Files.createTempDirectory("image-batch");
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(i, socketDirectory.resolve("worker-" + i + ".sock"));
+      workers[i].launch();
+    }
+    for (Worker worker : workers) {
+      worker.awaitListening();
+    }
+  }
+
+  /**
+   * Stops the workers and removes their sockets.
+   *
+   * @throws IOException if the sockets could not be removed.
+   */
+  public void stop() throws IOException {
+    for (Worker worker : workers) {
+      if (worker != null && worker.process != null) {
+        worker.process.destroy();
+      }
+    }
+    for (Worker worker : workers) {
+      if (worker != null) {
+        if (worker.process != null) {
+          worker.awaitExit();
+        }
+        Files.deleteIfExists(worker.socketPath);
+      }
+    }
+    if (socketDirectory != null) {
+      Files.deleteIfExists(socketDirectory);
+    }
+  }
+
+  /**
+   * Runs a script over files. Every file is loaded with the alias name input, and the image with
+   * the alias name output is saved in the output directory, with the name of the file.
+   *
+   * @param inputs          The paths of the files.
+   * @param script          The commands of the script.
+   * @param outputDirectory The directory the images are saved in.
+   * @return The paths of the files which failed on every worker they were tried on.
+   */
+  public List<String> run(List<String> inputs, List<String> script, String outputDirectory) {
+    synchronized (this) {
+      failed.clear();
+      for (String input : inputs) {
+        File file = new File(input).getAbsoluteFile();
+        pending.add(new Task(file.getPath(), file.length(),
+                new File(outputDirectory, file.getName()).getAbsolutePath()));
+      }
+      pending.sort(Comparator.comparingLong((Task task) -> task.size).reversed());
+    }
+
+    List<Thread> threads = new ArrayList<>();
+    for (Worker worker : workers) {
+      Thread thread = new Thread(() -> work(worker, script), "batch-worker-" + worker.index);
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    synchronized (this) {
+      // the files left were tried by every worker still taking files.
+      for (Task task : pending) {
+        failed.add(task.input);
+      }
+      pending.clear();
+      return new ArrayList<>(failed);
+    }
+  }
+
+  /**
+   * Gets the statistics of the workers, the files and bytes they processed, their throughput while
+   * they were busy, and the number of times they were started again.
+   *
+   * @return The statistics, one line per worker.
+   */
+  public String getSummary() {
+    StringBuilder summary = new StringBuilder();
+    for (Worker worker : workers) {
+      double seconds = Math.max(worker.busyNanos, 1) / 1e9;
+      summary.append(String.format("worker %d: %d files, %.1f MB, %.2f files/s, %.2f MB/s, "
+                      + "%d restarts", worker.index, worker.files, worker.bytes / 1e6,
+              worker.files / seconds, worker.bytes / 1e6 / seconds, worker.restarts))
+              .append(System.lineSeparator());
+    }
+    return summary.toString();
+  }
+
+  /**
+   * Gets the process of a worker.
+   *
+   * @param index The index of the worker.
+   * @return The process.
+   */
+  Process getProcess(int index) {
+    return workers[index].process;
+  }
+
+  private void work(Worker worker, List<String> script) {
+    Task task = next(worker);
+    while (task != null) {
+      finish(worker, task, process(worker, task, script));
+      task = next(worker);
+    }
+  }
+
+  /**
+   * Takes the largest file the worker has not tried yet, waiting for the files being processed if
+   * there is none, as they can fail and be tried again.
+   *
+   * @param worker The worker.
+   * @return The file, or null if there is none left for the worker.
+   */
+  private synchronized Task next(Worker worker) {
+    while (true) {
+      Iterator<Task> iterator = pending.iterator();
+      while (iterator.hasNext()) {
+        Task task = iterator.next();
+        if (!task.workers.contains(worker.index)) {
+          iterator.remove();
+          running++;
+          return task;
+        }
+      }
+      if (running == 0) {
+        return null;
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Records the end of a file, which is put back for another worker if it failed.
+   *
+   * @param worker The worker.
+   * @param task   The file.
+   * @param isDone Whether the file was processed.
+   */
+  private synchronized void finish(Worker worker, Task task, boolean isDone) {
+    running--;
+    if (!isDone) {
+      task.workers.add(worker.index);
+      if (task.workers.size() < Math.min(MAX_ATTEMPTS, workers.length)) {
+        int i = 0;
+        while (i < pending.size() && pending.get(i).size >= task.size) {
+          i++;
+        }
+        pending.add(i, task);
+      } else {
+        failed.add(task.input);
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * Processes a file in a session of a worker, starting the worker again first if it stopped.
+   *
+   * @param worker The worker.
+   * @param task   The file.
+   * @param script The commands of the script.
+   * @return True if the image was saved without errors, false otherwise.
+   */
+  private boolean process(Worker worker, Task task, List<String> script) {
+    long start = System.nanoTime();
+    try {
+      if (!worker.process.isAlive()) {
+        worker.restarts++;
+        worker.launch();
+        worker.awaitListening();
+      }
+      Path output = Path.of(task.output);
+      Files.deleteIfExists(output);
+
+      StringBuilder commands = new StringBuilder();
+      commands.append("load ").append(task.input).append(' ').append(ImageServer.INPUT)
+              .append('\n');
+      for (String line : script) {
+        commands.append(line).append('\n');
+      }
+      commands.append("save ").append(task.output).append(' ').append(ImageServer.OUTPUT)
+              .append("\nquit\n");
+
+      String response = send(worker.socketPath, commands.toString());
+      for (String line : response.split("\\R")) {
+        if (line.startsWith("Error") || line.startsWith("Invalid") || line.startsWith("File ")) {
+          return false;
+        }
+      }
+      boolean isDone = response.contains("Exiting the application") && Files.exists(output);
+      if (isDone) {
+        worker.files++;
+        worker.bytes += task.size;
+      }
+      return isDone;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      worker.busyNanos += System.nanoTime() - start;
+    }
+  }
+
+  private static String send(Path socketPath, String commands) throws IOException {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+      channel.write(ByteBuffer.wrap(commands.getBytes(StandardCharsets.UTF_8)));
+      channel.shutdownOutput();
+      InputStream input = Channels.newInputStream(channel);
+      return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * A file to process, with the workers it failed on.
+   */
+  private static class Task {
+    private final String input;
+    private final long size;
+    private final String output;
+    private final Set<Integer> workers;
+
+    private Task(String input, long size, String output) {
+      this.input = input;
+      this.size = size;
+      this.output = output;
+      this.workers = new HashSet<>();
+    }
+  }
+
+  /**
+   * A worker JVM and its statistics, which are only changed by the thread handing it the files.
+   */
+  private class Worker {
+    private final int index;
+    private final Path socketPath;
+    private Process process;
+    private int files;
+    private long bytes;
+    private long busyNanos;
+    private int restarts;
+
+    private Worker(int index, Path socketPath) {
+      this.index = index;
+      this.socketPath = socketPath;
+    }
+
+    private void launch() throws IOException {
+      List<String> arguments = new ArrayList<>(command);
+      arguments.add(socketPath.toString());
+      process = new ProcessBuilder(arguments)
+              .redirectError(ProcessBuilder.Redirect.DISCARD)
+              .start();
+    }
+
+    /**
+     * Waits for the worker to print that it listens, which it does once its socket is bound.
+     *
+     * @throws IOException if the worker stopped before listening.
+     */
+    private void awaitListening() throws IOException {
+      BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+              StandardCharsets.UTF_8));
+      String line = output.readLine();
+      if (line == null || !line.startsWith("Listening")) {
+        process.destroy();
+        throw new IOException("The worker " + index + " did not start: " + line);
+      }
+    }
+
+    private void awaitExit() {
+      try {
+        process.waitFor();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package controller;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import model.PixelPool;
+
+/**
+ * Records the cost of every command run by the controller, grouped by the command keyword. For
+ * every run of a command the wall time, the cpu time and the bytes allocated by the thread are
+ * recorded along with the size of the image it produced. The samples are kept in plain arrays, so
+ * that recording costs a few clock reads and is cheap enough to be always on. The percentiles are
+ * only calculated when the statistics are asked for.
+ *
+ * <p>The cpu time and the allocations are those of the thread running the command only. They miss
+ * the tiles run by the workers of the tile scheduler, and as the operations are deferred until
+ * their pixels are read, most of their cost is recorded by the command which reads them, like
+ * save, rather than by the command which asked for them. The wall time has the same shift.
+ */
+class CommandMetrics {
+
+  private static final int[] PERCENTILES = {50, 90, 99};
+
+  private final Map<String, Samples> commandSamples;
+
+  private final ThreadMXBean threadBean;
+
+  private final com.sun.management.ThreadMXBean allocationBean;
+
+  /**
+   * Creates the metrics with no samples. The cpu time and the allocated bytes are only recorded if
+   * the JVM supports measuring them, and are zero otherwise.
+   */
+  CommandMetrics() {
+    this.commandSamples = new TreeMap<>();
+
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    this.threadBean = bean.isCurrentThreadCpuTimeSupported() ? bean : null;
+    if (bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      this.allocationBean = (com.sun.management.ThreadMXBean) bean;
+    } else {
+      this.allocationBean = null;
+    }
+  }
+
+  /**
+   * Gets the cpu time used by the current thread so far.
+   *
+   * @return The cpu time in nanoseconds.
+   */
+  long getCpuTime() {
+    return threadBean == null ? 0 : threadBean.getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Gets the bytes allocated by the current thread so far.
+   *
+   * @return The allocated bytes.
+   */
+  long getAllocatedBytes() {
+    return allocationBean == null ? 0 : allocationBean.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Records one run of a command.
+   *
+   * @param command        The command keyword.
+   * @param wallTime       The wall time of the run in nanoseconds.
+   * @param cpuTime        The cpu time of the run in nanoseconds.
+   * @param allocatedBytes The bytes allocated during the run.
+   * @param width          The width of the image produced by the run.
+   * @param height         The height of the image produced by the run.
+   */
+  void record(String command, long wallTime, long cpuTime, long allocatedBytes, int width,
+              int height) {
+    commandSamples.computeIfAbsent(command, c -> new Samples())
+            .add(wallTime, cpuTime, allocatedBytes, width, height);
+  }
+
+  /**
+   * Gets the statistics of every command as readable text, one line per command, followed by the
+   * statistics of the pool of pixel buffers the commands share.
+   *
+   * @return The statistics, or a message if no command was recorded yet.
+   */
+  String getSummary() {
+    if (commandSamples.isEmpty()) {
+      return "No commands recorded";
+    }
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Samples> entry : commandSamples.entrySet()) {
+      Samples samples = entry.getValue();
+      if (builder.length() > 0) {
+        builder.append(System.lineSeparator());
+      }
+      int count = samples.count;
+      builder.append(entry.getKey()).append(": count ").append(count)
+              .append(", wall ms").append(getPercentiles(samples.wallTimes, count, 1e6))
+              .append(", cpu ms").append(getPercentiles(samples.cpuTimes, count, 1e6))
+              .append(", alloc KB").append(getPercentiles(samples.allocations, count, 1024))
+              .append(", largest ").append(samples.maxWidth).append("x")
+              .append(samples.maxHeight);
+    }
+    return builder.append(System.lineSeparator()).append(PixelPool.getSummary()).toString();
+  }
+
+  /**
+   * Writes the statistics of every command as a csv file, one row per command. The times are in
+   * nanoseconds and the allocations in bytes. The cpu time and the allocation columns are named
+   * after the thread, as they only cover the thread which ran the command.
+   *
+   * @param path The path of the csv file.
+   * @throws IOException if the file could not be written.
+   */
+  void writeCsv(String path) throws IOException {
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+      writer.write("command,count");
+      for (String column : new String[]{"wall_ns", "thread_cpu_ns", "thread_alloc_bytes"}) {
+        for (int percentile : PERCENTILES) {
+          writer.write("," + column + "_p" + percentile);
+        }
+        writer.write("," + column + "_max");
+      }
+      writer.write(",max_width,max_height\n");
+
+      for (Map.Entry<String, Samples> entry : commandSamples.entrySet()) {
+        Samples samples = entry.getValue();
+        writer.write(entry.getKey() + "," + samples.count);
+        for (long[] values : new long[][]{samples.wallTimes, samples.cpuTimes,
+                samples.allocations}) {
+          long[] sorted = Arrays.copyOf(values, samples.count);
+          Arrays.sort(sorted);
+          for (int percentile : PERCENTILES) {
+            writer.write("," + getPercentile(sorted, percentile));
+          }
+          writer.write("," + sorted[sorted.length - 1]);
+        }
+        writer.write("," + samples.maxWidth + "," + samples.maxHeight + "\n");
+      }
+    }
+  }
+
+  private String getPercentiles(long[] values, int count, double unit) {
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+
+    StringBuilder builder = new StringBuilder();
+    for (int percentile : PERCENTILES) {
+      builder.append(String.format(" p%d %.2f", percentile,
+              getPercentile(sorted, percentile) / unit));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets the nearest rank percentile of the sorted values.
+   *
+   * @param sorted     The values in ascending order.
+   * @param percentile The percentile between 0 and 100.
+   * @return The value at the percentile.
+   */
+  private static long getPercentile(long[] sorted, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(rank - 1, 0)];
+  }
+
+  /**
+   * The samples recorded for one command, stored in arrays which grow as needed.
+   */
+  private static class Samples {
+    private long[] wallTimes = new long[16];
+    private long[] cpuTimes = new long[16];
+    private long[] allocations = new long[16];
+    private int count;
+    private int maxWidth;
+    private int maxHeight;
+
+    private void add(long wallTime, long cpuTime, long allocatedBytes, int width, int height) {
+      if (count == wallTimes.length) {
+        wallTimes = Arrays.copyOf(wallTimes, count * 2);
+        cpuTimes = Arrays.copyOf(cpuTimes, count * 2);
+        allocations = Arrays.copyOf(allocations, count * 2);
+      }
+      wallTimes[count] = wallTime;
+      cpuTimes[count] = cpuTime;
+      allocations[count] = allocatedBytes;
+      count++;
+      if ((long) width * height > (long) maxWidth * maxHeight) {
+        maxWidth = width;
+        maxHeight = height;
+      }
+    }
+  }
+}
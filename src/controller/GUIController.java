@@ -4,12 +4,19 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
 
 import model.GUIImageEditor;
 import model.Image;
 import view.JFrameView;
 
+import static util.Constants.PPM;
+
 /**
  * The class which acts as the controller for the GUI part of the Image editor. This controller
  * maintains a deque to support the undo and the revert to original operations. Other operations
@@ -18,6 +25,12 @@ import view.JFrameView;
  * (Split view images) are not stored in the queue and are for viewing purposes only.
  */
 public class GUIController extends AbstractController implements Features {
+
+  /**
+   * The largest height and width of the previews shown while haar files are loaded.
+   */
+  private static final int PREVIEW_SIZE = 512;
+
   private Image original;
   private Image image;
   private Image previewImage;
@@ -25,6 +38,7 @@ public class GUIController extends AbstractController implements Features {
   private final JFrameView view;
   private final GUIImageEditor editor;
   private boolean isImageLoaded;
+  private int loads;
 
 
   /**
@@ -59,12 +73,64 @@ public class GUIController extends AbstractController implements Features {
       return;
     }
 
+    if (!srcPath.endsWith("." + PPM)) {
+      loadProgressively(srcPath);
+      return;
+    }
+
     try {
       original = editor.load(srcPath);
     } catch (IOException e) {
       view.displayFileError();
       return;
     }
+    showLoadedImage();
+  }
+
+  /**
+   * Shows a preview of a haar, png or jpg file as soon as it is decoded, from the coarsest levels
+   * of a haar file or subsampled from the others, and loads the full size image in the background.
+   * Until it is loaded, the operations ask for an image to be loaded, and a full size image whose
+   * load was overtaken by a later load is dropped. The ppm files are text, which has to be read
+   * whole anyway, so they are loaded directly.
+   *
+   * @param srcPath The path of the image file.
+   */
+  private void loadProgressively(String srcPath) {
+    Image preview;
+    try {
+      preview = editor.loadPreview(srcPath, PREVIEW_SIZE);
+    } catch (IOException e) {
+      view.displayFileError();
+      return;
+    }
+    isImageLoaded = false;
+    displayImage(preview);
+
+    int load = ++loads;
+    new SwingWorker<Image, Void>() {
+      @Override
+      protected Image doInBackground() throws IOException {
+        return editor.load(srcPath);
+      }
+
+      @Override
+      protected void done() {
+        if (load != loads) {
+          return;
+        }
+        try {
+          original = get();
+        } catch (InterruptedException | ExecutionException e) {
+          view.displayFileError();
+          return;
+        }
+        showLoadedImage();
+      }
+    }.execute();
+  }
+
+  private void showLoadedImage() {
     image = editor.getCopy(original);
     refreshQueue();
     displayAndCommitImage();
@@ -275,12 +341,13 @@ public class GUIController extends AbstractController implements Features {
     if (checkIsImageLoaded()) {
       return;
     }
-    imageDeque.pollLast();
+    Image dropped = imageDeque.pollLast();
     image = imageDeque.peekLast();
     if (image == null) {
       image = original;
     }
     displayImage(image);
+    release(dropped, imageDeque);
   }
 
   private boolean checkIsImageLoaded() {
@@ -315,7 +382,30 @@ public class GUIController extends AbstractController implements Features {
   }
 
   private void refreshQueue() {
+    Deque<Image> dropped = imageDeque;
     imageDeque = new ArrayDeque<>();
+    while (dropped != null && !dropped.isEmpty()) {
+      release(dropped.pollLast(), dropped);
+    }
+  }
+
+  /**
+   * Releases an image dropped from the undo deque, unless it is still shown, is the original
+   * image, or is read by the images still in a deque or by the preview.
+   *
+   * @param dropped The dropped image.
+   * @param deque   The deque it was dropped from, with the images it still has.
+   */
+  private void release(Image dropped, Deque<Image> deque) {
+    if (dropped == null) {
+      return;
+    }
+    List<Image> kept = new ArrayList<>(deque);
+    kept.addAll(imageDeque);
+    kept.add(original);
+    kept.add(image);
+    kept.add(previewImage);
+    editor.release(dropped, kept);
   }
 
 }
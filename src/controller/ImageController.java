@@ -4,39 +4,54 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+import controller.ScriptPlan.Command;
+import controller.ScriptPlan.Operation;
 
 import model.Image;
+import model.ImageCompressor;
 import model.ImageEditor;
+import model.ImagePipeline;
 import view.TextView;
 
 import static util.Constants.BLUE_COMPONENT;
 import static util.Constants.BLUR;
 import static util.Constants.BRIGHTEN;
-import static util.Constants.COLOR_CORRECT;
+import static util.Constants.COLOR_TRANSFORM;
 import static util.Constants.COMPRESS;
 import static util.Constants.GREEN_COMPONENT;
-import static util.Constants.HISTOGRAM;
-import static util.Constants.HORIZONTAL_FLIP;
 import static util.Constants.INTENSITY_COMPONENT;
 import static util.Constants.LEVELS_ADJUST;
 import static util.Constants.LOAD;
 import static util.Constants.LUMA_COMPONENT;
+import static util.Constants.MASK;
+import static util.Constants.OPTIMIZE;
+import static util.Constants.PRECISION;
 import static util.Constants.RED_COMPONENT;
-import static util.Constants.RGB_COMBINE;
+import static util.Constants.REGION;
+import static util.Constants.REGION_SET;
 import static util.Constants.RGB_SET;
-import static util.Constants.RGB_SPLIT;
 import static util.Constants.RUN;
-import static util.Constants.SAVE;
+import static util.Constants.SCALE;
 import static util.Constants.SEPIA;
 import static util.Constants.SHARPEN;
 import static util.Constants.SPLIT;
 import static util.Constants.SPLIT_SET;
+import static util.Constants.STATS;
+import static util.Constants.STREAM;
+import static util.Constants.STREAM_SET;
 import static util.Constants.SRC_DEST_SET;
 import static util.Constants.VALUE_COMPONENT;
-import static util.Constants.VERTICAL_FLIP;
 
 /**
  * Controller class for handling the image operations. Takes in several inputs of various
@@ -47,7 +62,11 @@ import static util.Constants.VERTICAL_FLIP;
  */
 public class ImageController extends AbstractController {
 
-  private final Map<String, Image> aliasImageMap;
+  private static final int[] NO_SLOTS = new int[0];
+
+  private final Map<String, Integer> slots;
+
+  private final List<Image> images;
 
   private boolean isListening;
 
@@ -57,11 +76,35 @@ public class ImageController extends AbstractController {
 
   private final ImageEditor editor;
 
+  private final CommandMetrics metrics;
+
+  private final String statsPath;
+
+  private Image lastImage;
+
+  /**
+   * The images created by the commands of the controller, which it releases once no slot refers
+   * to them. They are only weakly referred to, for the images left in the slots of the plans
+   * executed on the lists of other users. The images never override equals, so this is a set of
+   * identities.
+   */
+  private final Set<Image> created;
+
   /**
    * Constructor for the Image controller class. Initialises a map which maintains the state of the
    * application with the alias names the image objects.
    */
   public ImageController(TextView textView, Readable in, ImageEditor editor) {
+    this(textView, in, editor, null);
+  }
+
+  /**
+   * Constructor for the Image controller class which also writes the statistics of the commands
+   * run as a csv file when the application quits.
+   *
+   * @param statsPath The path of the csv file for the statistics, null to not write them.
+   */
+  public ImageController(TextView textView, Readable in, ImageEditor editor, String statsPath) {
 
     if (textView == null || in == null || editor == null) {
       throw new IllegalArgumentException("null not allowed");
@@ -69,68 +112,171 @@ public class ImageController extends AbstractController {
 
     this.editor = editor;
     this.isListening = true;
-    this.aliasImageMap = new HashMap<>();
+    this.slots = new HashMap<>();
+    this.images = new ArrayList<>();
     this.textView = textView;
     this.in = in;
+    this.metrics = new CommandMetrics();
+    this.statsPath = statsPath;
+    this.created = Collections.newSetFromMap(new WeakHashMap<>());
+  }
+
+  /**
+   * Gives an image an alias name, so that the commands can refer to it without loading it.
+   *
+   * @param aliasName The alias name of the image.
+   * @param image     The image.
+   */
+  void putImage(String aliasName, Image image) {
+    int slot = getSlots(slots, aliasName)[0];
+    addSlots();
+    images.set(slot, image);
+  }
+
+  /**
+   * Gets the image an alias name refers to.
+   *
+   * @param aliasName The alias name of the image.
+   * @return The image, or null if the name does not refer to one.
+   */
+  Image getImage(String aliasName) {
+    Integer slot = slots.get(aliasName);
+    return slot == null || slot >= images.size() ? null : images.get(slot);
   }
 
   /**
    * This method listens to the user inputs. Starts a scanner and starts listening to the
-   * corresponding user input and calls process on input.
+   * corresponding user input and calls process on input, until the quit command or the end of the
+   * input.
    */
   public void start() throws IOException {
     Scanner scanner = new Scanner(this.in);
 
-    while (isListening) {
+    while (isListening && scanner.hasNextLine()) {
       String userInput = scanner.nextLine();
       processUserInput(userInput.strip());
     }
   }
 
-
   /**
-   * Process the user input string by first validating command based on its first index, split it
-   * based on white spaces in between and map to the corresponding method, ignore commands starting
-   * with # and stop listening to user input if we receive quit command.
+   * Process the user input string by compiling it into a plan of one command, which is executed on
+   * the images of the controller. Commands starting with # are ignored.
    *
    * @param s input string.
    */
   private void processUserInput(String s) throws IOException {
-    if (s.isEmpty() || s.startsWith("#")) {
-      return;
-    } else if (s.equals("quit")) {
-      isListening = false;
-      textView.display("Exiting the application");
-      return;
+    execute(compile(List.of(s), slots));
+  }
+
+  /**
+   * Compiles a script into a plan, with alias names of its own. The plan can then be executed any
+   * number of times, by any controller, without splitting or validating the lines again.
+   *
+   * @param lines The lines of the script.
+   * @return The plan.
+   */
+  ScriptPlan compile(Iterable<String> lines) {
+    return compile(lines, new HashMap<>());
+  }
+
+  /**
+   * Compiles the lines of a script. Every line which is not blank or a comment becomes a command,
+   * the lines which are not valid included, so that they are reported in order when the plan is
+   * executed.
+   *
+   * @param lines The lines of the script.
+   * @param slots The slots of the alias names, to which the new alias names are added.
+   * @return The plan.
+   */
+  private ScriptPlan compile(Iterable<String> lines, Map<String, Integer> slots) {
+    List<Command> commands = new ArrayList<>();
+    for (String line : lines) {
+      if (!line.isBlank() && !line.startsWith("#")) {
+        commands.add(parse(line, slots));
+      }
     }
+    return new ScriptPlan(commands, slots);
+  }
 
-    String[] command = s.split("\\s+");
+  /**
+   * Executes a plan which was compiled with the alias names of this controller.
+   *
+   * @param plan The plan.
+   */
+  private void execute(ScriptPlan plan) throws IOException {
+    addSlots();
+    execute(plan, images);
+  }
 
-    if (!validCommand(command[0], command)) {
+  /**
+   * Executes a plan on a list of images, with an image, or null, for every slot of the plan. The
+   * images written by the commands are set in the list. A command which fails does not stop the
+   * commands which follow it, its error is displayed like the ones of the text commands. The time
+   * and the memory taken by every command is recorded for the statistics.
+   *
+   * @param plan   The plan.
+   * @param images The images, by their slots.
+   */
+  void execute(ScriptPlan plan, List<Image> images) throws IOException {
+    for (Command command : plan.getCommands()) {
+      execute(command, images);
+    }
+  }
+
+  private void execute(Command command, List<Image> images) throws IOException {
+    if (command.operation == Operation.INVALID) {
       textView.display("Invalid command");
       return;
+    } else if (command.operation == Operation.QUIT) {
+      isListening = false;
+      writeStats();
+      textView.display("Exiting the application");
+      return;
     }
 
     try {
-      mapCommandToFunction(command[0], command);
+      lastImage = null;
+      long wallStart = System.nanoTime();
+      long cpuStart = metrics.getCpuTime();
+      long allocationStart = metrics.getAllocatedBytes();
+
+      run(command, images);
+
+      if (command.operation != Operation.RUN && command.operation != Operation.STATS) {
+        metrics.record(command.getName(),
+                System.nanoTime() - wallStart, metrics.getCpuTime() - cpuStart,
+                metrics.getAllocatedBytes() - allocationStart,
+                lastImage == null ? 0 : lastImage.getWidth(),
+                lastImage == null ? 0 : lastImage.getHeight());
+      }
     } catch (Exception e) {
       textView.display("Error : " + e.getMessage());
     }
   }
 
+  /**
+   * Adds the slots of the new alias names of the controller to its images.
+   */
+  private void addSlots() {
+    while (images.size() < slots.size()) {
+      images.add(null);
+    }
+  }
+
 
   /**
-   * This helper method runs a script file provided by the user. The script is then scanned and
-   * the commands are run line by line. Any line which starts with a # is considered a comment and
-   * will be ignored.
+   * This helper method runs a script file provided by the user. The whole script is compiled once
+   * with the alias names of the controller, and its commands are then run one by one. Any line
+   * which starts with a # is considered a comment and will be ignored. An optimized script reuses
+   * the images it computes more than once, and does not compute the ones which are never saved,
+   * and what was changed is displayed before it runs.
    *
-   * @param command The information about the script field, namely, the command and the script file
-   *                location. So, a valid command might be "run /script/script.txt".
+   * @param filename    The location of the script file.
+   * @param isOptimized Whether the script is optimized.
    */
-  private void runScriptFile(String[] command) throws IOException {
-    // take file input and process line by line.
+  private void runScriptFile(String filename, boolean isOptimized) throws IOException {
+    // take file input and compile it whole.
     Scanner sc;
-    String filename = command[1];
 
     try {
       sc = new Scanner(new FileInputStream(filename));
@@ -139,337 +285,416 @@ public class ImageController extends AbstractController {
       return;
     }
 
+    List<String> lines = new ArrayList<>();
     while (sc.hasNextLine()) {
-      processUserInput(sc.nextLine());
+      lines.add(sc.nextLine());
+    }
+    ScriptPlan plan = compile(lines, slots);
+    if (isOptimized) {
+      plan = PlanOptimizer.optimize(plan, List.of());
+      for (String change : plan.getReport()) {
+        textView.display(change);
+      }
     }
+    execute(plan);
   }
 
 
   /**
-   * Method to load image data from a specified file location. Location should include the image
-   * name as well. This also sets the image object with an alias name.
+   * Method to load image data from a specified file location, with the options of the command,
+   * the scale the image is subsampled at and the region which is loaded. Only the needed part of
+   * the file is decoded.
    *
-   * @param srcPath   The destination path of the image from the root.
-   * @param aliasName The alias name of the image given by the user. This is a string.
+   * @param command The command, with the path and the scale and region if it has options.
+   * @return The image.
    */
-  private void load(String srcPath, String aliasName) throws IllegalArgumentException, IOException {
+  private Image load(Command command) throws IOException {
+    String srcPath = command.words[1];
     validateFile(srcPath);
-    Image newImage = editor.load(srcPath);
-    this.addToMap(aliasName, newImage);
-  }
-
-  /**
-   * Method to save an image to a specified path. the path should include the format of the file
-   * as well. This also sets the image object with an alias name.
-   *
-   * @param saveDestinationPath The path where the image is to be saved.
-   * @param aliasName           The alias name of the image given by the user. This is a string.
-   */
-  private void save(String saveDestinationPath, String aliasName)
-          throws IllegalArgumentException, IOException {
-    validateFileExtension(saveDestinationPath);
-    checkAliasNameExists(aliasName);
-    saveByExtension(aliasImageMap.get(aliasName), saveDestinationPath, editor);
-  }
-
-
-  /**
-   * Extract the red component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
-   *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   */
-  private void redComponent(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image redComponentImage = editor.redComponent(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, redComponentImage);
-  }
-
-  /**
-   * Extract the green component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
-   *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   */
-  private void greenComponent(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image greenComponentImage = editor.greenComponent(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, greenComponentImage);
-  }
-
-  /**
-   * Extract the blue component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
-   *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   */
-  private void blueComponent(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image blueComponentImage = editor.blueComponent(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, blueComponentImage);
-  }
-
-  /**
-   * Extract the value component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
-   *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   */
-  private void valueComponent(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image valueComponentImage = editor.valueComponent(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, valueComponentImage);
+    int[] values = command.values;
+    if (values.length == 0) {
+      return editor.load(srcPath);
+    } else if (values.length == 1) {
+      return editor.load(srcPath, values[0]);
+    }
+    return editor.load(srcPath, values[0], values[2], values[1], values[4], values[3]);
   }
 
   /**
-   * Extract the intensity component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Gets the scale and the region of a load command, the scale keyword followed by the scale, and
+   * the region keyword followed by the x, y, width and height of the region.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command with the keyword, the path, the alias name and the options.
+   * @return Nothing without options, the scale without a region, or the scale and the region.
    */
-  private void intensityComponent(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image intensityComponentImage = editor.intensityComponent(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, intensityComponentImage);
+  private int[] getLoadValues(String[] command) {
+    if (command.length == 3) {
+      return new int[0];
+    }
+    // the options follow the path and the alias name, which may be named like the keywords.
+    List<String> options = Arrays.asList(command).subList(3, command.length);
+    int scaleIndex = options.indexOf(SCALE) + 3;
+    int scale = scaleIndex > 2 ? Integer.parseInt(command[scaleIndex + 1]) : 1;
+    int regionIndex = options.indexOf(REGION) + 3;
+    if (regionIndex < 3) {
+      return new int[]{scale};
+    }
+    return new int[]{scale, Integer.parseInt(command[regionIndex + 1]),
+        Integer.parseInt(command[regionIndex + 2]), Integer.parseInt(command[regionIndex + 3]),
+        Integer.parseInt(command[regionIndex + 4])};
   }
 
   /**
-   * Extract the luma component of the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Validates the options of a load command, each of the scale and the region at most once and in
+   * any order.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to extract the
-   *                        specified component of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command with the keyword, the path, the alias name and the options.
+   * @return True if the options are valid, false otherwise.
    */
-  private void lumaComponent(String sourceAliasName, String targetAliasName, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image lumaComponentImage = editor.lumaComponent(original);
-    addToMap(targetAliasName, editor.getSplitView(original, lumaComponentImage, split));
+  private boolean validLoadOptions(String[] command) {
+    boolean hasScale = false;
+    boolean hasRegion = false;
+    int i = 3;
+    while (i < command.length) {
+      if (SCALE.equals(command[i]) && !hasScale && i + 1 < command.length) {
+        if (!isInteger(command[i + 1]) || Integer.parseInt(command[i + 1]) < 1) {
+          return false;
+        }
+        hasScale = true;
+        i += 2;
+      } else if (REGION.equals(command[i]) && !hasRegion && i + 4 < command.length) {
+        for (int j = i + 1; j <= i + 4; j++) {
+          if (!isInteger(command[j]) || Integer.parseInt(command[j]) < 0) {
+            return false;
+          }
+        }
+        hasRegion = true;
+        i += 5;
+      } else {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
-   * Flip the image horizontally. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
-   *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * Writes the statistics of the commands run so far as a csv file, if a path was given for them.
    */
-  private void horizontalFlip(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image horizontalFlipImage = editor.horizontalFlip(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, horizontalFlipImage);
+  private void writeStats() throws IOException {
+    if (statsPath == null) {
+      return;
+    }
+    try {
+      metrics.writeCsv(statsPath);
+    } catch (IOException e) {
+      textView.display("Error : " + e.getMessage());
+    }
   }
 
   /**
-   * Flip the image vertically. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Runs a command on a list of images. The images the command reads should be in the list, and
+   * the images it creates are set in it.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command.
+   * @param images  The images, by their slots.
    */
-  private void verticalFlip(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image verticalFlipImage = editor.verticalFlip(aliasImageMap.get(sourceAliasName));
-    addToMap(targetAliasName, verticalFlipImage);
+  private void run(Command command, List<Image> images) throws IOException {
+    switch (command.operation) {
+      case LOAD:
+        setImage(images, command.targets[0], load(command));
+        break;
+      case SAVE:
+        validateFileExtension(command.words[1]);
+        lastImage = getImage(images, command.sources[0]);
+        saveByExtension(lastImage, command.words[1], editor);
+        break;
+      case RGB_SPLIT:
+        Image image = getImage(images, command.sources[0]);
+        setImages(images, command.targets, editor.redComponent(image),
+                editor.greenComponent(image), editor.blueComponent(image));
+        break;
+      case RGB_COMBINE:
+        Image red = getImage(images, command.sources[0]);
+        Image green = getImage(images, command.sources[1]);
+        Image blue = getImage(images, command.sources[2]);
+        setImage(images, command.targets[0], editor.rgbCombine(red, green, blue));
+        break;
+      case COPY:
+        setImage(images, command.targets[0], getImage(images, command.sources[0]));
+        break;
+      case RUN:
+        runScriptFile(command.words[1], command.words.length == 3);
+        break;
+      case STATS:
+        textView.display(metrics.getSummary());
+        break;
+      case STREAM:
+        stream(command.words);
+        break;
+      default:
+        Image source = getImage(images, command.sources[0]);
+        setImage(images, command.targets[0], command.region == null
+                ? apply(command, source) : applyToRegion(command, source, images));
+        break;
+    }
   }
 
   /**
-   * Blur the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Applies the operation of a command which creates an image from another one.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command.
+   * @param source  The image the operation is applied to.
+   * @return The new image.
    */
-  private void blurImage(String sourceAliasName, String targetAliasName, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image blurImage = editor.blur(original);
-    addToMap(targetAliasName, editor.getSplitView(original, blurImage, split));
+  private Image apply(Command command, Image source) {
+    int[] values = command.values;
+    switch (command.operation) {
+      case RED_COMPONENT:
+        return editor.redComponent(source);
+      case GREEN_COMPONENT:
+        return editor.greenComponent(source);
+      case BLUE_COMPONENT:
+        return editor.blueComponent(source);
+      case VALUE_COMPONENT:
+        return editor.valueComponent(source);
+      case INTENSITY_COMPONENT:
+        return editor.intensityComponent(source);
+      case LUMA_COMPONENT:
+        return applyToSplit(source, command.split, editor::lumaComponent);
+      case HORIZONTAL_FLIP:
+        return editor.horizontalFlip(source);
+      case VERTICAL_FLIP:
+        return editor.verticalFlip(source);
+      case BRIGHTEN:
+        return editor.brighten(source, values[0]);
+      case BLUR:
+        if (values.length == 0) {
+          return applyToSplit(source, command.split, editor::blur);
+        }
+        return applyToSplit(source, command.split, image -> editor.blur(image, values[0]));
+      case SHARPEN:
+        return applyToSplit(source, command.split, editor::sharpen);
+      case SEPIA:
+        return applyToSplit(source, command.split, editor::toSepia);
+      case COLOR_TRANSFORM:
+        return applyToSplit(source, command.split,
+                image -> editor.colorTransform(image, command.matrix));
+      case HISTOGRAM:
+        return editor.getHistogram(source);
+      case COLOR_CORRECT:
+        return applyToSplit(source, command.split, editor::colorCorrect);
+      case LEVELS_ADJUST:
+        return applyToSplit(source, command.split,
+                image -> editor.levelsAdjust(image, values[0], values[1], values[2]));
+      default:
+        return command.precision == null
+                ? editor.compress(source, values[0])
+                : editor.compress(source, values[0], command.precision);
+    }
   }
 
   /**
-   * Sharpen the image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Applies an operation to the left part of an image only, and places the result next to the
+   * rest of the image.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param source    The image.
+   * @param split     The percentage of the width of the image the operation is applied to.
+   * @param operation The operation.
+   * @return The new image.
    */
-  private void sharpenImage(String sourceAliasName, String targetAliasName, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image sharpenImage = editor.sharpen(original);
-    addToMap(targetAliasName, editor.getSplitView(original, sharpenImage, split));
+  private Image applyToSplit(Image source, int split, UnaryOperator<Image> operation) {
+    Image result = operation.apply(editor.getSplitRegion(source, split));
+    return editor.getSplitView(source, result, split);
   }
 
   /**
-   * Convert the image to a sepia tone. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Streams an image from one file to another through a chain of operations, a row at a time,
+   * without loading the whole image or adding it to the images which can be referred to.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command with the keyword, the source and destination paths and the
+   *                operations, in the order they are applied.
    */
-  private void toSepia(String sourceAliasName, String targetAliasName, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image sepiaImage = editor.toSepia(original);
-    this.addToMap(targetAliasName, editor.getSplitView(original, sepiaImage, split));
+  private void stream(String[] command) throws IOException {
+    checkFileExists(command[1]);
+    try (ImagePipeline pipeline = editor.stream(command[1])) {
+      addStreamOperations(command, pipeline);
+      pipeline.save(command[2]);
+    }
   }
 
   /**
-   * Increase or decrease the brightness of an image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Walks the operations of a stream command, and adds them to a pipeline. The operations which
+   * take arguments are followed by them, the brighten operation by its value, and the color
+   * transform operation by the rows of its matrix.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   * @param value           The value by the image should be brightened or darkened.
+   * @param command  The command with the keyword, the paths and the operations.
+   * @param pipeline The pipeline the operations are added to, or null to only validate them.
+   * @return True if the operations are valid, false otherwise.
    */
-  private void brighten(String sourceAliasName, String targetAliasName, int value) {
-    checkAliasNameExists(sourceAliasName);
-    Image brightenedImage = editor.brighten(aliasImageMap.get(sourceAliasName), value);
-    this.addToMap(targetAliasName, brightenedImage);
+  private boolean addStreamOperations(String[] command, ImagePipeline pipeline) {
+    int i = 3;
+    while (i < command.length) {
+      String operation = command[i];
+      if (BRIGHTEN.equals(operation)) {
+        if (i + 1 == command.length || !isInteger(command[i + 1])) {
+          return false;
+        }
+        if (pipeline != null) {
+          pipeline.brighten(Integer.parseInt(command[i + 1]));
+        }
+        i += 2;
+        continue;
+      }
+      if (COLOR_TRANSFORM.equals(operation)) {
+        String[] rest = Arrays.copyOfRange(command, i, command.length);
+        double[][] matrix = getMatrix(rest);
+        if (matrix == null) {
+          return false;
+        }
+        if (pipeline != null) {
+          pipeline.colorTransform(matrix);
+        }
+        i += matrix.length + 1;
+        continue;
+      }
+      if (!STREAM_SET.contains(operation)) {
+        return false;
+      }
+      if (pipeline != null) {
+        addStreamOperation(operation, pipeline);
+      }
+      i++;
+    }
+    return true;
   }
 
   /**
-   * Split the image to three components for RGB. Will result in three image objects.
-   * This also sets the newly created images object with other alias names provided.
+   * Adds an operation without arguments to a pipeline.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param redAliasName    The target name of the result. This will be where the newly created
-   *                        red component image will be pointed to.
-   * @param greenAliasName  The target name of the result. This will be where the newly created
-   *                        *                  green component image will be pointed to.
-   * @param blueAliasName   The target name of the result. This will be where the newly created
-   *                        *                 blue component image will be pointed to.
+   * @param operation The name of the operation.
+   * @param pipeline  The pipeline the operation is added to.
    */
-  private void rgbSplit(String sourceAliasName, String redAliasName, String greenAliasName,
-                        String blueAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image image = aliasImageMap.get(sourceAliasName);
-    addToMap(redAliasName, editor.redComponent(image));
-    addToMap(greenAliasName, editor.greenComponent(image));
-    addToMap(blueAliasName, editor.blueComponent(image));
+  private void addStreamOperation(String operation, ImagePipeline pipeline) {
+    switch (operation) {
+      case RED_COMPONENT:
+        pipeline.redComponent();
+        break;
+      case GREEN_COMPONENT:
+        pipeline.greenComponent();
+        break;
+      case BLUE_COMPONENT:
+        pipeline.blueComponent();
+        break;
+      case VALUE_COMPONENT:
+        pipeline.valueComponent();
+        break;
+      case INTENSITY_COMPONENT:
+        pipeline.intensityComponent();
+        break;
+      case LUMA_COMPONENT:
+        pipeline.lumaComponent();
+        break;
+      case BLUR:
+        pipeline.blur();
+        break;
+      case SHARPEN:
+        pipeline.sharpen();
+        break;
+      default:
+        pipeline.sepia();
+        break;
+    }
   }
 
-
   /**
-   * Combine three components for RGB into a single image. Will result in a new image.
-   * This also sets the newly created image object with an alias name.
+   * Gets the precision of the haar transform named in a command.
    *
-   * @param targetAliasName The target image. This alias will be used to store the image.
-   * @param redAliasName    The red component of the input.
-   * @param greenAliasName  The green component of the input.
-   * @param blueAliasName   The blue component of the input.
+   * @param name The name of the precision, double, float or integer.
+   * @return The precision, or null if the name is not one.
    */
-  private void rgbCombine(String targetAliasName, String redAliasName, String greenAliasName,
-                          String blueAliasName) {
-
-    checkAliasNameExists(redAliasName);
-    checkAliasNameExists(greenAliasName);
-    checkAliasNameExists(blueAliasName);
-
-
-    addToMap(targetAliasName, editor.rgbCombine(aliasImageMap.get(redAliasName),
-            aliasImageMap.get(greenAliasName),
-            aliasImageMap.get(blueAliasName))
-    );
+  private ImageCompressor.Precision getPrecision(String name) {
+    for (ImageCompressor.Precision precision : ImageCompressor.Precision.values()) {
+      if (precision.name().toLowerCase().equals(name)) {
+        return precision;
+      }
+    }
+    return null;
   }
 
   /**
-   * Compress the image by a given percentage. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Runs an operation on a region of the source image only, and places the result over the source
+   * image at the region. The rest of the pixels are shared with the source image. With a mask, only
+   * the pixels of the region where the mask is not black are taken from the result.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   * @param percent         The percentage of compression
+   * @param command The command, with the x, y, width, height of the region and the optional mask.
+   * @param source  The source image.
+   * @param images  The images, by their slots, which have the mask.
+   * @return The new image.
    */
-  private void compress(String sourceAliasName, String targetAliasName, int percent) {
-    checkAliasNameExists(sourceAliasName);
-    Image compressedImage = editor.compress(aliasImageMap.get(sourceAliasName), percent);
-    this.addToMap(targetAliasName, compressedImage);
+  private Image applyToRegion(Command command, Image source, List<Image> images) {
+    Image mask = command.mask < 0 ? null : getImage(images, command.mask);
+    int[] region = command.region;
+    Image result = apply(command,
+            editor.getRegion(source, region[1], region[0], region[3], region[2]));
+    return editor.getOverlayView(source, result, region[1], region[0], mask);
   }
 
   /**
-   * Compress the image by a given percentage. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Checks whether a blur command has a radius, which comes before the source alias name like the
+   * value of the brighten. The blur has an even number of arguments with the radius.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command with the keyword and command arguments.
+   * @return True if the command has a radius, false otherwise.
    */
-  private void colorCorrect(String sourceAliasName, String targetAliasName, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image colorCorrectedImage = editor.colorCorrect(original);
-    this.addToMap(targetAliasName, editor.getSplitView(original, colorCorrectedImage, split));
+  private boolean isBlurWithRadius(String[] command) {
+    return command.length == 4 || command.length == 6;
   }
 
   /**
-   * Adjusts the level of the image by a given parameters of b, m and w. Will result in a
-   * new image object. This also sets the newly created image object with an alias name.
+   * Gets the number of matrix rows in a color transform command. The rows follow the keyword, and
+   * each row has its numbers separated by commas.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
-   * @param b               The shadow value.
-   * @param m               The mid value.
-   * @param w               The high value.
+   * @param command The command with the keyword and command arguments.
+   * @return The number of rows.
    */
-  private void levelsAdjust(String sourceAliasName, String targetAliasName,
-                            int b, int m, int w, int split) {
-    checkAliasNameExists(sourceAliasName);
-    Image original = aliasImageMap.get(sourceAliasName);
-    Image levelAdjustedImage;
-    levelAdjustedImage = editor.levelsAdjust(original, b, m, w);
-    this.addToMap(targetAliasName, editor.getSplitView(original, levelAdjustedImage, split));
+  private int getMatrixRows(String[] command) {
+    int rows = 0;
+    while (rows + 1 < command.length && command[rows + 1].contains(",")) {
+      rows++;
+    }
+    return rows;
   }
 
   /**
-   * Get the rgb values histogram as an image for given image. Will result in a new image object.
-   * This also sets the newly created image object with an alias name.
+   * Gets the matrix of a color transform command.
    *
-   * @param sourceAliasName The source image. This image will be used as a base to run the
-   *                        processing of the image.
-   * @param targetAliasName The target name of the result. This will be where the newly created
-   *                        object will be pointed to.
+   * @param command The command with the keyword and command arguments.
+   * @return The 3x3 or 4x4 matrix, or null if the rows do not make up a valid matrix.
    */
-  private void getHistogram(String sourceAliasName, String targetAliasName) {
-    checkAliasNameExists(sourceAliasName);
-    Image histogram = editor.getHistogram(aliasImageMap.get(sourceAliasName));
-    this.addToMap(targetAliasName, histogram);
+  private double[][] getMatrix(String[] command) {
+    int rows = getMatrixRows(command);
+    if (rows != 3 && rows != 4) {
+      return null;
+    }
+    double[][] matrix = new double[rows][];
+    for (int i = 0; i < rows; i++) {
+      String[] values = command[i + 1].split(",");
+      if (values.length != rows) {
+        return null;
+      }
+      matrix[i] = new double[rows];
+      for (int j = 0; j < rows; j++) {
+        try {
+          matrix[i][j] = Double.parseDouble(values[j]);
+        } catch (NumberFormatException e) {
+          return null;
+        }
+        if (!Double.isFinite(matrix[i][j])) {
+          return null;
+        }
+      }
+    }
+    return matrix;
   }
 
   /**
@@ -496,26 +721,77 @@ public class ImageController extends AbstractController {
   }
 
   /**
-   * Checks the existence of an alias name.
+   * Gets the image in a slot.
    *
-   * @param aliasName The alias name to be checked.
+   * @param images The images, by their slots.
+   * @param slot   The slot.
+   * @return The image.
+   * @throws IllegalArgumentException if there is no image in the slot.
    */
-  private void checkAliasNameExists(String aliasName) {
+  private Image getImage(List<Image> images, int slot) {
+    Image image = images.get(slot);
+    if (image == null) {
+      throw new IllegalArgumentException("The source image name does not exist");
+    }
+    return image;
+  }
 
-    if (!aliasImageMap.containsKey(aliasName)) {
+  /**
+   * Sets the image in a slot.
+   *
+   * @param images The images, by their slots.
+   * @param slot   The slot.
+   * @param image  The image object.
+   */
+  private void setImage(List<Image> images, int slot, Image image) {
+    setImages(images, new int[]{slot}, image);
+  }
 
-      throw new IllegalArgumentException("The source image name does not exist");
+  /**
+   * Sets the images in slots, and releases the images they replace which the controller created
+   * and no slot refers to anymore. The images which are not in a slot yet were created by the
+   * command, as the images the commands read all come from the slots.
+   *
+   * @param images  The images, by their slots.
+   * @param targets The slots.
+   * @param results The images, in the order of the slots.
+   */
+  private void setImages(List<Image> images, int[] targets, Image... results) {
+    for (Image result : results) {
+      if (!images.contains(result)) {
+        created.add(result);
+      }
+    }
+    Image[] replaced = new Image[targets.length];
+    for (int i = 0; i < targets.length; i++) {
+      replaced[i] = images.set(targets[i], results[i]);
+      lastImage = results[i];
+    }
+    for (Image image : replaced) {
+      if (image != null && !images.contains(image) && created.remove(image)) {
+        editor.release(image, images);
+      }
     }
   }
 
   /**
-   * Add a key value pair of string and image to the map.
+   * Gets the slots of alias names, and gives the next slots to the ones which have none yet.
    *
-   * @param aliasName The key alias name.
-   * @param image     The image object.
+   * @param slots      The slots of the alias names.
+   * @param aliasNames The alias names.
+   * @return The slots, in the order of the names.
    */
-  private void addToMap(String aliasName, Image image) {
-    aliasImageMap.put(aliasName, image);
+  private static int[] getSlots(Map<String, Integer> slots, String... aliasNames) {
+    int[] result = new int[aliasNames.length];
+    for (int i = 0; i < aliasNames.length; i++) {
+      Integer slot = slots.get(aliasNames[i]);
+      if (slot == null) {
+        slot = slots.size();
+        slots.put(aliasNames[i], slot);
+      }
+      result[i] = slot;
+    }
+    return result;
   }
 
   /**
@@ -527,21 +803,48 @@ public class ImageController extends AbstractController {
    */
   private boolean validCommand(String s, String[] command) {
     // check the command belongs to which category of map and validate its corresponding input size.
-    if (SRC_DEST_SET.contains(s)) {
+    if (LOAD.equals(s)) {
+      return command.length >= 3 && validLoadOptions(command);
+    } else if (SRC_DEST_SET.contains(s)) {
       return command.length == 3;
     } else if (RGB_SET.contains(s)) {
       return command.length == 5;
     } else if (BRIGHTEN.equals(s)) {
       return command.length == 4 && isInteger(command[1]);
     } else if (COMPRESS.equals(s)) {
+      if (command.length == 6) {
+        return isValidPercentage(command[1]) && PRECISION.equals(command[4])
+                && getPrecision(command[5]) != null;
+      }
       return command.length == 4 && isValidPercentage(command[1]);
+    } else if (STREAM.equals(s)) {
+      return command.length >= 3 && addStreamOperations(command, null);
     } else if (s.equals(RUN)) {
-      return command.length == 2;
+      return command.length == 2 || (command.length == 3 && OPTIMIZE.equals(command[2]));
+    } else if (s.equals(STATS)) {
+      return command.length == 1;
+    } else if (BLUR.equals(s) && isBlurWithRadius(command)) {
+      if (!isInteger(command[1]) || Integer.parseInt(command[1]) < 0) {
+        return false;
+      }
+      if (command.length == 6) {
+        return SPLIT.equals(command[4]) && isValidPercentage(command[5]);
+      }
+      return true;
     } else if (SPLIT_SET.contains(s)) {
       if (command.length == 5) {
         return SPLIT.equals(command[3]) && isValidPercentage(command[4]);
       }
       return command.length == 3;
+    } else if (COLOR_TRANSFORM.equals(s)) {
+      int rows = getMatrixRows(command);
+      if (getMatrix(command) == null) {
+        return false;
+      }
+      if (command.length == rows + 5) {
+        return SPLIT.equals(command[rows + 3]) && isValidPercentage(command[rows + 4]);
+      }
+      return command.length == rows + 3;
     } else if (LEVELS_ADJUST.equals(s)) {
       if (command.length >= 4 && isNotAscending(command[1], command[2], command[3])) {
         return false;
@@ -555,6 +858,50 @@ public class ImageController extends AbstractController {
     return false;
   }
 
+  /**
+   * Gets the position of the region keyword of a command. The region, with its optional mask,
+   * ends the command, so the keyword is only looked for where its values would end it, after the
+   * arguments of a valid operation. An alias named region is then never taken for the keyword.
+   *
+   * @param command The command with the keyword and command arguments.
+   * @return The position of the region keyword, or -1 if the command has no region.
+   */
+  private int getRegionIndex(String[] command) {
+    int regionIndex = command.length - 5;
+    if (command.length >= 9 && MASK.equals(command[command.length - 2])) {
+      regionIndex = command.length - 7;
+    }
+    if (regionIndex < 1 || !REGION.equals(command[regionIndex])) {
+      return -1;
+    }
+    String[] operation = Arrays.copyOf(command, regionIndex);
+    return validCommand(operation[0], operation) ? regionIndex : -1;
+  }
+
+  /**
+   * Helper method to validate the region arguments of a command. The region keyword is followed by
+   * the x, y, width, height of the region, and optionally by the mask keyword and a mask alias.
+   *
+   * @param s           command of the string the first value.
+   * @param command     The command with the keyword and command arguments.
+   * @param regionIndex The position of the region keyword in the command.
+   */
+  private boolean validRegion(String s, String[] command, int regionIndex) {
+    if (!REGION_SET.contains(s)) {
+      return false;
+    }
+    if (command.length != regionIndex + 5 && !(command.length == regionIndex + 7
+            && MASK.equals(command[regionIndex + 5]))) {
+      return false;
+    }
+    for (int i = regionIndex + 1; i <= regionIndex + 4; i++) {
+      if (!isInteger(command[i]) || Integer.parseInt(command[i]) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Helper method to validate the file extension is valid at the particular position.
    *
@@ -568,102 +915,120 @@ public class ImageController extends AbstractController {
 
 
 
-  private void mapCommandToFunction(String s, String[] command) throws IOException {
-    switch (s) {
+  /**
+   * Parses a line of a script into a command, by splitting it based on white spaces, validating it
+   * based on its first word, and parsing its arguments. The alias names are replaced by their
+   * slots.
+   *
+   * @param s     The line.
+   * @param slots The slots of the alias names, to which the new alias names are added.
+   * @return The command, which is invalid if the line is not a valid command.
+   */
+  private Command parse(String s, Map<String, Integer> slots) {
+    String[] command = s.split("\\s+");
+    if (s.equals("quit")) {
+      return new Command(Operation.QUIT, command, NO_SLOTS, NO_SLOTS);
+    }
+
+    // the region of a load is read from the file, instead of being edited in a loaded image.
+    int regionIndex = LOAD.equals(command[0]) ? -1 : getRegionIndex(command);
+    String[] operation = regionIndex > 0 ? Arrays.copyOf(command, regionIndex) : command;
+
+    if (!validCommand(operation[0], operation)
+            || (regionIndex > 0 && !validRegion(operation[0], command, regionIndex))) {
+      return new Command(Operation.INVALID, command, NO_SLOTS, NO_SLOTS);
+    }
+
+    Command parsed = parseOperation(operation, slots);
+    if (regionIndex > 0) {
+      parsed.region = new int[]{Integer.parseInt(command[regionIndex + 1]),
+          Integer.parseInt(command[regionIndex + 2]), Integer.parseInt(command[regionIndex + 3]),
+          Integer.parseInt(command[regionIndex + 4])};
+      if (command.length > regionIndex + 5) {
+        parsed.mask = getSlots(slots, command[regionIndex + 6])[0];
+      }
+    }
+    return parsed;
+  }
+
+  /**
+   * Parses the arguments of a valid command, without its region.
+   *
+   * @param command The command with the keyword and command arguments.
+   * @param slots   The slots of the alias names, to which the new alias names are added.
+   * @return The command.
+   */
+  private Command parseOperation(String[] command, Map<String, Integer> slots) {
+    Operation operation = Operation.of(command[0]);
+    Command parsed;
+    switch (operation) {
       case LOAD:
-        load(command[1], command[2]);
-        break;
+        parsed = new Command(operation, command, NO_SLOTS, getSlots(slots, command[2]));
+        parsed.values = getLoadValues(command);
+        return parsed;
       case SAVE:
-        save(command[1], command[2]);
-        break;
-      case RED_COMPONENT:
-        redComponent(command[1], command[2]);
-        break;
-      case GREEN_COMPONENT:
-        greenComponent(command[1], command[2]);
-        break;
-      case BLUE_COMPONENT:
-        blueComponent(command[1], command[2]);
-        break;
-      case VALUE_COMPONENT:
-        valueComponent(command[1], command[2]);
-        break;
-      case INTENSITY_COMPONENT:
-        intensityComponent(command[1], command[2]);
-        break;
-      case LUMA_COMPONENT:
-        if (command.length == 3) {
-          lumaComponent(command[1], command[2], 100);
-        } else {
-          lumaComponent(command[1], command[2], Integer.parseInt(command[4]));
-        }
-        break;
-      case HORIZONTAL_FLIP:
-        horizontalFlip(command[1], command[2]);
-        break;
-      case VERTICAL_FLIP:
-        verticalFlip(command[1], command[2]);
-        break;
-      case BLUR:
-        if (command.length == 3) {
-          blurImage(command[1], command[2], 100);
-        } else {
-          blurImage(command[1], command[2], Integer.parseInt(command[4]));
-        }
-        break;
-      case SHARPEN:
-        if (command.length == 3) {
-          sharpenImage(command[1], command[2], 100);
-        } else {
-          sharpenImage(command[1], command[2], Integer.parseInt(command[4]));
-        }
-        break;
-      case SEPIA:
-        if (command.length == 3) {
-          toSepia(command[1], command[2], 100);
-        } else {
-          toSepia(command[1], command[2], Integer.parseInt(command[4]));
-        }
-        break;
-      case BRIGHTEN:
-        brighten(command[2], command[3], Integer.parseInt(command[1]));
-        break;
+        return new Command(operation, command, getSlots(slots, command[2]), NO_SLOTS);
       case RGB_SPLIT:
-        rgbSplit(command[1], command[2], command[3], command[4]);
-        break;
+        return new Command(operation, command, getSlots(slots, command[1]),
+                getSlots(slots, command[2], command[3], command[4]));
       case RGB_COMBINE:
-        rgbCombine(command[1], command[2], command[3], command[4]);
-        break;
-      case HISTOGRAM:
-        getHistogram(command[1], command[2]);
-        break;
+        return new Command(operation, command, getSlots(slots, command[2], command[3], command[4]),
+                getSlots(slots, command[1]));
       case RUN:
-        runScriptFile(command);
-        break;
+      case STATS:
+      case STREAM:
+        return new Command(operation, command, NO_SLOTS, NO_SLOTS);
+      case BRIGHTEN:
+        parsed = parseSourceAndTarget(operation, command, 2, slots);
+        parsed.values = new int[]{Integer.parseInt(command[1])};
+        return parsed;
+      case COMPRESS:
+        parsed = parseSourceAndTarget(operation, command, 2, slots);
+        parsed.values = new int[]{Integer.parseInt(command[1])};
+        parsed.precision = command.length == 6 ? getPrecision(command[5]) : null;
+        return parsed;
       case LEVELS_ADJUST:
-        if (command.length == 6) {
-          levelsAdjust(command[4], command[5], Integer.parseInt(command[1]),
-                  Integer.parseInt(command[2]),
-                  Integer.parseInt(command[3]), 100);
-        } else {
-          levelsAdjust(command[4], command[5], Integer.parseInt(command[1]),
-                  Integer.parseInt(command[2]),
-                  Integer.parseInt(command[3]), Integer.parseInt(command[7]));
-        }
-        break;
-      case COLOR_CORRECT:
-        if (command.length == 3) {
-          colorCorrect(command[1], command[2], 100);
-        } else {
-          colorCorrect(command[1], command[2], Integer.parseInt(command[4]));
+        parsed = parseSourceAndTarget(operation, command, 4, slots);
+        parsed.values = new int[]{Integer.parseInt(command[1]), Integer.parseInt(command[2]),
+            Integer.parseInt(command[3])};
+        parsed.split = command.length == 8 ? Integer.parseInt(command[7]) : 100;
+        return parsed;
+      case BLUR:
+        if (isBlurWithRadius(command)) {
+          parsed = parseSourceAndTarget(operation, command, 2, slots);
+          parsed.values = new int[]{Integer.parseInt(command[1])};
+          parsed.split = command.length == 6 ? Integer.parseInt(command[5]) : 100;
+          return parsed;
         }
-        break;
-      case COMPRESS:
-        compress(command[2], command[3], Integer.parseInt(command[1]));
-        break;
+        parsed = parseSourceAndTarget(operation, command, 1, slots);
+        parsed.split = command.length == 5 ? Integer.parseInt(command[4]) : 100;
+        return parsed;
+      case COLOR_TRANSFORM:
+        int rows = getMatrixRows(command);
+        parsed = parseSourceAndTarget(operation, command, rows + 1, slots);
+        parsed.matrix = getMatrix(command);
+        parsed.split = command.length == rows + 5 ? Integer.parseInt(command[rows + 4]) : 100;
+        return parsed;
       default:
-        textView.display("Invalid Command - Not supported");
-        break;
+        parsed = parseSourceAndTarget(operation, command, 1, slots);
+        parsed.split = command.length == 5 ? Integer.parseInt(command[4]) : 100;
+        return parsed;
     }
   }
+
+  /**
+   * Parses a command which creates an image from another one, whose alias names follow each
+   * other.
+   *
+   * @param operation   The operation of the command.
+   * @param command     The command with the keyword and command arguments.
+   * @param sourceIndex The position of the source alias name, the target alias name follows it.
+   * @param slots       The slots of the alias names, to which the new alias names are added.
+   * @return The command.
+   */
+  private Command parseSourceAndTarget(Operation operation, String[] command, int sourceIndex,
+                                       Map<String, Integer> slots) {
+    return new Command(operation, command, getSlots(slots, command[sourceIndex]),
+            getSlots(slots, command[sourceIndex + 1]));
+  }
 }
@@ -0,0 +1,125 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import model.ImageEditor;
+import view.TextView;
+
+/**
+ * A daemon which listens on a Unix domain socket and runs a session of the text controller for
+ * every connection, so that scripts can be sent to a running and warmed up application instead of
+ * starting a new one for each of them. A session reads the commands sent on its connection, one
+ * per line, and writes the messages of the controller back, until the quit command or the end of
+ * the input, then closes the connection. The sessions share the editor, so an editor which caches
+ * the loaded images lets them share the images loaded by the others.
+ */
+public class ImageDaemon {
+
+  private final Path socketPath;
+
+  private final ImageEditor editor;
+
+  private final ExecutorService sessions;
+
+  private ServerSocketChannel channel;
+
+  /**
+   * Creates the daemon, which does not listen until it is started.
+   *
+   * @param socketPath The path of the socket file.
+   * @param editor     The editor shared by the sessions.
+   */
+  public ImageDaemon(Path socketPath, ImageEditor editor) {
+    if (socketPath == null || editor == null) {
+      throw new IllegalArgumentException("null not allowed");
+    }
+    this.socketPath = socketPath;
+    this.editor = editor;
+    this.sessions = Executors.newCachedThreadPool();
+  }
+
+  /**
+   * Binds the socket and starts accepting the connections on a new thread. A socket file left
+   * by a daemon which did not stop is replaced, but any other file at the path is not.
+   *
+   * @throws IOException if the socket could not be bound.
+   */
+  public void start() throws IOException {
+    if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+      BasicFileAttributes attributes = Files.readAttributes(socketPath,
+              BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      if (!attributes.isOther()) {
+        throw new IOException("A file which is not a socket exists at " + socketPath);
+      }
+      Files.delete(socketPath);
+    }
+    channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    channel.bind(UnixDomainSocketAddress.of(socketPath));
+    new Thread(this::accept, "image-daemon").start();
+  }
+
+  /**
+   * Stops accepting the connections and removes the socket file. The sessions which are running
+   * are left to finish.
+   *
+   * @throws IOException if the socket could not be closed.
+   */
+  public void stop() throws IOException {
+    channel.close();
+    Files.deleteIfExists(socketPath);
+    sessions.shutdown();
+    try {
+      sessions.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void accept() {
+    while (channel.isOpen()) {
+      SocketChannel connection;
+      try {
+        connection = channel.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        continue;
+      }
+      sessions.execute(() -> runSession(connection));
+    }
+  }
+
+  /**
+   * Runs a controller over a connection, with its own alias names.
+   *
+   * @param connection The connection.
+   */
+  private void runSession(SocketChannel connection) {
+    try (connection) {
+      PrintStream out = new PrintStream(Channels.newOutputStream(connection), true,
+              StandardCharsets.UTF_8);
+      Readable in = new InputStreamReader(Channels.newInputStream(connection),
+              StandardCharsets.UTF_8);
+      new ImageController(new TextView(out), in, editor).start();
+      out.flush();
+    } catch (IOException | RuntimeException e) {
+      // the client went away, which only ends its own session.
+    }
+  }
+}
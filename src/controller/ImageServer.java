@@ -0,0 +1,548 @@
+package controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import model.Image;
+import model.ImageEditor;
+import view.TextView;
+
+import static util.Constants.JPG;
+import static util.Constants.PNG;
+import static util.Constants.PPM;
+
+/**
+ * A long running HTTP server which runs the scripts of the image controller on uploaded images, so
+ * that other services do not pay for starting a new application and warming it up for every
+ * image. An image is posted to /process, with the script in the script query parameter and the
+ * format of the result in the format query parameter, png by default. The uploaded image is given
+ * the alias name input, and the image with the alias name output is sent back.
+ *
+ * <p>Every request runs with its own controller, so the alias names of the requests never mix. As
+ * the server reads and writes the images itself, the commands which use files are not allowed in
+ * the scripts.
+ *
+ * <p>A request is handled in two stages. The upload is read and the response is written on an
+ * I/O thread, which is a virtual thread when the JVM has them and a thread of a cached pool
+ * otherwise, so that slow clients only hold cheap threads. The decoding, the script and the
+ * encoding run on a fork join pool with one thread per worker, and a bounded number of requests
+ * can wait for it. A request which finds no room is answered at once with 429 Too Many Requests.
+ * The room is taken before the upload is read, so the uploads held in memory are bounded by the
+ * number of workers and the capacity of the queue, however many clients send at once.
+ * The time waited for the pool and the time spent in it are recorded, and can be read from
+ * /metrics.
+ */
+public class ImageServer {
+
+  static final String INPUT = "input";
+
+  static final String OUTPUT = "output";
+
+  private static final Set<ScriptPlan.Operation> FILE_COMMANDS = Set.of(
+          ScriptPlan.Operation.LOAD, ScriptPlan.Operation.SAVE, ScriptPlan.Operation.RUN,
+          ScriptPlan.Operation.STREAM);
+
+  private static final int MAX_PLANS = 256;
+
+  private static final Set<String> FORMATS = Set.of(PPM, PNG, JPG);
+
+  private static final int MAX_UPLOAD_BYTES = 64 << 20;
+
+  private final ImageEditor editor;
+
+  private final HttpServer server;
+
+  private final ExecutorService ioThreads;
+
+  private final ForkJoinPool cpuPool;
+
+  /**
+   * The permits of the requests which run on the pool or wait for it.
+   */
+  private final Semaphore admissions;
+
+  private final CommandMetrics metrics;
+
+  /**
+   * The compiled plans of the most recently used scripts, by their text.
+   */
+  private final Map<String, ScriptPlan> plans;
+
+  /**
+   * Creates the server, which does not accept requests until it is started.
+   *
+   * @param port          The port to listen on, 0 for any free port.
+   * @param workerCount   The number of requests processed at the same time, usually the number of
+   *                      processors.
+   * @param queueCapacity The number of requests which can wait for a worker, 0 for none.
+   * @param editor        The editor of the images.
+   * @throws IOException if the port could not be bound.
+   * @throws IllegalArgumentException if the number of workers is not positive or the capacity is
+   *                                  negative.
+   */
+  public ImageServer(int port, int workerCount, int queueCapacity, ImageEditor editor)
+          throws IOException {
+    if (workerCount < 1 || queueCapacity < 0) {
+      throw new IllegalArgumentException("The server needs workers and a non negative queue");
+    }
+    if (editor == null) {
+      throw new IllegalArgumentException("null not allowed");
+    }
+    this.editor = editor;
+    this.ioThreads = newIoThreads();
+    this.cpuPool = new ForkJoinPool(workerCount);
+    this.admissions = new Semaphore(workerCount + queueCapacity);
+    this.metrics = new CommandMetrics();
+    this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ScriptPlan> eldest) {
+        return size() > MAX_PLANS;
+      }
+    };
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.server.setExecutor(ioThreads);
+    this.server.createContext("/process", this::handle);
+    this.server.createContext("/metrics", this::handleMetrics);
+  }
+
+  /**
+   * Warms up the image operations by running a script over a generated image a number of times,
+   * so that the first requests do not run before the just in time compiler has compiled them,
+   * then starts accepting the requests.
+   *
+   * @param warmUpRuns The number of times the warm up script is run.
+   */
+  public void start(int warmUpRuns) {
+    warmUp(warmUpRuns);
+    server.start();
+  }
+
+  /**
+   * Stops accepting requests, and waits for the requests being processed to be answered.
+   */
+  public void stop() {
+    server.stop(0);
+    cpuPool.shutdown();
+    ioThreads.shutdown();
+    try {
+      cpuPool.awaitTermination(1, TimeUnit.MINUTES);
+      ioThreads.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return The port.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Gets the statistics of the stages of the requests, the reading of the uploads, the wait for
+   * the pool, the computation and the writing of the responses.
+   *
+   * @return The statistics, one line per stage.
+   */
+  public String getMetrics() {
+    synchronized (metrics) {
+      return metrics.getSummary();
+    }
+  }
+
+  /**
+   * Runs a task on the pool, if there is room for it.
+   *
+   * @param task The task.
+   * @return The future result of the task.
+   * @throws RejectedExecutionException if every worker is busy and the queue is full.
+   */
+  <T> CompletableFuture<T> execute(Callable<T> task) {
+    if (!admissions.tryAcquire()) {
+      throw new RejectedExecutionException("Too many requests");
+    }
+    try {
+      return submit(task);
+    } catch (RejectedExecutionException e) {
+      admissions.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Runs a task on the pool with a permit already taken, which is released once the task is
+   * done.
+   *
+   * @param task The task.
+   * @return The future result of the task.
+   * @throws RejectedExecutionException if the pool was shut down, in which case the permit is
+   *                                    still held by the caller.
+   */
+  private <T> CompletableFuture<T> submit(Callable<T> task) {
+    long submitted = System.nanoTime();
+    return CompletableFuture.supplyAsync(() -> {
+      long started = System.nanoTime();
+      long cpuStart = metrics.getCpuTime();
+      try {
+        return task.call();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      } finally {
+        admissions.release();
+        record("queue wait", started - submitted, 0);
+        record("compute", System.nanoTime() - started, metrics.getCpuTime() - cpuStart);
+      }
+    }, cpuPool);
+  }
+
+  /**
+   * Reads a request on an I/O thread, runs it on the pool, or answers it with 429 if there is no
+   * room, and writes the response. The room is taken before the upload is read, and given back if
+   * the upload is refused.
+   */
+  private void handle(HttpExchange exchange) {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        sendText(exchange, 405, "Only POST is supported");
+        return;
+      }
+      Map<String, String> query = getQuery(exchange.getRequestURI().getRawQuery());
+      String format = query.getOrDefault("format", PNG);
+      String script = query.getOrDefault("script", "");
+      if (!FORMATS.contains(format)) {
+        sendText(exchange, 400, "The format should be ppm, png or jpg");
+        return;
+      }
+      ScriptPlan plan;
+      try {
+        plan = getPlan(script);
+      } catch (IllegalArgumentException e) {
+        sendText(exchange, 400, e.getMessage());
+        return;
+      }
+
+      if (!admissions.tryAcquire()) {
+        sendTooManyRequests(exchange);
+        return;
+      }
+      CompletableFuture<Response> future = null;
+      try {
+        long readStart = System.nanoTime();
+        byte[] upload = readUpload(exchange.getRequestBody());
+        record("read", System.nanoTime() - readStart, 0);
+        if (upload == null) {
+          sendText(exchange, 413, "The image should be at most " + MAX_UPLOAD_BYTES + " bytes");
+          return;
+        }
+        future = submit(() -> process(upload, format, plan));
+      } catch (RejectedExecutionException e) {
+        sendTooManyRequests(exchange);
+        return;
+      } finally {
+        if (future == null) {
+          admissions.release();
+        }
+      }
+      Response response = future.join();
+
+      long writeStart = System.nanoTime();
+      exchange.getResponseHeaders().set("Content-Type", response.contentType);
+      exchange.sendResponseHeaders(response.status, response.body.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(response.body);
+      }
+      record("write", System.nanoTime() - writeStart, 0);
+    } catch (IOException | RuntimeException e) {
+      try {
+        sendText(exchange, 500, String.valueOf(e.getMessage()));
+      } catch (IOException | RuntimeException ignored) {
+        // the response was already started, the client sees the connection closed.
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void sendTooManyRequests(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Retry-After", "1");
+    sendText(exchange, 429, "Too many requests");
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      sendText(exchange, 200, getMetrics());
+    }
+  }
+
+  /**
+   * Decodes an upload, runs its script and encodes the result, or gets the messages of the
+   * controller if the script failed.
+   *
+   * @param upload The bytes of the uploaded image.
+   * @param format The format of the result.
+   * @param plan   The compiled script.
+   * @return The response.
+   */
+  private Response process(byte[] upload, String format, ScriptPlan plan) throws IOException {
+    Image input;
+    try {
+      input = editor.load(new ByteArrayInputStream(upload));
+    } catch (IOException e) {
+      return new Response(400, e.getMessage());
+    }
+
+    StringBuilder log = new StringBuilder();
+    Image output = run(input, plan, log);
+    if (output == null) {
+      return new Response(400, log.toString());
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    editor.write(output, format, bytes);
+    return new Response(getContentType(format), bytes.toByteArray());
+  }
+
+  private void record(String stage, long wallTime, long cpuTime) {
+    synchronized (metrics) {
+      metrics.record(stage, wallTime, cpuTime, 0, 0, 0);
+    }
+  }
+
+  /**
+   * Creates the executor of the I/O threads, a virtual thread per task when the JVM has virtual
+   * threads, which is looked up by reflection as they are not in every supported JVM, and a cached
+   * pool of daemon threads otherwise.
+   *
+   * @return The executor.
+   */
+  private static ExecutorService newIoThreads() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "image-server-io");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Runs a compiled script with its own controller, on an image with the alias name input.
+   *
+   * @param input The image.
+   * @param plan  The compiled script.
+   * @param log   The messages of the controller are appended to it.
+   * @return The image with the alias name output, or null if a command failed or there is none.
+   */
+  Image run(Image input, ScriptPlan plan, StringBuilder log) throws IOException {
+    ImageController controller = new ImageController(new TextView(log), new StringReader(""),
+            editor);
+    List<Image> images = Arrays.asList(new Image[plan.getSlotCount()]);
+    if (plan.getSlot(INPUT) >= 0) {
+      images.set(plan.getSlot(INPUT), input);
+    }
+    controller.execute(plan, images);
+
+    for (String line : log.toString().split("\\R")) {
+      if (line.startsWith("Error")) {
+        return null;
+      }
+    }
+    Image output = plan.getSlot(OUTPUT) < 0 ? null : images.get(plan.getSlot(OUTPUT));
+    if (output == null) {
+      log.append("The script should create the image named ").append(OUTPUT)
+              .append(System.lineSeparator());
+    }
+    return output;
+  }
+
+  /**
+   * Gets the compiled plan of a script, which is compiled the first time it is seen only. The
+   * plan is optimized, so that only the images the output is made from are computed, and only
+   * once. The plans of the most recently used scripts are kept.
+   *
+   * @param script The script, one command per line.
+   * @return The plan.
+   * @throws IllegalArgumentException if the script has a command which is not valid or not
+   *                                  allowed.
+   */
+  ScriptPlan getPlan(String script) {
+    synchronized (plans) {
+      ScriptPlan plan = plans.get(script);
+      if (plan != null) {
+        return plan;
+      }
+    }
+    List<String> lines = new ArrayList<>();
+    for (String line : script.split("\\R")) {
+      lines.add(line.strip());
+    }
+    ScriptPlan plan = new ImageController(new TextView(new StringBuilder()),
+            new StringReader(""), editor).compile(lines);
+    String error = validatePlan(plan);
+    if (error != null) {
+      throw new IllegalArgumentException(error);
+    }
+    plan = PlanOptimizer.optimize(plan, List.of(OUTPUT));
+    synchronized (plans) {
+      plans.put(script, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Checks that the commands of a compiled script are valid and do not use the files of the
+   * server.
+   *
+   * @param plan The compiled script.
+   * @return The error, or null if the script is allowed.
+   */
+  static String validatePlan(ScriptPlan plan) {
+    for (ScriptPlan.Command command : plan.getCommands()) {
+      if (FILE_COMMANDS.contains(command.operation)) {
+        return "The command " + command.operation.getKeyword() + " is not allowed on the server";
+      } else if (command.operation == ScriptPlan.Operation.INVALID) {
+        return "Invalid command " + String.join(" ", command.words);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Runs the warm up script, which goes through the commonly used operations.
+   *
+   * @param runs The number of times the script is run.
+   */
+  private void warmUp(int runs) {
+    try {
+      Image image = editor.load(new ByteArrayInputStream(getWarmUpImage()));
+      String script = "brighten 10 input a\nblur a b\nsharpen b c\nsepia c d\n"
+              + "luma-component d e\nvalue-component e f\nhorizontal-flip f g\n"
+              + "color-correct g h\nlevels-adjust 10 128 240 h i\ncompress 50 i output";
+      ScriptPlan plan = getPlan(script);
+      for (int i = 0; i < runs; i++) {
+        Image output = run(image, plan, new StringBuilder());
+        editor.write(output, PNG, OutputStream.nullOutputStream());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("The warm up failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Gets a png file of random pixels, which also warms up the decoding of the uploads.
+   */
+  private static byte[] getWarmUpImage() throws IOException {
+    Random random = new Random(42);
+    BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        image.setRGB(j, i, random.nextInt(1 << 24));
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ImageIO.write(image, PNG, bytes);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Reads the uploaded image.
+   *
+   * @return The bytes, or null if there are more than the largest upload.
+   */
+  private static byte[] readUpload(InputStream body) throws IOException {
+    byte[] upload = body.readNBytes(MAX_UPLOAD_BYTES + 1);
+    return upload.length > MAX_UPLOAD_BYTES ? null : upload;
+  }
+
+  private static Map<String, String> getQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null) {
+      return query;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals > 0) {
+        query.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return query;
+  }
+
+  private static String getContentType(String format) {
+    switch (format) {
+      case PPM:
+        return "image/x-portable-pixmap";
+      case JPG:
+        return "image/jpeg";
+      default:
+        return "image/png";
+    }
+  }
+
+  private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream body = exchange.getResponseBody()) {
+      body.write(bytes);
+    }
+  }
+
+  /**
+   * The status, the content type and the body of a response.
+   */
+  private static class Response {
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+
+    private Response(String contentType, byte[] body) {
+      this.status = 200;
+      this.contentType = contentType;
+      this.body = body;
+    }
+
+    private Response(int status, String text) {
+      this.status = status;
+      this.contentType = "text/plain; charset=utf-8";
+      this.body = text.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+}
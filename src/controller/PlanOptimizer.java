@@ -0,0 +1,306 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.ScriptPlan.Command;
+import controller.ScriptPlan.Operation;
+
+/**
+ * Optimizes compiled scripts. The scripts generated by other tools often compute the same image
+ * more than once, or images which are never saved. A command which computes an image that an
+ * alias name still refers to is replaced by a copy of that image, and the commands whose images
+ * never reach a save, or an alias name which is kept, are removed. The rgb split is looked at as
+ * its three components, so that a component which was already computed is reused.
+ *
+ * <p>The images are numbered as they are computed, and two commands compute the same image when
+ * they have the same operation, the same numbers and the same numbered source images. A run
+ * command can change any alias name, so nothing computed before it is reused after it, and
+ * everything before it is kept.
+ */
+final class PlanOptimizer {
+
+  private final ScriptPlan plan;
+
+  /**
+   * The number of the image each slot refers to.
+   */
+  private final int[] values;
+
+  /**
+   * The numbers of the images computed so far, by their operation, numbers and source images.
+   */
+  private final Map<String, Integer> computed;
+
+  /**
+   * The commands which computed the images, by their numbers.
+   */
+  private final Map<Integer, Command> producers;
+
+  private final List<Entry> entries;
+
+  private int nextValue;
+
+  private PlanOptimizer(ScriptPlan plan) {
+    this.plan = plan;
+    this.values = new int[plan.getSlotCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i;
+    }
+    this.nextValue = values.length;
+    this.computed = new HashMap<>();
+    this.producers = new HashMap<>();
+    this.entries = new ArrayList<>();
+  }
+
+  /**
+   * Optimizes a plan. The report of the new plan has a line for every command which was removed
+   * or replaced, in the order of the commands.
+   *
+   * @param plan        The plan.
+   * @param keptAliases The alias names whose images are used after the plan, besides the saved
+   *                    ones.
+   * @return The optimized plan.
+   */
+  static ScriptPlan optimize(ScriptPlan plan, Collection<String> keptAliases) {
+    PlanOptimizer optimizer = new PlanOptimizer(plan);
+    optimizer.reuseImages();
+    optimizer.removeDeadCommands(keptAliases);
+    return optimizer.getPlan();
+  }
+
+  /**
+   * Walks the commands forwards, and replaces the ones which compute an image again by copies.
+   */
+  private void reuseImages() {
+    List<Command> commands = plan.getCommands();
+    for (int i = 0; i < commands.size(); i++) {
+      Command command = commands.get(i);
+      switch (command.operation) {
+        case RGB_SPLIT:
+          addSplit(command, i);
+          break;
+        case COPY:
+          values[command.targets[0]] = values[command.sources[0]];
+          entries.add(new Entry(command, i, null));
+          break;
+        case LOAD:
+          values[command.targets[0]] = nextValue++;
+          entries.add(new Entry(command, i, null));
+          break;
+        case RUN:
+          for (int slot = 0; slot < values.length; slot++) {
+            values[slot] = nextValue++;
+          }
+          computed.clear();
+          entries.add(new Entry(command, i, null));
+          break;
+        default:
+          if (command.targets.length == 1) {
+            entries.add(add(command, i));
+          } else {
+            entries.add(new Entry(command, i, null));
+          }
+          break;
+      }
+    }
+  }
+
+  /**
+   * Adds an rgb split, as its three components if one of them was already computed.
+   *
+   * @param command The rgb split.
+   * @param origin  The position of the command in the plan.
+   */
+  private void addSplit(Command command, int origin) {
+    Operation[] components = {Operation.RED_COMPONENT, Operation.GREEN_COMPONENT,
+        Operation.BLUE_COMPONENT};
+    String[] keys = new String[components.length];
+    boolean isComputed = false;
+    // the components run one after the other, so none of them may replace the source image.
+    boolean isSourceReplaced = false;
+    for (int i = 0; i < components.length; i++) {
+      keys[i] = getKey(components[i], command);
+      Integer value = computed.get(keys[i]);
+      isComputed |= value != null && findSlot(value) >= 0;
+      isSourceReplaced |= command.targets[i] == command.sources[0];
+    }
+
+    if (!isComputed || isSourceReplaced) {
+      for (int i = 0; i < components.length; i++) {
+        int value = nextValue++;
+        computed.put(keys[i], value);
+        producers.put(value, command);
+        values[command.targets[i]] = value;
+      }
+      entries.add(new Entry(command, origin, null));
+      return;
+    }
+    for (int i = 0; i < components.length; i++) {
+      entries.add(add(new Command(components[i], command.words, command.sources,
+              new int[]{command.targets[i]}), origin));
+    }
+  }
+
+  /**
+   * Adds a command which computes one image, or a copy of the image if it was already computed
+   * and an alias name still refers to it.
+   *
+   * @param command The command.
+   * @param origin  The position of the command in the plan.
+   * @return The entry of the command or of the copy.
+   */
+  private Entry add(Command command, int origin) {
+    String key = getKey(command.operation, command);
+    Integer value = computed.get(key);
+    int holder = value == null ? -1 : findSlot(value);
+    if (holder >= 0) {
+      values[command.targets[0]] = value;
+      return new Entry(new Command(Operation.COPY, command.words, new int[]{holder},
+              command.targets), origin, producers.get(value));
+    }
+    value = nextValue++;
+    computed.put(key, value);
+    producers.put(value, command);
+    values[command.targets[0]] = value;
+    return new Entry(command, origin, null);
+  }
+
+  /**
+   * Gets the key of the image a command computes, its operation, numbers and numbered source
+   * images.
+   *
+   * @param operation The operation, which is a component of an rgb split.
+   * @param command   The command.
+   * @return The key.
+   */
+  private String getKey(Operation operation, Command command) {
+    StringBuilder key = new StringBuilder(operation.name());
+    for (int source : command.sources) {
+      key.append(' ').append(values[source]);
+    }
+    return key.append(' ').append(Arrays.toString(command.values))
+            .append(' ').append(command.split)
+            .append(' ').append(Arrays.deepToString(command.matrix))
+            .append(' ').append(command.precision)
+            .append(' ').append(Arrays.toString(command.region))
+            .append(' ').append(command.mask < 0 ? -1 : values[command.mask])
+            .toString();
+  }
+
+  /**
+   * Finds a slot which refers to an image.
+   *
+   * @param value The number of the image.
+   * @return The slot, or -1 if no slot refers to the image anymore.
+   */
+  private int findSlot(int value) {
+    for (int slot = 0; slot < values.length; slot++) {
+      if (values[slot] == value) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Walks the commands backwards, keeping the images which are saved or kept, and the images they
+   * are computed from, and marks the commands which compute none of them as dead.
+   *
+   * @param keptAliases The alias names whose images are used after the plan.
+   */
+  private void removeDeadCommands(Collection<String> keptAliases) {
+    boolean[] isLive = new boolean[values.length];
+    for (String aliasName : keptAliases) {
+      if (plan.getSlot(aliasName) >= 0) {
+        isLive[plan.getSlot(aliasName)] = true;
+      }
+    }
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      Command command = entries.get(i).command;
+      if (command.operation == Operation.RUN) {
+        Arrays.fill(isLive, true);
+        continue;
+      } else if (command.targets.length == 0) {
+        for (int source : command.sources) {
+          isLive[source] = true;
+        }
+        continue;
+      }
+
+      boolean isNeeded = false;
+      for (int target : command.targets) {
+        isNeeded |= isLive[target];
+      }
+      if (!isNeeded) {
+        entries.get(i).isDead = true;
+        continue;
+      }
+      for (int target : command.targets) {
+        isLive[target] = false;
+      }
+      for (int source : command.sources) {
+        isLive[source] = true;
+      }
+      if (command.mask >= 0) {
+        isLive[command.mask] = true;
+      }
+    }
+  }
+
+  /**
+   * Gets the plan of the commands which are not dead, with the report of the changed commands.
+   *
+   * @return The plan.
+   */
+  private ScriptPlan getPlan() {
+    List<Command> commands = new ArrayList<>();
+    List<String> report = new ArrayList<>();
+    int i = 0;
+    for (int origin = 0; origin < plan.getCommands().size(); origin++) {
+      boolean isKept = false;
+      Command reused = null;
+      for (; i < entries.size() && entries.get(i).origin == origin; i++) {
+        Entry entry = entries.get(i);
+        if (!entry.isDead) {
+          commands.add(entry.command);
+          isKept = true;
+          reused = entry.reused == null ? reused : entry.reused;
+        }
+      }
+
+      String text = String.join(" ", plan.getCommands().get(origin).words);
+      if (!isKept) {
+        report.add("Removed " + text + ", its image is never saved");
+      } else if (reused != null) {
+        report.add("Reused " + String.join(" ", reused.words) + " for " + text);
+      }
+    }
+    return new ScriptPlan(commands, plan, report);
+  }
+
+  /**
+   * A command of the optimized plan, with the position of the command of the plan it comes from.
+   */
+  private static class Entry {
+    private final Command command;
+    private final int origin;
+
+    /**
+     * The command whose image is copied, or null if the command is not a copy.
+     */
+    private final Command reused;
+
+    private boolean isDead;
+
+    private Entry(Command command, int origin, Command reused) {
+      this.command = command;
+      this.origin = origin;
+      this.reused = reused;
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package controller;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.ImageCompressor;
+import util.Constants;
+
+import static util.Constants.REGION;
+
+/**
+ * A script compiled by the image controller. Every line was split, validated and its arguments
+ * parsed once, and the alias names were replaced by slots, the positions of the images in the list
+ * the plan is executed on. A plan does not change, so it can be executed any number of times, by
+ * any number of controllers at the same time, each with its own images.
+ */
+final class ScriptPlan {
+
+  private final List<Command> commands;
+
+  private final Map<String, Integer> slots;
+
+  private final List<String> report;
+
+  /**
+   * Creates a plan.
+   *
+   * @param commands The commands, in the order they are executed.
+   * @param slots    The slots of the alias names used by the commands.
+   */
+  ScriptPlan(List<Command> commands, Map<String, Integer> slots) {
+    this.commands = Collections.unmodifiableList(commands);
+    this.slots = Collections.unmodifiableMap(new HashMap<>(slots));
+    this.report = List.of();
+  }
+
+  /**
+   * Creates a plan which was optimized from another one, with the same slots.
+   *
+   * @param commands The commands, in the order they are executed.
+   * @param plan     The plan it was optimized from.
+   * @param report   The commands which were removed or replaced.
+   */
+  ScriptPlan(List<Command> commands, ScriptPlan plan, List<String> report) {
+    this.commands = Collections.unmodifiableList(commands);
+    this.slots = plan.slots;
+    this.report = Collections.unmodifiableList(report);
+  }
+
+  /**
+   * Gets the commands of the plan.
+   *
+   * @return The commands, in the order they are executed.
+   */
+  List<Command> getCommands() {
+    return commands;
+  }
+
+  /**
+   * Gets what was changed when the plan was optimized.
+   *
+   * @return A line for every command which was removed or replaced, empty if the plan was not
+   *         optimized.
+   */
+  List<String> getReport() {
+    return report;
+  }
+
+  /**
+   * Gets the slot of an alias name.
+   *
+   * @param aliasName The alias name.
+   * @return The slot, or -1 if no command uses the alias name.
+   */
+  int getSlot(String aliasName) {
+    return slots.getOrDefault(aliasName, -1);
+  }
+
+  /**
+   * Gets the number of images a list needs to execute the plan on it.
+   *
+   * @return The number of slots.
+   */
+  int getSlotCount() {
+    int count = 0;
+    for (int slot : slots.values()) {
+      count = Math.max(count, slot + 1);
+    }
+    return count;
+  }
+
+  /**
+   * The operations of the commands.
+   */
+  enum Operation {
+    LOAD(Constants.LOAD),
+    SAVE(Constants.SAVE),
+    RED_COMPONENT(Constants.RED_COMPONENT),
+    GREEN_COMPONENT(Constants.GREEN_COMPONENT),
+    BLUE_COMPONENT(Constants.BLUE_COMPONENT),
+    VALUE_COMPONENT(Constants.VALUE_COMPONENT),
+    INTENSITY_COMPONENT(Constants.INTENSITY_COMPONENT),
+    LUMA_COMPONENT(Constants.LUMA_COMPONENT),
+    HORIZONTAL_FLIP(Constants.HORIZONTAL_FLIP),
+    VERTICAL_FLIP(Constants.VERTICAL_FLIP),
+    BRIGHTEN(Constants.BRIGHTEN),
+    RGB_SPLIT(Constants.RGB_SPLIT),
+    RGB_COMBINE(Constants.RGB_COMBINE),
+    BLUR(Constants.BLUR),
+    SHARPEN(Constants.SHARPEN),
+    SEPIA(Constants.SEPIA),
+    COLOR_TRANSFORM(Constants.COLOR_TRANSFORM),
+    HISTOGRAM(Constants.HISTOGRAM),
+    COLOR_CORRECT(Constants.COLOR_CORRECT),
+    LEVELS_ADJUST(Constants.LEVELS_ADJUST),
+    COMPRESS(Constants.COMPRESS),
+    RUN(Constants.RUN),
+    STATS(Constants.STATS),
+    STREAM(Constants.STREAM),
+    QUIT("quit"),
+    // the copy of an image, which the optimizer puts in place of a command computing it again.
+    COPY("copy"),
+    INVALID("");
+
+    private static final Map<String, Operation> KEYWORDS = new HashMap<>();
+
+    static {
+      for (Operation operation : values()) {
+        KEYWORDS.put(operation.keyword, operation);
+      }
+    }
+
+    private final String keyword;
+
+    Operation(String keyword) {
+      this.keyword = keyword;
+    }
+
+    /**
+     * Gets the keyword of the operation in the scripts.
+     *
+     * @return The keyword.
+     */
+    String getKeyword() {
+      return keyword;
+    }
+
+    /**
+     * Gets the operation of a keyword.
+     *
+     * @param keyword The keyword.
+     * @return The operation, or INVALID if the keyword is not one.
+     */
+    static Operation of(String keyword) {
+      return KEYWORDS.getOrDefault(keyword, INVALID);
+    }
+  }
+
+  /**
+   * A command of a plan. The images it reads and writes are given by their slots, and its numbers
+   * are parsed. The commands which use files keep the words of their line, as their paths are only
+   * looked at when they run.
+   */
+  static final class Command {
+
+    final Operation operation;
+
+    final String[] words;
+
+    final int[] sources;
+
+    final int[] targets;
+
+    /**
+     * The numbers of the command, the value of a brighten, the radius of a blur, the levels of a
+     * levels adjust, the percentage of a compress, or the scale and the region of a load.
+     */
+    int[] values = new int[0];
+
+    /**
+     * The percentage of the image the operation is applied to, from the left.
+     */
+    int split = 100;
+
+    double[][] matrix;
+
+    ImageCompressor.Precision precision;
+
+    /**
+     * The x, y, width and height of the region the operation is applied to, or null for the whole
+     * image.
+     */
+    int[] region;
+
+    /**
+     * The slot of the mask of the region, or -1 for none.
+     */
+    int mask = -1;
+
+    /**
+     * Creates a command.
+     *
+     * @param operation The operation.
+     * @param words     The words of the line of the command.
+     * @param sources   The slots of the images the command reads.
+     * @param targets   The slots of the images the command writes.
+     */
+    Command(Operation operation, String[] words, int[] sources, int[] targets) {
+      this.operation = operation;
+      this.words = words;
+      this.sources = sources;
+      this.targets = targets;
+    }
+
+    /**
+     * Gets the name the command is recorded with in the statistics.
+     *
+     * @return The keyword, followed by region if the command runs on a region.
+     */
+    String getName() {
+      return region == null ? operation.getKeyword() : operation.getKeyword() + " " + REGION;
+    }
+  }
+}
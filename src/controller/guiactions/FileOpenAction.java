@@ -16,7 +16,7 @@ public class FileOpenAction implements GUIAction {
   public void apply(Features features) {
     final JFileChooser fChooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-            "JPG, PNG, PPM Images", "jpg", "png", "ppm");
+            "JPG, PNG, PPM, HAAR Images", "jpg", "png", "ppm", "haar");
 
     fChooser.setAcceptAllFileFilterUsed(false);
     fChooser.setFileFilter(filter);
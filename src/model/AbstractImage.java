@@ -0,0 +1,500 @@
+package model;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Abstract base class for the images. Implements all the transformations of the Image interface
+ * in terms of the pixel access methods, so that the pixel storage (a grid of pixels, or a view
+ * which remaps the indices of another image) is left to the extending classes. As images are
+ * immutable, the views share the pixels of their source images instead of copying them. A view
+ * is only materialized into a contiguous grid when an operation needs it, like the convolution.
+ * The channel components, the luma, the sepia and the brightness are color matrices, which are all
+ * applied by the color matrix view.
+ *
+ * <p>The other operations are deferred as well, so the transformations only build a graph of
+ * images over the loaded ones, and the pixels are computed when they are first read. The point
+ * operations are fused into a single function per pixel, the convolutions are computed once for
+ * the whole image, or only for the region read through a region view, and the results which are
+ * never read are never computed.
+ */
+abstract class AbstractImage implements Image {
+
+  static final double[][] BLUR_KERNEL = {{0.0625, 0.125, 0.0625},
+                                         {0.125, 0.25, 0.125},
+                                         {0.0625, 0.125, 0.0625}};
+
+  static final double[][] SHARPEN_KERNEL = {{-0.125, -0.125, -0.125, -0.125, -0.125},
+                                            {-0.125, 0.25, 0.25, 0.25, -0.125},
+                                            {-0.125, 0.25, 1, 0.25, -0.125},
+                                            {-0.125, 0.25, 0.25, 0.25, -0.125},
+                                            {-0.125, -0.125, -0.125, -0.125, -0.125}};
+
+  /**
+   * The pixels of this view once they are computed, as a grid on the heap, or stored off the heap
+   * when the editors store their images that way.
+   */
+  private volatile AbstractImage computed;
+
+  @Override
+  public Pixel getPixel(int i, int j) {
+    if (invalidIndices(i, j)) {
+      return new Pixel(0, 0, 0);
+    }
+    return getPixelUtil(i, j);
+  }
+
+  @Override
+  public Image redComponent() {
+    return colorTransform(ColorMatrixImage.RED);
+  }
+
+  @Override
+  public Image greenComponent() {
+    return colorTransform(ColorMatrixImage.GREEN);
+  }
+
+  @Override
+  public Image blueComponent() {
+    return colorTransform(ColorMatrixImage.BLUE);
+  }
+
+  @Override
+  public Image valueComponent() {
+    return map(Pixel::getPixelWithValueComp, RGBImage::getValueImageOfThis);
+  }
+
+  @Override
+  public Image intensityComponent() {
+    return map(Pixel::getPixelWithIntensityComp, RGBImage::getIntensityImageOfThis);
+  }
+
+  @Override
+  public Image lumaComponent() {
+    return colorTransform(ColorMatrixImage.LUMA);
+  }
+
+  @Override
+  public Image horizontalFlip() {
+    return new FlippedImage(this, true, false);
+  }
+
+  @Override
+  public Image verticalFlip() {
+    return new FlippedImage(this, false, true);
+  }
+
+  @Override
+  public Image brighten(int brightnessValue) {
+    return offset(brightnessValue, brightnessValue, brightnessValue);
+  }
+
+  @Override
+  public Image blur() {
+    return getConvolutedImage(BLUR_KERNEL);
+  }
+
+  @Override
+  public Image blur(int radius) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("The blur radius should not be negative");
+    }
+    if (radius == 0) {
+      return this;
+    }
+    return getBoxBlurredImage(radius);
+  }
+
+  @Override
+  public Image convolve(double[][] kernel) {
+    int size = kernel.length;
+    if (size % 2 == 0) {
+      throw new IllegalArgumentException("The kernel should be square with an odd size");
+    }
+    for (double[] kernelRow : kernel) {
+      if (kernelRow.length != size) {
+        throw new IllegalArgumentException("The kernel should be square with an odd size");
+      }
+      for (double value : kernelRow) {
+        if (!Double.isFinite(value)) {
+          throw new IllegalArgumentException("The kernel values should be finite");
+        }
+      }
+    }
+    return getConvolutedImage(kernel);
+  }
+
+  @Override
+  public Image sharpen() {
+    return getConvolutedImage(SHARPEN_KERNEL);
+  }
+
+  @Override
+  public Image toSepia() {
+    return colorTransform(ColorMatrixImage.SEPIA);
+  }
+
+  @Override
+  public Image colorTransform(double[][] matrix) {
+    return new ColorMatrixImage(this, ColorMatrixImage.toAffine(matrix));
+  }
+
+  @Override
+  public Image rgbCombine(Image redImage, Image greenImage, Image blueImage) {
+    RGBImage newImage = new RGBImage(getMax(redImage.getHeight(), greenImage.getHeight(),
+            blueImage.getHeight()), getMax(redImage.getWidth(), greenImage.getWidth(),
+            blueImage.getWidth()));
+
+    TileScheduler.forEachRows(newImage.getHeight(), newImage.getWidth(), (from, to) -> {
+      for (int i = from; i < to; i++) {
+        for (int j = 0; j < newImage.getWidth(); j++) {
+          Pixel p = new Pixel(redImage.getPixel(i, j).getRed(),
+                  greenImage.getPixel(i, j).getGreen(), blueImage.getPixel(i, j).getBlue());
+          newImage.setPixel(i, j, p);
+        }
+      }
+    });
+
+    return newImage;
+  }
+
+  @Override
+  public Image levelsAdjust(int b, int m, int w) {
+
+    double ao = (b * b * (m - w)) - (b * (m * m - w * w)) + (w * m * m) - (m * w * w);
+    double aa = (b * 127) + (128 * w) - (255 * m);
+    double ab = (b * b * (-127)) + (255 * m * m) - (128 * w * w);
+    double ac = (b * b * (255 * m - 128 * w)) - (b * (255 * m * m - 128 * w * w));
+
+    double p = aa / ao;
+    double q = ab / ao;
+    double r = ac / ao;
+
+    return getLevelsAdjustedImage(p, q, r);
+  }
+
+  @Override
+  public Image colorCorrect() {
+    int[] offsets = getColorCorrectOffsets();
+    return offset(offsets[0], offsets[1], offsets[2]);
+  }
+
+  @Override
+  public Image getSplitView(Image image, int split) {
+    int boundary = split * image.getWidth() / 100;
+    if (boundary == 0) {
+      return image;
+    }
+    if (boundary == image.getWidth() && getWidth() == image.getWidth()
+            && getHeight() == image.getHeight()) {
+      return this;
+    }
+    return new SplitImage(this, image, boundary);
+  }
+
+  @Override
+  public Image getRegion(int row, int col, int height, int width) {
+    validateRegion(row, col, height, width);
+    if (row == 0 && col == 0 && height == getHeight() && width == getWidth()) {
+      return this;
+    }
+    return new RegionImage(this, row, col, height, width);
+  }
+
+  @Override
+  public Image getOverlayView(Image overlay, int row, int col, Image mask) {
+    if (mask != null && (mask.getHeight() != getHeight() || mask.getWidth() != getWidth())) {
+      throw new IllegalArgumentException("The mask should be of the same size as the image");
+    }
+    return new OverlayImage(this, overlay, row, col, mask);
+  }
+
+  /**
+   * Helper method to retrieve the pixel at a position in the image. The position is always
+   * inside the image boundaries.
+   *
+   * @param i The position of the pixel along the row.
+   * @param j The position of the pixel along the column.
+   * @return The pixel object present at the position.
+   */
+  abstract Pixel getPixelUtil(int i, int j);
+
+  /**
+   * Calculates the offsets of the color correction. The histogram peaks of the red, green and
+   * blue values are found and each channel is offset to move its peak to the average of the peaks.
+   *
+   * @return The red, green and blue offsets respectively.
+   */
+  int[] getColorCorrectOffsets() {
+
+    int a = 0;
+    int b = 0;
+    int c = 0;
+
+    int redMax = 0;
+    int greenMax = 0;
+    int blueMax = 0;
+
+    int[] redValues = new int[256];
+    int[] greenValues = new int[256];
+    int[] blueValues = new int[256];
+
+    for (int x = 0; x < getHeight(); x++) {
+      for (int y = 0; y < getWidth(); y++) {
+        Pixel p = getPixelUtil(x, y);
+        redValues[p.getRed()]++;
+        greenValues[p.getGreen()]++;
+        blueValues[p.getBlue()]++;
+
+        if (isMeaningfulPeak(p.getRed()) && redValues[p.getRed()] > redMax) {
+          redMax = redValues[p.getRed()];
+          a = p.getRed();
+        }
+        if (isMeaningfulPeak(p.getGreen()) && greenValues[p.getGreen()] > greenMax) {
+          greenMax = greenValues[p.getGreen()];
+          b = p.getGreen();
+        }
+        if (isMeaningfulPeak(p.getBlue()) && blueValues[p.getBlue()] > blueMax) {
+          blueMax = blueValues[p.getBlue()];
+          c = p.getBlue();
+        }
+      }
+    }
+
+    int avg = (a + b + c) / 3;
+
+
+    return new int[]{avg - a, avg - b, avg - c};
+  }
+
+  /**
+   * Convolutes this image with the kernel, once its pixels are read.
+   *
+   * @param kernel The kernel which should be convoluted on the image.
+   * @return The new image object.
+   */
+  Image getConvolutedImage(double[][] kernel) {
+    return new ConvolvedImage(this, kernel, 0);
+  }
+
+  /**
+   * Blurs this image by three passes of a box blur, once its pixels are read.
+   *
+   * @param radius The radius of the box.
+   * @return The new image object.
+   */
+  Image getBoxBlurredImage(int radius) {
+    return new ConvolvedImage(this, null, radius);
+  }
+
+  /**
+   * Applies a function to every pixel of this image, once its pixels are read.
+   *
+   * @param function The function of a pixel.
+   * @param planar   The same function run by the planar kernels on a whole grid, or null if there
+   *                 is none.
+   * @return The new image object.
+   */
+  Image map(UnaryOperator<Pixel> function, Function<RGBImage, RGBImage> planar) {
+    return new PointImage(this, function, planar);
+  }
+
+  /**
+   * Gets this image as a contiguous grid of pixels. Views compute their pixels once and reuse them
+   * afterwards, the RGB image returns itself. The grid may be a copy which belongs to the caller,
+   * like that of an image stored off the heap, so a caller which only uses it for a while gives it
+   * back with {@link #releaseGrid}.
+   *
+   * @return The RGB image with the same pixels as this image.
+   */
+  RGBImage materialize() {
+    return compute().materialize();
+  }
+
+  /**
+   * Computes the pixels of this view once, and keeps them. The pixels of a deferred view are read
+   * by the tiles of the loops on several threads at once, so the first of them computes the pixels
+   * while the others wait for them, instead of each computing its own. While the lock is held only
+   * the images this one reads are computed, so the waits never form a cycle. The pixels are stored
+   * off the heap when the editors store their images that way, so that a computed view does not
+   * keep a grid on the heap.
+   *
+   * @return The image with the computed pixels of this view.
+   */
+  final AbstractImage compute() {
+    AbstractImage result = computed;
+    if (result == null) {
+      synchronized (this) {
+        result = computed;
+        if (result == null) {
+          RGBImage grid = copyPixels();
+          result = OffHeapImage.ENABLED ? OffHeapImage.moveOf(grid) : grid;
+          computed = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gives back a grid returned by {@link #materialize} once the caller is done with it. The grid
+   * is returned to the pixel pool if it was a copy, and kept if it is the grid of this image.
+   *
+   * @param grid The grid returned by the materialization of this image.
+   */
+  void releaseGrid(RGBImage grid) {
+    if (grid != this && grid != computed) {
+      grid.releasePixels();
+    }
+  }
+
+  /**
+   * Copies the pixels of this image into a new contiguous grid, for the materialization.
+   *
+   * @return The RGB image with the same pixels as this image.
+   */
+  RGBImage copyPixels() {
+    return copyRegion(0, 0, getHeight(), getWidth());
+  }
+
+  /**
+   * Copies the pixels of a region of this image into a new contiguous grid, which belongs to the
+   * caller. The deferred operations only compute the pixels of the region, and of the area around
+   * it they depend on.
+   *
+   * @param row    The first row of the region.
+   * @param col    The first column of the region.
+   * @param height The number of rows in the region.
+   * @param width  The number of columns in the region.
+   * @return The RGB image with the pixels of the region.
+   */
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    RGBImage result = new RGBImage(height, width);
+    TileScheduler.forEachRows(height, width, (from, to) -> {
+      for (int i = from; i < to; ++i) {
+        for (int j = 0; j < width; ++j) {
+          result.setPixel(i, j, getPixelUtil(row + i, col + j));
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Checks whether the pixels of this view were computed already, so that they can be read.
+   *
+   * @return True if the pixels of this view are kept, false otherwise.
+   */
+  final boolean isMaterialized() {
+    return computed != null;
+  }
+
+  /**
+   * Checks whether the pixels of this image are still to be computed by a deferred operation for
+   * the whole image at once, so that the regions of it should copy their pixels with
+   * {@link #copyRegion} instead of reading them one by one.
+   *
+   * @return True if the pixels of this image are not computed yet, false otherwise.
+   */
+  boolean isDeferred() {
+    return false;
+  }
+
+  /**
+   * Checks whether this image reads the pixels of another image, by being that image or a view of
+   * it, so that the arrays of the other image cannot be released while this image is used.
+   *
+   * @param image The other image.
+   * @return True if this image reads the pixels of the other image, false otherwise.
+   */
+  boolean uses(Image image) {
+    return this == image;
+  }
+
+  /**
+   * Checks whether an image reads the pixels of another image. The images which are not
+   * implemented by this package are assumed to read the pixels of any image.
+   *
+   * @param user  The image which may read the pixels.
+   * @param image The other image.
+   * @return True if the image may read the pixels of the other image, false otherwise.
+   */
+  static boolean uses(Image user, Image image) {
+    return !(user instanceof AbstractImage) || ((AbstractImage) user).uses(image);
+  }
+
+  /**
+   * Returns the arrays of this image to the pixel pool. Only the images holding the arrays of
+   * their pixels return them, the views only release the pixels they computed, as their other
+   * arrays belong to their sources. The image must not be used afterwards.
+   */
+  void releasePixels() {
+    AbstractImage result = computed;
+    if (result != null) {
+      computed = null;
+      result.releasePixels();
+    }
+  }
+
+  /**
+   * Checks whether the given region is inside the image boundaries.
+   *
+   * @param row    The first row of the region.
+   * @param col    The first column of the region.
+   * @param height The number of rows in the region.
+   * @param width  The number of columns in the region.
+   * @throws IllegalArgumentException if the region is not inside the image.
+   */
+  void validateRegion(int row, int col, int height, int width) {
+    if (row < 0 || col < 0 || height < 0 || width < 0 || row + height > getHeight()
+            || col + width > getWidth()) {
+      throw new IllegalArgumentException("The region is outside the image");
+    }
+  }
+
+  /**
+   * Helper method to determine whether a specific position is inside the image boundaries.
+   *
+   * @param i The position of the object row-wise.
+   * @param j The position of the object column-wise.
+   * @return Boolean result. True if the position is outside the image boundaries. False if no.
+   */
+  boolean invalidIndices(int i, int j) {
+    return i < 0 || i >= getHeight() || j < 0 || j >= getWidth();
+  }
+
+  /**
+   * Runs through the image and generates the new levels adjusted image.
+   *
+   * @param p The x square coefficient in the transformation.
+   * @param q The x coefficient in the transformation.
+   * @param r The constant factor in the transformation.
+   * @return new image with the levels adjusted accordingly.
+   */
+  private Image getLevelsAdjustedImage(double p, double q, double r) {
+    return map(pixel -> pixel.levelsAdjust(p, q, r), null);
+  }
+
+  /**
+   * Offsets the red, green and blue values of every pixel by the given values. The offsets are a
+   * color matrix, so they are collapsed with the color matrices around them.
+   *
+   * @param r red value to be added
+   * @param g green value to be added
+   * @param b blue value to be added
+   * @return The new image with the offset values.
+   */
+  Image offset(int r, int g, int b) {
+    return colorTransform(new double[][]{{1, 0, 0, r}, {0, 1, 0, g}, {0, 0, 1, b},
+        {0, 0, 0, 1}});
+  }
+
+  private boolean isMeaningfulPeak(int value) {
+
+    return value > 10 && value < 245;
+  }
+
+  private int getMax(int a, int b, int c) {
+    return Math.max(a, Math.max(b, c));
+  }
+}
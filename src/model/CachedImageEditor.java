@@ -0,0 +1,124 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An image editor which keeps the images it loaded, so that loading the same file again, from any
+ * thread, gives back the same image without reading the file. As the images are immutable they
+ * can be shared by any number of users. An image is loaded again when its file was modified since,
+ * and the least recently used images are dropped once the cached images have more pixels than
+ * the limit.
+ */
+public class CachedImageEditor extends ImageEditorImpl {
+
+  private final long maxPixels;
+
+  private final Map<String, Entry> entries;
+
+  /**
+   * The images this editor loaded, which are never released, by identity as the images do not
+   * override equals.
+   */
+  private final Map<Image, Boolean> loaded;
+
+  private long pixels;
+
+  private long hits;
+
+  private long misses;
+
+  /**
+   * Creates the editor with an empty cache.
+   *
+   * @param maxPixels The largest number of pixels of the cached images together.
+   * @throws IllegalArgumentException if the limit is negative.
+   */
+  public CachedImageEditor(long maxPixels) {
+    if (maxPixels < 0) {
+      throw new IllegalArgumentException("The cache size should not be negative");
+    }
+    this.maxPixels = maxPixels;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.loaded = new WeakHashMap<>();
+    this.pixels = 0;
+  }
+
+  @Override
+  public Image load(String srcPath) throws IOException {
+    File file = new File(srcPath).getAbsoluteFile();
+    String key = file.toPath().normalize().toString();
+    long lastModified = file.lastModified();
+    long length = file.length();
+
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+        hits++;
+        return entry.image;
+      }
+      misses++;
+    }
+
+    Image image = super.load(srcPath);
+    synchronized (this) {
+      loaded.put(image, true);
+      Entry previous = entries.put(key, new Entry(image, lastModified, length));
+      if (previous != null) {
+        pixels -= getPixels(previous.image);
+      }
+      pixels += getPixels(image);
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (pixels > maxPixels && iterator.hasNext()) {
+        pixels -= getPixels(iterator.next().image);
+        iterator.remove();
+      }
+    }
+    return image;
+  }
+
+  @Override
+  public void release(Image image, Collection<Image> keptImages) {
+    // the loaded images are shared with every other user of the cache, even once they are dropped.
+    synchronized (this) {
+      if (loaded.containsKey(image)) {
+        return;
+      }
+    }
+    super.release(image, keptImages);
+  }
+
+  /**
+   * Gets the statistics of the cache.
+   *
+   * @return The number of cached images and pixels, and the hits and misses of the loads.
+   */
+  public synchronized String getSummary() {
+    return "cached " + entries.size() + " images, " + pixels + " pixels, " + hits + " hits, "
+            + misses + " misses";
+  }
+
+  private static long getPixels(Image image) {
+    return (long) image.getHeight() * image.getWidth();
+  }
+
+  /**
+   * A cached image, with the modification time and the length of its file when it was loaded.
+   */
+  private static class Entry {
+    private final Image image;
+    private final long lastModified;
+    private final long length;
+
+    private Entry(Image image, long lastModified, long length) {
+      this.image = image;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+  }
+}
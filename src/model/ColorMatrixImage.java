@@ -0,0 +1,233 @@
+package model;
+
+/**
+ * A view of an image with a color matrix applied to every pixel. The new red, green and blue
+ * values of a pixel are the rows of the matrix multiplied with its red, green and blue values, plus
+ * the offset of the row, truncated and clamped between 0 and 255. The pixels are only computed
+ * when they are read, or when the view is materialized, which runs the planar kernels over the
+ * whole source image at once. A color transformation of this view is collapsed into a single
+ * matrix product over the same source only when the product computes exactly the same values: when
+ * this matrix only keeps some of the channels as they are, or when both matrices have whole
+ * coefficients and offsets and this one never takes a value out of the 0 to 255 range. Any other
+ * chain, like an inversion followed by sepia, is applied one matrix after the other, as the product
+ * would round the fractions differently.
+ */
+class ColorMatrixImage extends AbstractImage {
+
+  static final double[][] RED = {{1, 0, 0}, {0, 0, 0}, {0, 0, 0}};
+
+  static final double[][] GREEN = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
+
+  static final double[][] BLUE = {{0, 0, 0}, {0, 0, 0}, {0, 0, 1}};
+
+  static final double[][] SEPIA = {{0.393, 0.769, 0.189},
+                                   {0.349, 0.686, 0.168},
+                                   {0.272, 0.534, 0.131}};
+
+  static final double[][] LUMA = {{0.2126, 0.7152, 0.0722},
+                                  {0.2126, 0.7152, 0.0722},
+                                  {0.2126, 0.7152, 0.0722}};
+
+  private final AbstractImage source;
+
+  private final double[][] matrix;
+
+  /**
+   * Creates the view of the source image with the matrix applied.
+   *
+   * @param source The image the matrix is applied to.
+   * @param matrix The matrix of three rows, each with the red, green and blue coefficients and
+   *               the offset.
+   */
+  ColorMatrixImage(AbstractImage source, double[][] matrix) {
+    this.source = source;
+    this.matrix = matrix;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public Image colorTransform(double[][] matrix) {
+    double[][] affine = toAffine(matrix);
+    if (!isCollapsible(this.matrix, affine)) {
+      return super.colorTransform(matrix);
+    }
+    return new ColorMatrixImage(source, multiply(affine, this.matrix));
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    Pixel p = source.getPixelUtil(i, j);
+    return new Pixel(apply(matrix[0], p), apply(matrix[1], p), apply(matrix[2], p));
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || source.uses(image);
+  }
+
+  @Override
+  boolean isDeferred() {
+    return source.isDeferred();
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    if (!PointKernels.ENABLED) {
+      return super.copyRegion(row, col, height, width);
+    }
+    if (row == 0 && col == 0 && height == getHeight() && width == getWidth()) {
+      RGBImage grid = source.materialize();
+      RGBImage result = grid.getColorTransformedImageOfThis(matrix);
+      source.releaseGrid(grid);
+      return result;
+    }
+    RGBImage area = source.copyRegion(row, col, height, width);
+    RGBImage result = area.getColorTransformedImageOfThis(matrix);
+    area.releasePixels();
+    return result;
+  }
+
+  /**
+   * Converts a color matrix to the three rows with the offsets used by the view. A matrix of three
+   * rows and columns has no offsets. A matrix of four rows and columns works on the homogeneous
+   * color, so the last column has the offsets and the last row must be 0, 0, 0, 1.
+   *
+   * @param matrix The color matrix.
+   * @return The three rows of the matrix, each with the three coefficients and the offset.
+   * @throws IllegalArgumentException if the matrix is not of a valid size or has values which are
+   *                                  not finite.
+   */
+  static double[][] toAffine(double[][] matrix) {
+    int size = matrix.length;
+    if (size != 3 && size != 4) {
+      throw new IllegalArgumentException("The color matrix should be 3x3 or 4x4");
+    }
+    for (double[] row : matrix) {
+      if (row.length != size) {
+        throw new IllegalArgumentException("The color matrix should be 3x3 or 4x4");
+      }
+      for (double value : row) {
+        if (!Double.isFinite(value)) {
+          throw new IllegalArgumentException("The color matrix values should be finite");
+        }
+      }
+    }
+    if (size == 4 && (matrix[3][0] != 0 || matrix[3][1] != 0 || matrix[3][2] != 0
+            || matrix[3][3] != 1)) {
+      throw new IllegalArgumentException("The last row of a 4x4 color matrix should be 0 0 0 1");
+    }
+
+    double[][] affine = new double[3][4];
+    for (int i = 0; i < 3; i++) {
+      System.arraycopy(matrix[i], 0, affine[i], 0, size);
+    }
+    return affine;
+  }
+
+  /**
+   * Multiplies two matrices of three rows with offsets, so that the product applies the second
+   * matrix first and then the first matrix.
+   *
+   * @param first  The matrix applied last.
+   * @param second The matrix applied first.
+   * @return The product of the matrices.
+   */
+  static double[][] multiply(double[][] first, double[][] second) {
+    double[][] product = new double[3][4];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        double value = j == 3 ? first[i][3] : 0;
+        for (int k = 0; k < 3; k++) {
+          value += first[i][k] * second[k][j];
+        }
+        product[i][j] = value;
+      }
+    }
+    return product;
+  }
+
+  /**
+   * Checks whether two matrices applied one after the other can be collapsed into their product,
+   * which then gives exactly the same values. Either the first matrix only keeps some channels as
+   * they are and zeroes the others, so the product has the same terms as the second matrix, or
+   * both matrices only have small whole numbers and the first never needs its values clamped, so
+   * no value is ever truncated and the sums are exact in any order.
+   *
+   * @param first  The matrix of three rows with offsets applied first.
+   * @param second The matrix of three rows with offsets applied after it.
+   * @return True if the product gives the same values as the two matrices, false otherwise.
+   */
+  static boolean isCollapsible(double[][] first, double[][] second) {
+    if (isChannelSelection(first)) {
+      return true;
+    }
+    return isIntegral(first) && isIntegral(second) && isWithinRange(first);
+  }
+
+  private static boolean isChannelSelection(double[][] matrix) {
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        double value = matrix[i][j];
+        if (value != 0 && (i != j || value != 1)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isIntegral(double[][] matrix) {
+    for (double[] row : matrix) {
+      for (double value : row) {
+        // the bound keeps every product and sum of the values with pixels exact.
+        if (value != Math.rint(value) || Math.abs(value) > 1 << 20) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether the matrix keeps every color inside the range of pixel values, so that none of
+   * its values would ever be clamped.
+   *
+   * @param matrix The matrix of three rows with offsets.
+   * @return True if no value is ever clamped, false otherwise.
+   */
+  private static boolean isWithinRange(double[][] matrix) {
+    for (double[] row : matrix) {
+      double min = row[3];
+      double max = row[3];
+      for (int k = 0; k < 3; k++) {
+        min += Math.min(row[k], 0) * 255;
+        max += Math.max(row[k], 0) * 255;
+      }
+      if (min <= -1 || max >= 256) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies a row of the matrix to a pixel. The expression is the same as the one in the planar
+   * kernels, so that both give the same values.
+   *
+   * @param row The coefficients and the offset.
+   * @param p   The pixel.
+   * @return The truncated value, which is clamped by the new pixel.
+   */
+  private static int apply(double[] row, Pixel p) {
+    return (int) (row[0] * p.getRed() + row[1] * p.getGreen() + row[2] * p.getBlue() + row[3]);
+  }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Convolutes the rows of another source with a kernel, keeping only as many rows as the kernel
+ * has in a ring buffer. A row is written as soon as the rows the kernel covers around it have been
+ * read, and the row read next takes the place of the oldest one, which is no longer needed. Like
+ * the convolution of the images, the pixels outside the image are zero, the products are summed
+ * in the same order and the sum is truncated, so that the values are the same.
+ */
+class ConvolutionRowSource implements RowSource {
+
+  private final RowSource source;
+
+  private final double[][] kernel;
+
+  private final int factor;
+
+  /**
+   * The rows of the channels, the row at a position being kept at that position modulo the size
+   * of the kernel.
+   */
+  private final int[][][] rows;
+
+  private int next;
+
+  private int read;
+
+  /**
+   * Creates the source which convolutes the rows of another source.
+   *
+   * @param source The source of the rows.
+   * @param kernel The square kernel, with an odd size.
+   */
+  ConvolutionRowSource(RowSource source, double[][] kernel) {
+    this.source = source;
+    this.kernel = kernel;
+    this.factor = (kernel.length - 1) / 2;
+    this.rows = new int[3][kernel.length][source.getWidth()];
+    this.next = 0;
+    this.read = 0;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public void readRow(int[] red, int[] green, int[] blue) throws IOException {
+    int size = kernel.length;
+    while (read < Math.min(getHeight(), next + factor + 1)) {
+      source.readRow(rows[0][read % size], rows[1][read % size], rows[2][read % size]);
+      read++;
+    }
+
+    convolveRow(rows[0], red);
+    convolveRow(rows[1], green);
+    convolveRow(rows[2], blue);
+    next++;
+  }
+
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+
+  /**
+   * Convolutes the next row of a channel.
+   *
+   * @param channel The rows of the channel in the ring buffer.
+   * @param result  The array the convoluted row is written to.
+   */
+  private void convolveRow(int[][] channel, int[] result) {
+    int size = kernel.length;
+    int width = getWidth();
+    for (int y = 0; y < width; y++) {
+      double sum = 0.0;
+      for (int p = 0; p < size; p++) {
+        int i = next - factor + p;
+        if (i < 0 || i >= getHeight()) {
+          continue;
+        }
+        int[] row = channel[i % size];
+        for (int q = 0; q < size; q++) {
+          int j = y - factor + q;
+          if (j >= 0 && j < width) {
+            sum += row[j] * kernel[p][q];
+          }
+        }
+      }
+      result[y] = Math.min(Math.max((int) sum, 0), 255);
+    }
+  }
+}
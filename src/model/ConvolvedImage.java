@@ -0,0 +1,87 @@
+package model;
+
+/**
+ * An image convolved with a kernel, or blurred by three passes of a box blur, whose pixels are only
+ * computed when they are first read. As every pixel depends on its neighbours, reading a pixel
+ * computes the whole image at once, with the convolutions of the RGB image, and keeps it. A region
+ * of the image copied before that only computes the pixels of the region, from the area of the
+ * source around it which the kernel or the passes of the box reach, so that a crop of a blurred
+ * image never blurs the rest of it.
+ */
+class ConvolvedImage extends AbstractImage {
+
+  private final AbstractImage source;
+
+  /**
+   * The kernel of the convolution, or null for the box blur.
+   */
+  private final double[][] kernel;
+
+  private final int radius;
+
+  /**
+   * Creates the deferred convolution of the source image.
+   *
+   * @param source The image which is convolved.
+   * @param kernel The kernel of the convolution, or null to blur with a box.
+   * @param radius The radius of the box, which is not used with a kernel.
+   */
+  ConvolvedImage(AbstractImage source, double[][] kernel, int radius) {
+    this.source = source;
+    this.kernel = kernel;
+    this.radius = radius;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    return compute().getPixelUtil(i, j);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || source.uses(image);
+  }
+
+  @Override
+  boolean isDeferred() {
+    return !isMaterialized();
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    if (isMaterialized()) {
+      return super.copyRegion(row, col, height, width);
+    }
+
+    // the box spreads a value by its radius on each of the three passes.
+    int margin = kernel == null ? 3 * Math.min(radius, Math.max(getHeight(), getWidth()))
+            : kernel.length / 2;
+    int top = Math.max(0, row - margin);
+    int left = Math.max(0, col - margin);
+    int bottom = Math.min(getHeight(), row + height + margin);
+    int right = Math.min(getWidth(), col + width + margin);
+    boolean isWhole = top == 0 && left == 0 && bottom == getHeight() && right == getWidth();
+
+    RGBImage area = isWhole ? source.materialize()
+            : source.copyRegion(top, left, bottom - top, right - left);
+    RGBImage result = kernel == null
+            ? area.getBoxBlurredImageOfThis(radius, row - top, col - left, height, width)
+            : area.getConvolutedImageOfThis(kernel, row - top, col - left, height, width);
+    if (isWhole) {
+      source.releaseGrid(area);
+    } else {
+      area.releasePixels();
+    }
+    return result;
+  }
+}
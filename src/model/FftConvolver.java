@@ -0,0 +1,271 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Convolutes the planar channels of an image in the frequency domain, for the kernels large enough
+ * that this is cheaper than the direct convolution. The input is cut into square blocks which are
+ * zero padded to a power of two tile, transformed, multiplied with the transform of the kernel and
+ * transformed back, and the results of the neighbouring blocks overlap and are added together. As
+ * the channels are real, the red and green channels of a block share one complex transform, as the
+ * real and the imaginary parts, and the blue channel takes a second one. Only the transforms of a
+ * single tile and a strip of output rows as tall as a tile are kept in memory, whatever the size
+ * of the image.
+ *
+ * <p>The kernel is applied the same way as the direct convolution of the RGB image, without
+ * flipping it, and the pixels outside the image are black. The values are truncated like the
+ * direct convolution, after adding a small tolerance for the rounding errors of the transforms.
+ */
+final class FftConvolver {
+
+  /**
+   * The smallest size of the tiles.
+   */
+  private static final int MIN_TILE_SIZE = 64;
+
+  /**
+   * The cost of a butterfly of the transforms compared to a multiplication of the direct
+   * convolution, used to choose between them.
+   */
+  private static final double BUTTERFLY_COST = 2;
+
+  /**
+   * The tolerance added to the values before they are truncated.
+   */
+  private static final double TOLERANCE = 1e-7;
+
+  private FftConvolver() {
+  }
+
+  /**
+   * Checks whether the convolution with a kernel of the given size is cheaper in the frequency
+   * domain. The direct convolution multiplies every kernel value for every pixel and channel, and
+   * the frequency domain convolution takes four transforms of a tile for the three channels of
+   * every block.
+   *
+   * @param kernelSize The number of rows and columns of the kernel.
+   * @return True if the frequency domain convolution is cheaper, false otherwise.
+   */
+  static boolean isCheaper(int kernelSize) {
+    int tileSize = getTileSize(kernelSize);
+    int blockSize = tileSize - kernelSize + 1;
+    double butterflies = (double) tileSize * tileSize * 2 * log2(tileSize);
+    double cost = 4.0 / 3 * butterflies * BUTTERFLY_COST / ((double) blockSize * blockSize);
+    return cost < (double) kernelSize * kernelSize;
+  }
+
+  /**
+   * Convolutes a region of the channels with the kernel.
+   *
+   * @param channels     The red, green and blue values of the image in row major order.
+   * @param height       The height of the image.
+   * @param width        The width of the image.
+   * @param kernel       The square kernel, with an odd number of rows and columns.
+   * @param row          The first row of the region.
+   * @param col          The first column of the region.
+   * @param regionHeight The number of rows in the region.
+   * @param regionWidth  The number of columns in the region.
+   * @param results      The red, green and blue arrays of the size of the region, which the
+   *                     values clamped between 0 and 255 are written to.
+   */
+  static void convolve(int[][] channels, int height, int width, double[][] kernel, int row,
+                       int col, int regionHeight, int regionWidth, int[][] results) {
+    int kernelSize = kernel.length;
+    int factor = (kernelSize - 1) / 2;
+    int tileSize = getTileSize(kernelSize);
+    int blockSize = tileSize - kernelSize + 1;
+
+    int top = Math.max(0, row - factor);
+    int bottom = Math.min(height, row + regionHeight + factor);
+    int left = Math.max(0, col - factor);
+    int right = Math.min(width, col + regionWidth + factor);
+
+    Transform transform = new Transform(tileSize);
+    double[] kernelRe = new double[tileSize * tileSize];
+    double[] kernelIm = new double[tileSize * tileSize];
+    for (int p = 0; p < kernelSize; p++) {
+      for (int q = 0; q < kernelSize; q++) {
+        kernelRe[p * tileSize + q] = kernel[kernelSize - 1 - p][kernelSize - 1 - q];
+      }
+    }
+    transform.transform2d(kernelRe, kernelIm, false);
+
+    double[] re = new double[tileSize * tileSize];
+    double[] im = new double[tileSize * tileSize];
+    double[][] strips = new double[3][tileSize * regionWidth];
+
+    for (int a = top; a < bottom; a += blockSize) {
+      int blockHeight = Math.min(blockSize, bottom - a);
+      for (int b = left; b < right; b += blockSize) {
+        int blockWidth = Math.min(blockSize, right - b);
+
+        for (int pair = 0; pair < 2; pair++) {
+          int[] realChannel = channels[pair * 2];
+          int[] imaginaryChannel = pair == 0 ? channels[1] : null;
+
+          Arrays.fill(re, 0);
+          Arrays.fill(im, 0);
+          for (int s = 0; s < blockHeight; s++) {
+            for (int t = 0; t < blockWidth; t++) {
+              int index = (a + s) * width + b + t;
+              re[s * tileSize + t] = realChannel[index];
+              if (imaginaryChannel != null) {
+                im[s * tileSize + t] = imaginaryChannel[index];
+              }
+            }
+          }
+
+          transform.transform2d(re, im, false);
+          for (int k = 0; k < re.length; k++) {
+            double x = re[k] * kernelRe[k] - im[k] * kernelIm[k];
+            im[k] = re[k] * kernelIm[k] + im[k] * kernelRe[k];
+            re[k] = x;
+          }
+          transform.transform2d(re, im, true);
+
+          int firstColumn = Math.max(0, col - (b - factor));
+          int lastColumn = Math.min(tileSize, col + regionWidth - (b - factor));
+          for (int m = 0; m < tileSize; m++) {
+            for (int n = firstColumn; n < lastColumn; n++) {
+              int stripIndex = m * regionWidth + b - factor + n - col;
+              strips[pair * 2][stripIndex] += re[m * tileSize + n];
+              if (imaginaryChannel != null) {
+                strips[1][stripIndex] += im[m * tileSize + n];
+              }
+            }
+          }
+        }
+      }
+
+      // the rows above the next blocks get nothing more from them
+      boolean last = a + blockSize >= bottom;
+      int finishedRows = last ? tileSize : blockSize;
+      for (int m = 0; m < finishedRows; m++) {
+        int i = a - factor + m - row;
+        if (i >= 0 && i < regionHeight) {
+          for (int c = 0; c < 3; c++) {
+            for (int j = 0; j < regionWidth; j++) {
+              int value = (int) (strips[c][m * regionWidth + j] + TOLERANCE);
+              results[c][i * regionWidth + j] = Math.min(Math.max(value, 0), 255);
+            }
+          }
+        }
+      }
+      for (double[] strip : strips) {
+        System.arraycopy(strip, blockSize * regionWidth, strip, 0,
+                (tileSize - blockSize) * regionWidth);
+        Arrays.fill(strip, (tileSize - blockSize) * regionWidth, strip.length, 0);
+      }
+    }
+  }
+
+  /**
+   * Gets the size of the tiles for a kernel, the power of two which is at least four times the
+   * kernel size, so that most of a tile is the block of input values.
+   *
+   * @param kernelSize The number of rows and columns of the kernel.
+   * @return The number of rows and columns of the tiles.
+   */
+  private static int getTileSize(int kernelSize) {
+    int tileSize = MIN_TILE_SIZE;
+    while (tileSize < 4 * kernelSize) {
+      tileSize *= 2;
+    }
+    return tileSize;
+  }
+
+  private static int log2(int n) {
+    return 31 - Integer.numberOfLeadingZeros(n);
+  }
+
+  /**
+   * The radix 2 fast fourier transform of the square tiles of one size, with the twiddle factors
+   * and the bit reversed positions computed once.
+   */
+  private static class Transform {
+    private final int size;
+    private final int[] reversed;
+    private final double[] cos;
+    private final double[] sin;
+    private final double[] columnRe;
+    private final double[] columnIm;
+
+    private Transform(int size) {
+      this.size = size;
+      this.reversed = new int[size];
+      int bits = log2(size);
+      for (int k = 0; k < size; k++) {
+        reversed[k] = Integer.reverse(k) >>> (32 - bits);
+      }
+      this.cos = new double[size / 2];
+      this.sin = new double[size / 2];
+      for (int k = 0; k < size / 2; k++) {
+        cos[k] = Math.cos(2 * Math.PI * k / size);
+        sin[k] = Math.sin(2 * Math.PI * k / size);
+      }
+      this.columnRe = new double[size];
+      this.columnIm = new double[size];
+    }
+
+    /**
+     * Transforms a tile in place, along the rows and then along the columns. The inverse
+     * transform is scaled by the number of values.
+     */
+    private void transform2d(double[] re, double[] im, boolean inverse) {
+      for (int i = 0; i < size; i++) {
+        transform(re, im, i * size, inverse);
+      }
+      for (int j = 0; j < size; j++) {
+        for (int i = 0; i < size; i++) {
+          columnRe[i] = re[i * size + j];
+          columnIm[i] = im[i * size + j];
+        }
+        transform(columnRe, columnIm, 0, inverse);
+        for (int i = 0; i < size; i++) {
+          re[i * size + j] = columnRe[i];
+          im[i * size + j] = columnIm[i];
+        }
+      }
+      if (inverse) {
+        double scale = 1.0 / ((double) size * size);
+        for (int k = 0; k < re.length; k++) {
+          re[k] *= scale;
+          im[k] *= scale;
+        }
+      }
+    }
+
+    private void transform(double[] re, double[] im, int offset, boolean inverse) {
+      for (int k = 0; k < size; k++) {
+        int r = reversed[k];
+        if (r > k) {
+          double x = re[offset + k];
+          re[offset + k] = re[offset + r];
+          re[offset + r] = x;
+          x = im[offset + k];
+          im[offset + k] = im[offset + r];
+          im[offset + r] = x;
+        }
+      }
+      double sign = inverse ? 1 : -1;
+      for (int length = 2; length <= size; length *= 2) {
+        int half = length / 2;
+        int step = size / length;
+        for (int start = offset; start < offset + size; start += length) {
+          for (int k = 0; k < half; k++) {
+            double wr = cos[k * step];
+            double wi = sign * sin[k * step];
+            int p = start + k;
+            int q = p + half;
+            double xr = re[q] * wr - im[q] * wi;
+            double xi = re[q] * wi + im[q] * wr;
+            re[q] = re[p] - xr;
+            im[q] = im[p] - xi;
+            re[p] += xr;
+            im[p] += xi;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package model;
+
+/**
+ * A flipped view of another image. The pixels are not copied, instead the row and the column
+ * indices are remapped to the source image on every access. Flipping a flipped image again
+ * toggles the direction on the same source, so a pair of flips gives back the source itself.
+ */
+class FlippedImage extends AbstractImage {
+
+  private final AbstractImage source;
+
+  private final boolean horizontal;
+
+  private final boolean vertical;
+
+  /**
+   * Creates a flipped view of the given image.
+   *
+   * @param source     The image which is flipped.
+   * @param horizontal True if the columns are to be flipped.
+   * @param vertical   True if the rows are to be flipped.
+   */
+  FlippedImage(AbstractImage source, boolean horizontal, boolean vertical) {
+    this.source = source;
+    this.horizontal = horizontal;
+    this.vertical = vertical;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public Image horizontalFlip() {
+    return getFlip(!horizontal, vertical);
+  }
+
+  @Override
+  public Image verticalFlip() {
+    return getFlip(horizontal, !vertical);
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    int row = vertical ? getHeight() - 1 - i : i;
+    int col = horizontal ? getWidth() - 1 - j : j;
+    return source.getPixelUtil(row, col);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || source.uses(image);
+  }
+
+  @Override
+  boolean isDeferred() {
+    return source.isDeferred();
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    // the flipped region is copied from the mirrored region of the source.
+    int sourceRow = vertical ? getHeight() - row - height : row;
+    int sourceCol = horizontal ? getWidth() - col - width : col;
+    RGBImage area = source.copyRegion(sourceRow, sourceCol, height, width);
+    RGBImage result = new RGBImage(height, width);
+    TileScheduler.forEachRows(height, width, (from, to) -> {
+      for (int i = from; i < to; ++i) {
+        for (int j = 0; j < width; ++j) {
+          result.setPixel(i, j, area.getPixelUtil(vertical ? height - 1 - i : i,
+                  horizontal ? width - 1 - j : j));
+        }
+      }
+    });
+    area.releasePixels();
+    return result;
+  }
+
+  private Image getFlip(boolean horizontal, boolean vertical) {
+    if (!horizontal && !vertical) {
+      return source;
+    }
+    return new FlippedImage(source, horizontal, vertical);
+  }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 
 /**
  * This is the interface which will be connected to the GUI controller class. As this interface is
@@ -19,10 +20,23 @@ public interface GUIImageEditor extends ImageEditor {
   BufferedImage getBufferedImage(Image image);
 
   /**
-   * Copies the contents of the input image and generates a new image.
+   * Copies the input image. As the images are never modified once created, the copy can share
+   * the contents of the input instead of duplicating them.
    *
    * @param image The input Image.
    * @return The copied image.
    */
   Image getCopy(Image image);
+
+  /**
+   * Loads a preview of an image, which is much quicker to load than the full size image. The
+   * preview of a haar file only decodes the coarsest levels of the coefficients, and the preview
+   * of the other files is subsampled while it is decoded.
+   *
+   * @param srcPath The path of the image file.
+   * @param maxSize The largest height and width of the preview.
+   * @return The preview image, at the largest scale which fits in the size.
+   * @throws IOException if the file could not be read.
+   */
+  Image loadPreview(String srcPath, int maxSize) throws IOException;
 }
@@ -1,6 +1,9 @@
 package model;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static util.Constants.HAAR;
 
 /**
  * This is the editor class which will be connected to the GUI controller class. As this class is
@@ -17,6 +20,15 @@ public class GUIImageEditorImpl extends ImageEditorImpl implements GUIImageEdito
 
   @Override
   public Image getCopy(Image image) {
-    return RGBImage.getLoader().loadFromBufferedImage(getBufferedImageUtil(image));
+    // images are immutable, so the copy can share the pixels of the input.
+    return image;
+  }
+
+  @Override
+  public Image loadPreview(String srcPath, int maxSize) throws IOException {
+    if (srcPath.endsWith("." + HAAR)) {
+      return ImageCompressor.loadPreview(srcPath, maxSize);
+    }
+    return load(srcPath, RGBImage.getLoader().withMaxSize(maxSize));
   }
 }
@@ -0,0 +1,271 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Codes the haar coefficients of the compressed images, and reads and writes the haar files. The
+ * coefficients of the normalized transform are quantized to multiples of 1/64, which keeps the
+ * reconstructed values within a few hundredths of the exact ones, and the coefficients of the
+ * integer transform are kept as they are. They are then written channel by channel, from the
+ * coarsest to the finest level of the transform, as runs of zeros each followed by a non zero
+ * value, both as variable length integers. The detail levels of a compressed image are mostly
+ * zeros, so the runs are long, and the bytes are finally entropy coded with deflate.
+ *
+ * <p>A haar file starts with the HAAR magic bytes, the version, whether the transform is the
+ * integer one, the width and the height of the image, followed by the coded coefficients. The files
+ * of the first version, which only had the normalized transform, have no transform byte.
+ */
+final class HaarCodec {
+
+  private static final byte[] MAGIC = {'H', 'A', 'A', 'R'};
+
+  private static final int VERSION = 2;
+
+  private static final int QUANTIZATION_BITS = 6;
+
+  private HaarCodec() {
+  }
+
+  /**
+   * Gets the size of the square grid of coefficients for an image, the power of two which is at
+   * least its height and width.
+   *
+   * @param height The height of the image.
+   * @param width  The width of the image.
+   * @return The number of rows and columns of the grid.
+   */
+  static int getGridSize(int height, int width) {
+    int gridSize = 1;
+    while (gridSize < Math.max(height, width)) {
+      gridSize *= 2;
+    }
+    return gridSize;
+  }
+
+  /**
+   * Quantizes and codes the coefficients of the channels.
+   *
+   * @param grids     The square grids of coefficients of the red, green and blue channels.
+   * @param precision The precision of the transform the coefficients come from.
+   * @return The coded coefficients.
+   */
+  static byte[] encode(double[][][] grids, ImageCompressor.Precision precision) {
+    int quantizationBits = getQuantizationBits(precision);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (OutputStream out = new DeflaterOutputStream(bytes, deflater, 1 << 16)) {
+      BufferedOutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+      for (double[][] grid : grids) {
+        int[] order = getOrder(grid.length);
+        long run = 0;
+        for (int position : order) {
+          long value = Math.round(Math.scalb(grid[position / grid.length][position % grid.length],
+                  quantizationBits));
+          if (value == 0) {
+            run++;
+          } else {
+            writeVarLong(buffered, run);
+            writeVarLong(buffered, (value << 1) ^ (value >> 63));
+            run = 0;
+          }
+        }
+        writeVarLong(buffered, run);
+      }
+      buffered.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes the coefficients of the channels.
+   *
+   * @param coefficients The coded coefficients.
+   * @param gridSize     The number of rows and columns of the grids.
+   * @param precision    The precision of the transform the coefficients come from.
+   * @return The square grids of coefficients of the red, green and blue channels.
+   * @throws IOException if the coefficients are not validly coded.
+   */
+  static double[][][] decode(byte[] coefficients, int gridSize,
+                             ImageCompressor.Precision precision) throws IOException {
+    return decode(coefficients, gridSize, gridSize, precision);
+  }
+
+  /**
+   * Decodes the coefficients of the coarsest levels of the channels, the square of the given size
+   * at the top left of the grids. As they are coded first, the coefficients of the finer levels
+   * are only skipped over.
+   *
+   * @param coefficients The coded coefficients.
+   * @param gridSize     The number of rows and columns of the grids.
+   * @param bandSize     The number of rows and columns of the square to decode, a power of two
+   *                     which is at most the grid size.
+   * @param precision    The precision of the transform the coefficients come from.
+   * @return The square grids of the decoded coefficients of the red, green and blue channels.
+   * @throws IOException if the coefficients are not validly coded.
+   */
+  static double[][][] decode(byte[] coefficients, int gridSize, int bandSize,
+                             ImageCompressor.Precision precision) throws IOException {
+    int quantizationBits = getQuantizationBits(precision);
+    double[][][] grids = {PixelPool.takeGrid(bandSize), PixelPool.takeGrid(bandSize),
+        PixelPool.takeGrid(bandSize)};
+    int[] order = getOrder(bandSize);
+    int total = gridSize * gridSize;
+    try (InputStream in = new BufferedInputStream(
+            new InflaterInputStream(new ByteArrayInputStream(coefficients)), 1 << 16)) {
+      for (double[][] grid : grids) {
+        int position = 0;
+        while (true) {
+          long run = readVarLong(in);
+          if (run > total - position) {
+            throw new IOException("Invalid haar coefficients");
+          }
+          position += (int) run;
+          if (position == total) {
+            break;
+          }
+          long zigzag = readVarLong(in);
+          if (position < order.length) {
+            long value = (zigzag >>> 1) ^ -(zigzag & 1);
+            grid[order[position] / bandSize][order[position] % bandSize] =
+                    Math.scalb((double) value, -quantizationBits);
+          }
+          position++;
+        }
+      }
+    }
+    return grids;
+  }
+
+  /**
+   * Writes a compressed image to a haar file.
+   *
+   * @param image The compressed image.
+   * @param path  The path of the file.
+   * @throws IOException if the file could not be written.
+   */
+  static void write(HaarImage image, String path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path)))) {
+      out.write(MAGIC);
+      out.writeByte(VERSION);
+      out.writeBoolean(image.getPrecision() == ImageCompressor.Precision.INTEGER);
+      out.writeInt(image.getWidth());
+      out.writeInt(image.getHeight());
+      out.write(image.getCoefficients());
+    }
+  }
+
+  /**
+   * Reads the size of the image and the coded coefficients from a haar file.
+   *
+   * @param path The path of the file.
+   * @return The width and the height of the image, the precision of the transform and the coded
+   *         coefficients.
+   * @throws IOException if the file could not be read or is not a haar file.
+   */
+  static HaarFile read(String path) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(path)))) {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      int version = in.readUnsignedByte();
+      if (!Arrays.equals(magic, MAGIC) || version < 1 || version > VERSION) {
+        throw new IOException("Invalid haar file: " + path);
+      }
+      ImageCompressor.Precision precision = version > 1 && in.readBoolean()
+              ? ImageCompressor.Precision.INTEGER : ImageCompressor.Precision.DOUBLE;
+      int width = in.readInt();
+      int height = in.readInt();
+      if (width <= 0 || height <= 0) {
+        throw new IOException("Invalid haar file: " + path);
+      }
+      return new HaarFile(width, height, precision, in.readAllBytes());
+    }
+  }
+
+  /**
+   * Gets the order the coefficients of a grid are coded in. The first coefficient is the average,
+   * followed by the levels of details from the coarsest to the finest, where the level of size s
+   * is the square of size 2s at the top left of the grid without the square of size s. The order
+   * of a smaller grid is the same as the beginning of the order of a larger one.
+   *
+   * @param gridSize The number of rows and columns of the grid.
+   * @return The positions of the coefficients, as row times grid size plus column.
+   */
+  static int[] getOrder(int gridSize) {
+    int[] order = new int[gridSize * gridSize];
+    int k = 1;
+    for (int size = 1; size < gridSize; size *= 2) {
+      for (int i = 0; i < 2 * size; i++) {
+        for (int j = i < size ? size : 0; j < 2 * size; j++) {
+          order[k++] = i * gridSize + j;
+        }
+      }
+    }
+    return order;
+  }
+
+  private static int getQuantizationBits(ImageCompressor.Precision precision) {
+    return precision == ImageCompressor.Precision.INTEGER ? 0 : QUANTIZATION_BITS;
+  }
+
+  private static void writeVarLong(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("Invalid haar coefficients");
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Invalid haar coefficients");
+  }
+
+  /**
+   * The contents of a haar file.
+   */
+  static class HaarFile {
+    final int width;
+    final int height;
+    final ImageCompressor.Precision precision;
+    final byte[] coefficients;
+
+    private HaarFile(int width, int height, ImageCompressor.Precision precision,
+                     byte[] coefficients) {
+      this.width = width;
+      this.height = height;
+      this.precision = precision;
+      this.coefficients = coefficients;
+    }
+  }
+}
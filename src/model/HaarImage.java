@@ -0,0 +1,86 @@
+package model;
+
+/**
+ * An image compressed with the haar wavelet transform, which keeps the coded coefficients of the
+ * compression along with the pixels reconstructed from them. Saving the image in the haar format
+ * writes the coefficients as they are, instead of transforming the pixels again.
+ */
+class HaarImage extends AbstractImage {
+
+  private final RGBImage pixels;
+
+  private final byte[] coefficients;
+
+  private final ImageCompressor.Precision precision;
+
+  /**
+   * Creates the compressed image.
+   *
+   * @param pixels       The pixels reconstructed from the coefficients.
+   * @param coefficients The coefficients coded by the haar codec.
+   * @param precision    The precision of the transform the coefficients come from.
+   */
+  HaarImage(RGBImage pixels, byte[] coefficients, ImageCompressor.Precision precision) {
+    this.pixels = pixels;
+    this.coefficients = coefficients;
+    this.precision = precision;
+  }
+
+  @Override
+  public int getHeight() {
+    return pixels.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return pixels.getWidth();
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    return pixels.getPixelUtil(i, j);
+  }
+
+  @Override
+  RGBImage materialize() {
+    return pixels;
+  }
+
+  @Override
+  void releaseGrid(RGBImage grid) {
+    // the grid is always the one of this image.
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    return pixels.copyRegion(row, col, height, width);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || pixels.uses(image);
+  }
+
+  @Override
+  void releasePixels() {
+    pixels.releasePixels();
+  }
+
+  /**
+   * Gets the coefficients of the compression, as coded by the haar codec.
+   *
+   * @return The coded coefficients.
+   */
+  byte[] getCoefficients() {
+    return coefficients;
+  }
+
+  /**
+   * Gets the precision of the transform the coefficients come from.
+   *
+   * @return The precision of the transform.
+   */
+  ImageCompressor.Precision getPrecision() {
+    return precision;
+  }
+}
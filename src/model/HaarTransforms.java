@@ -0,0 +1,174 @@
+package model;
+
+/**
+ * The float and integer versions of the two dimensional haar transform of the image compressor,
+ * over square grids stored in a single array in row major order. Both transform the rows and then
+ * the columns of the top left square of each level, like the double precision transform, and the
+ * inverse transforms go over the levels in the opposite order.
+ *
+ * <p>The float transform is normalized by the square root of two like the double one, with half
+ * the memory to go over. The integer transform is the lifting scheme known as the S transform,
+ * which keeps the rounded down average and the difference of each pair of values. It only uses
+ * integer arithmetic, and its inverse gives back exactly the values it was given.
+ *
+ * <p>The columns are transformed a pair of rows at a time, so that the values are read in the order
+ * they are stored, and the differences go through a buffer of half a grid.
+ */
+final class HaarTransforms {
+
+  private static final float SQRT_2 = (float) Math.sqrt(2);
+
+  private HaarTransforms() {
+  }
+
+  /**
+   * Transforms a grid of float values in place.
+   *
+   * @param grid   The values in row major order.
+   * @param length The number of rows and columns of the grid, a power of two.
+   */
+  static void forward(float[] grid, int length) {
+    float[] differences = new float[length / 2 * length];
+    for (int m = length; m > 1; m /= 2) {
+      int half = m / 2;
+      for (int i = 0; i < m; i++) {
+        int row = i * length;
+        for (int q = 0; q < half; q++) {
+          float a = grid[row + 2 * q];
+          float b = grid[row + 2 * q + 1];
+          differences[q] = (a - b) / SQRT_2;
+          grid[row + q] = (a + b) / SQRT_2;
+        }
+        System.arraycopy(differences, 0, grid, row + half, half);
+      }
+      for (int q = 0; q < half; q++) {
+        int first = 2 * q * length;
+        int second = first + length;
+        int average = q * length;
+        for (int j = 0; j < m; j++) {
+          float a = grid[first + j];
+          float b = grid[second + j];
+          differences[average + j] = (a - b) / SQRT_2;
+          grid[average + j] = (a + b) / SQRT_2;
+        }
+      }
+      for (int q = 0; q < half; q++) {
+        System.arraycopy(differences, q * length, grid, (half + q) * length, m);
+      }
+    }
+  }
+
+  /**
+   * Inverse transforms a grid of float values in place.
+   *
+   * @param grid   The values in row major order.
+   * @param length The number of rows and columns of the grid, a power of two.
+   */
+  static void inverse(float[] grid, int length) {
+    float[] differences = new float[length / 2 * length];
+    for (int c = 2; c <= length; c *= 2) {
+      int half = c / 2;
+      for (int q = 0; q < half; q++) {
+        System.arraycopy(grid, (half + q) * length, differences, q * length, c);
+      }
+      // the pairs are written below their averages, so the last pair is written first
+      for (int q = half - 1; q >= 0; q--) {
+        int first = 2 * q * length;
+        int second = first + length;
+        int average = q * length;
+        for (int j = 0; j < c; j++) {
+          float a = grid[average + j];
+          float b = differences[average + j];
+          grid[first + j] = (a + b) / SQRT_2;
+          grid[second + j] = (a - b) / SQRT_2;
+        }
+      }
+      for (int i = 0; i < c; i++) {
+        int row = i * length;
+        System.arraycopy(grid, row + half, differences, 0, half);
+        for (int q = half - 1; q >= 0; q--) {
+          float a = grid[row + q];
+          float b = differences[q];
+          grid[row + 2 * q] = (a + b) / SQRT_2;
+          grid[row + 2 * q + 1] = (a - b) / SQRT_2;
+        }
+      }
+    }
+  }
+
+  /**
+   * Transforms a grid of integer values in place with the S transform.
+   *
+   * @param grid   The values in row major order.
+   * @param length The number of rows and columns of the grid, a power of two.
+   */
+  static void forward(int[] grid, int length) {
+    int[] differences = new int[length / 2 * length];
+    for (int m = length; m > 1; m /= 2) {
+      int half = m / 2;
+      for (int i = 0; i < m; i++) {
+        int row = i * length;
+        for (int q = 0; q < half; q++) {
+          int a = grid[row + 2 * q];
+          int b = grid[row + 2 * q + 1];
+          differences[q] = a - b;
+          grid[row + q] = (a + b) >> 1;
+        }
+        System.arraycopy(differences, 0, grid, row + half, half);
+      }
+      for (int q = 0; q < half; q++) {
+        int first = 2 * q * length;
+        int second = first + length;
+        int average = q * length;
+        for (int j = 0; j < m; j++) {
+          int a = grid[first + j];
+          int b = grid[second + j];
+          differences[average + j] = a - b;
+          grid[average + j] = (a + b) >> 1;
+        }
+      }
+      for (int q = 0; q < half; q++) {
+        System.arraycopy(differences, q * length, grid, (half + q) * length, m);
+      }
+    }
+  }
+
+  /**
+   * Inverse transforms a grid of integer values in place with the S transform. The first value of
+   * a pair is the average plus the rounded up half of the difference, which makes up for the
+   * rounding down of the average.
+   *
+   * @param grid   The values in row major order.
+   * @param length The number of rows and columns of the grid, a power of two.
+   */
+  static void inverse(int[] grid, int length) {
+    int[] differences = new int[length / 2 * length];
+    for (int c = 2; c <= length; c *= 2) {
+      int half = c / 2;
+      for (int q = 0; q < half; q++) {
+        System.arraycopy(grid, (half + q) * length, differences, q * length, c);
+      }
+      for (int q = half - 1; q >= 0; q--) {
+        int first = 2 * q * length;
+        int second = first + length;
+        int average = q * length;
+        for (int j = 0; j < c; j++) {
+          int d = differences[average + j];
+          int a = grid[average + j] + ((d + 1) >> 1);
+          grid[first + j] = a;
+          grid[second + j] = a - d;
+        }
+      }
+      for (int i = 0; i < c; i++) {
+        int row = i * length;
+        System.arraycopy(grid, row + half, differences, 0, half);
+        for (int q = half - 1; q >= 0; q--) {
+          int d = differences[q];
+          int a = grid[row + q] + ((d + 1) >> 1);
+          grid[row + 2 * q] = a;
+          grid[row + 2 * q + 1] = a - d;
+        }
+      }
+    }
+  }
+}
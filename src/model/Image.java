@@ -112,6 +112,33 @@ public interface Image {
    */
   Image blur();
 
+  /**
+   * Method which blurs the image with a blur of the given radius, which approximates a gaussian
+   * blur by three passes of a box blur. Each box averages the pixels at most the radius away from
+   * a pixel along a row, and then along a column, leaving out the positions outside the image. The
+   * cost per pixel does not depend on the radius.
+   *
+   * @param radius The radius of the box, the standard deviation of the blur is about the square
+   *               root of radius times radius + 1.
+   * @return The new image which would be blurred.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  Image blur(int radius);
+
+  /**
+   * Method which convolutes the image with a kernel. Each new value is the sum of the kernel values
+   * multiplied with the values of the pixels around it, where the pixels outside the image are
+   * black, truncated and clamped between 0 and 255. The large kernels are convoluted in the
+   * frequency domain, which may differ from the direct sum only for the values less than a
+   * millionth below an integer.
+   *
+   * @param kernel The square kernel with an odd number of rows and columns.
+   * @return The new convoluted image.
+   * @throws IllegalArgumentException if the kernel is not square with an odd size, or has values
+   *                                  which are not finite.
+   */
+  Image convolve(double[][] kernel);
+
   /**
    * Method which sharpens the image. This results in a new image which is sharper with respect to
    * the original image.
@@ -128,6 +155,21 @@ public interface Image {
    */
   Image toSepia();
 
+  /**
+   * Method which applies a color matrix to every pixel of the image. The new red, green and blue
+   * values of a pixel are the rows of the matrix multiplied with its red, green and blue values.
+   * A 4x4 matrix works on the homogeneous color, so its last column is added to the values and its
+   * last row must be 0, 0, 0, 1. The values are truncated and clamped between 0 and 255. Color
+   * matrices applied one after the other may be collapsed into their product, which truncates the
+   * values only once.
+   *
+   * @param matrix The 3x3 or 4x4 color matrix.
+   * @return The new image with the color matrix applied.
+   * @throws IllegalArgumentException if the matrix is not 3x3 or 4x4, or has values which are not
+   *                                  finite.
+   */
+  Image colorTransform(double[][] matrix);
+
   /**
    * Combine the three greyscale images into a single image that gets its red, green and blue
    * components from the three images respectively.
@@ -161,11 +203,43 @@ public interface Image {
   /**
    * Provides a vertical spliterator type functionality, the int split is a value between 0 and 100
    * where 0 means image argument passed, or 100 means this image. We can adjust that value to get
-   * a split view of this image and the image passed as argument.
+   * a split view of this image and the image passed as argument. The split view has the size of
+   * the image passed as argument, this image only needs to cover the split percentage of it. The
+   * pixels are not copied, and for 0 or 100 the respective image is returned as is.
    *
    * @param image image to be added to the right using split percentage
    * @param split percentage of split space to be provided
    * @return new Image with split of two images
    */
   Image getSplitView(Image image, int split);
+
+  /**
+   * Gets a rectangular region of this image as a view, the pixels are not copied. Operations on
+   * the region still use this image as their context, a convolution reads the neighbouring pixels
+   * outside the region and a color correction uses the histogram of this whole image. So an
+   * operation on the region gives the same pixels as the operation on this image in the region.
+   *
+   * @param row    The first row of the region.
+   * @param col    The first column of the region.
+   * @param height The number of rows in the region.
+   * @param width  The number of columns in the region.
+   * @return The region of this image.
+   * @throws IllegalArgumentException if the region is not inside this image.
+   */
+  Image getRegion(int row, int col, int height, int width);
+
+  /**
+   * Provides a view of this image with the overlay image placed over it, usually the result of an
+   * operation on a region of this image. The pixels outside the overlay are shared with this
+   * image. If a mask is given, only the pixels where the mask is not black are taken from the
+   * overlay.
+   *
+   * @param overlay The image to be placed over this image.
+   * @param row     The row where the first row of the overlay is placed.
+   * @param col     The column where the first column of the overlay is placed.
+   * @param mask    The mask of the same size as this image, or null to use the whole overlay.
+   * @return The view of this image with the overlay.
+   * @throws IllegalArgumentException if the mask is not of the same size as this image.
+   */
+  Image getOverlayView(Image overlay, int row, int col, Image mask);
 }
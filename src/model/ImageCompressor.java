@@ -1,6 +1,7 @@
 package model;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -10,19 +11,60 @@ import java.util.TreeSet;
  * A class to compress the image provided by using the haar wavelet transform methods. We first
  * generate double arrays of rgb pixel value arrays using haar transform then compress the image
  * using the percent provided, remove data, then convert the image back using inverse haar
- * transform resulting in a lossy compression. Generates a new image after compression.
+ * transform resulting in a lossy compression. Generates a new image after compression, which keeps
+ * the remaining coefficients so that it can be saved in the haar format and loaded back by only
+ * running the inverse transform. The transform can be computed in double or float precision, or
+ * with integers only.
  */
 public class ImageCompressor {
 
+  /**
+   * The precisions the haar transform can be computed in.
+   */
+  public enum Precision {
+    /**
+     * The transform normalized by the square root of two, in double precision.
+     */
+    DOUBLE,
+    /**
+     * The normalized transform in float precision, which goes over half the memory.
+     */
+    FLOAT,
+    /**
+     * The integer S transform, which keeps the rounded down averages and the differences. It only
+     * uses integer arithmetic, and gives back the exact image when nothing is compressed. The
+     * coefficients are compared by the values they would have in the normalized transform when
+     * they are removed.
+     */
+    INTEGER
+  }
+
+  private static final double SQRT_2 = Math.sqrt(2);
+
   private final Image image;
 
+  private final Precision precision;
+
   /**
-   * Create a new ImageCompressor instance using the image object passed.
+   * Create a new ImageCompressor instance using the image object passed, which computes the
+   * transform in double precision.
    *
    * @param image Image object to be compressed
    */
   public ImageCompressor(Image image) {
+    this(image, Precision.DOUBLE);
+  }
+
+  /**
+   * Create a new ImageCompressor instance using the image object passed, which computes the
+   * transform in the given precision.
+   *
+   * @param image     Image object to be compressed
+   * @param precision The precision of the transform.
+   */
+  public ImageCompressor(Image image, Precision precision) {
     this.image = image;
+    this.precision = precision;
   }
 
   /**
@@ -33,58 +75,201 @@ public class ImageCompressor {
    */
   public Image compress(int percent) {
 
-    int maxSide = Math.max(image.getHeight(), image.getWidth());
-    int powerRequired = ((int) Math.ceil(Math.log(maxSide) / Math.log(2.00)));
-    int gridSize = (int) Math.pow(2, powerRequired);
-
-    // This method will set the grid appropriately and return the grid of doubles.
-    double[][] redGrid = getValueGridFromImage(0, gridSize);
-    double[][] greenGrid = getValueGridFromImage(1, gridSize);
-    double[][] blueGrid = getValueGridFromImage(2, gridSize);
+    int gridSize = HaarCodec.getGridSize(image.getHeight(), image.getWidth());
 
+    double[][][] transformedGrids = new double[3][][];
+    for (int c = 0; c < 3; c++) {
+      transformedGrids[c] = transform(c, gridSize);
+    }
 
-    double[][] transformedRedGrid = haarTransform(redGrid, redGrid.length);
-    double[][] transformedGreenGrid = haarTransform(greenGrid, greenGrid.length);
-    double[][] transformedBlueGrid = haarTransform(blueGrid, blueGrid.length);
+    double[][][] normalizedGrids = transformedGrids;
+    if (precision == Precision.INTEGER) {
+      normalizedGrids = new double[3][][];
+      for (int c = 0; c < 3; c++) {
+        normalizedGrids[c] = normalize(transformedGrids[c]);
+      }
+    }
 
-    double threshold = getThreshold(transformedRedGrid, transformedGreenGrid, transformedBlueGrid,
+    double threshold = getThreshold(normalizedGrids[0], normalizedGrids[1], normalizedGrids[2],
             percent);
 
-    double[][] compressedRedGrid = compressGridByPercentage(transformedRedGrid,
-            threshold);
-    double[][] compressedGreenGrid = compressGridByPercentage(transformedGreenGrid,
-            threshold);
-    double[][] compressedBlueGrid = compressGridByPercentage(transformedBlueGrid,
-            threshold);
+    double[][][] compressedGrids = new double[3][][];
+    double[][][] inverseTransformGrids = new double[3][][];
+    for (int c = 0; c < 3; c++) {
+      compressedGrids[c] = compressGridByPercentage(transformedGrids[c], normalizedGrids[c],
+              threshold);
+    }
+    byte[] coefficients = HaarCodec.encode(compressedGrids, precision);
+    for (int c = 0; c < 3; c++) {
+      inverseTransformGrids[c] = inverseTransform(compressedGrids[c], gridSize, precision);
+    }
 
-    double[][] inverseTransformRedGrid = inverseHaarTransform(compressedRedGrid, redGrid.length);
-    double[][] inverseTransformGreenGrid = inverseHaarTransform(compressedGreenGrid,
-            greenGrid.length);
-    double[][] inverseTransformBlueGrid = inverseHaarTransform(compressedBlueGrid, blueGrid.length);
+    RGBImage pixels = getImageFromGrid(inverseTransformGrids[0], inverseTransformGrids[1],
+            inverseTransformGrids[2], image.getHeight(), image.getWidth(), precision);
+    for (int c = 0; c < 3; c++) {
+      PixelPool.give(transformedGrids[c]);
+      if (normalizedGrids != transformedGrids) {
+        PixelPool.give(normalizedGrids[c]);
+      }
+      PixelPool.give(compressedGrids[c]);
+      PixelPool.give(inverseTransformGrids[c]);
+    }
+    return new HaarImage(pixels, coefficients, precision);
 
-    return getImageFromGrid(inverseTransformRedGrid, inverseTransformGreenGrid,
-            inverseTransformBlueGrid);
+  }
 
+  /**
+   * Saves the image in the haar format. A compressed image is saved with the coefficients kept by
+   * its compression, any other image is transformed and saved with all its coefficients.
+   *
+   * @param destinationPath The path of the haar file.
+   * @throws IOException if the file could not be written.
+   */
+  public void save(String destinationPath) throws IOException {
+    Image compressed = image instanceof HaarImage ? image : compress(0);
+    HaarCodec.write((HaarImage) compressed, destinationPath);
   }
 
   /**
-   * Generates a new image given a grid of pixel values in the specific channel.
+   * Loads an image from a haar file. The coefficients are decoded and only the inverse transform
+   * is run to reconstruct the pixels.
+   *
+   * @param srcPath The path of the haar file.
+   * @return The image, which keeps the coefficients of the file.
+   * @throws IOException if the file could not be read or is not a haar file.
+   */
+  public static Image load(String srcPath) throws IOException {
+    HaarCodec.HaarFile file = HaarCodec.read(srcPath);
+    int gridSize = HaarCodec.getGridSize(file.height, file.width);
+    double[][][] grids = HaarCodec.decode(file.coefficients, gridSize, file.precision);
+    for (int c = 0; c < 3; c++) {
+      double[][] decoded = grids[c];
+      grids[c] = inverseTransform(decoded, gridSize, file.precision);
+      PixelPool.give(decoded);
+    }
+
+    RGBImage pixels = getImageFromGrid(grids[0], grids[1], grids[2], file.height, file.width,
+            file.precision);
+    for (double[][] grid : grids) {
+      PixelPool.give(grid);
+    }
+    return new HaarImage(pixels, file.coefficients, file.precision);
+  }
+
+  /**
+   * Loads an image from a haar file at a fraction of its size. Only the coefficients of the
+   * coarsest levels are decoded and inverse transformed, so that the smaller the image, the
+   * quicker it is loaded. Every pixel of the result is the average of the block of pixels of the
+   * full size image it covers.
+   *
+   * @param srcPath The path of the haar file.
+   * @param scale   The factor the height and width of the image are divided by, a power of two.
+   * @return The scaled image, whose height and width are rounded up.
+   * @throws IOException if the file could not be read or is not a haar file.
+   * @throws IllegalArgumentException if the scale is not a power of two.
+   */
+  public static Image load(String srcPath, int scale) throws IOException {
+    if (scale <= 0 || Integer.bitCount(scale) != 1) {
+      throw new IllegalArgumentException("The scale should be a power of two");
+    }
+    return getScaledImage(HaarCodec.read(srcPath), scale);
+  }
+
+  /**
+   * Loads a preview of the image of a haar file, at the largest scale whose height and width are
+   * at most the given size, or at full size if it is already small enough.
+   *
+   * @param srcPath The path of the haar file.
+   * @param maxSize The largest height and width of the preview.
+   * @return The preview image.
+   * @throws IOException if the file could not be read or is not a haar file.
+   * @throws IllegalArgumentException if the size is not positive.
+   */
+  public static Image loadPreview(String srcPath, int maxSize) throws IOException {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The preview size should be positive");
+    }
+    HaarCodec.HaarFile file = HaarCodec.read(srcPath);
+    int scale = 1;
+    while (Math.max(file.height, file.width) > (long) scale * maxSize) {
+      scale *= 2;
+    }
+    return getScaledImage(file, scale);
+  }
+
+  /**
+   * Decodes and inverse transforms the coarsest levels of a haar file. After each level of the
+   * normalized transform, the averages of the blocks of pixels are doubled, so the inverse
+   * transform of the square of the coarsest levels, of the grid size divided by the scale, gives
+   * the averages of the blocks of the scale size multiplied by the scale. The integer transform
+   * keeps the averages as they are, rounded down along the rows and the columns at each level,
+   * which lowers them by half on average, and this is added back. The blocks at the bottom and
+   * right edges may be partly outside the image, in which case the average only counts the pixels
+   * inside. With the integer transform, the rounding errors of these averages grow in the same
+   * proportion as the part of the block outside the image.
+   */
+  private static Image getScaledImage(HaarCodec.HaarFile file, int scale) throws IOException {
+    int gridSize = HaarCodec.getGridSize(file.height, file.width);
+    int bandSize = Math.max(1, gridSize / scale);
+    int blockSize = gridSize / bandSize;
+    int height = (file.height + blockSize - 1) / blockSize;
+    int width = (file.width + blockSize - 1) / blockSize;
+
+    double[][][] grids = HaarCodec.decode(file.coefficients, gridSize, bandSize, file.precision);
+    double[][][] averages = new double[3][][];
+    for (int c = 0; c < 3; c++) {
+      averages[c] = inverseTransform(grids[c], bandSize, file.precision);
+      PixelPool.give(grids[c]);
+    }
+    double blockArea = blockSize;
+    double rounding = 0;
+    if (file.precision == Precision.INTEGER) {
+      blockArea = (double) blockSize * blockSize;
+      rounding = 0.5 * Integer.numberOfTrailingZeros(blockSize);
+    }
+
+    RGBImage image = new RGBImage(height, width);
+    for (int i = 0; i < height; i++) {
+      int rows = Math.min(blockSize, file.height - i * blockSize);
+      for (int j = 0; j < width; j++) {
+        int cols = Math.min(blockSize, file.width - j * blockSize);
+        double factor = blockArea / (rows * cols);
+        image.setPixel(i, j, new Pixel((int) Math.rint((averages[0][i][j] + rounding) * factor),
+                (int) Math.rint((averages[1][i][j] + rounding) * factor),
+                (int) Math.rint((averages[2][i][j] + rounding) * factor)));
+      }
+    }
+    for (double[][] grid : averages) {
+      PixelPool.give(grid);
+    }
+    return image;
+  }
+
+  /**
+   * Generates a new image given a grid of pixel values in the specific channel. The values of the
+   * float and integer transforms are clamped to the range of a pixel value, while those of the
+   * double transform are converted as they always were, so that its images stay the same.
    *
    * @param redGrid   The grid for red values.
    * @param greenGrid The grid for green values.
    * @param blueGrid  The grid for blue values.
+   * @param height    The height of the image.
+   * @param width     The width of the image.
+   * @param precision The precision of the transform the grids come from.
    * @return The new image object with the specified grid valued present at the specified channel.
    */
-  private Image getImageFromGrid(double[][] redGrid, double[][] greenGrid, double[][] blueGrid) {
+  private static RGBImage getImageFromGrid(double[][] redGrid, double[][] greenGrid,
+                                           double[][] blueGrid, int height, int width,
+                                           Precision precision) {
 
-    BufferedImage bufferedImage = new BufferedImage(image.getWidth(),
-            image.getHeight(), BufferedImage.TYPE_INT_RGB);
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
+    boolean isClamped = precision != Precision.DOUBLE;
+    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
 
-        int r = (int) Math.round(redGrid[i][j]);
-        int g = (int) Math.round(greenGrid[i][j]);
-        int b = (int) Math.round(blueGrid[i][j]);
+        int r = toValue(redGrid[i][j], isClamped);
+        int g = toValue(greenGrid[i][j], isClamped);
+        int b = toValue(blueGrid[i][j], isClamped);
 
         int rgb = (r << 16) | (g << 8) | b;
 
@@ -92,25 +277,156 @@ public class ImageCompressor {
       }
     }
 
-    return RGBImage.getLoader().loadFromBufferedImage(bufferedImage);
+    return (RGBImage) RGBImage.getLoader().loadFromBufferedImage(bufferedImage);
+  }
+
+  /**
+   * Transforms the values of a channel of the image in the precision of the compressor.
+   *
+   * @param channel  The channel to transform, 0 for red, 1 from green, 2 for blue.
+   * @param gridSize The number of rows and columns of the grid.
+   * @return The grid of coefficients.
+   */
+  private double[][] transform(int channel, int gridSize) {
+    double[][] grid = getValueGridFromImage(channel, gridSize);
+    double[][] result;
+    switch (precision) {
+      case FLOAT:
+        float[] floats = toFloats(grid);
+        HaarTransforms.forward(floats, gridSize);
+        result = toGrid(floats, gridSize);
+        break;
+      case INTEGER:
+        int[] ints = toInts(grid);
+        HaarTransforms.forward(ints, gridSize);
+        result = toGrid(ints, gridSize);
+        break;
+      default:
+        result = haarTransform(grid, gridSize);
+        break;
+    }
+    PixelPool.give(grid);
+    return result;
+  }
+
+  /**
+   * Inverse transforms a grid of coefficients in the given precision.
+   *
+   * @param grid      The grid of coefficients.
+   * @param length    The number of rows and columns of the grid.
+   * @param precision The precision of the transform the coefficients come from.
+   * @return The grid of values.
+   */
+  private static double[][] inverseTransform(double[][] grid, int length, Precision precision) {
+    switch (precision) {
+      case FLOAT:
+        float[] floats = toFloats(grid);
+        HaarTransforms.inverse(floats, length);
+        return toGrid(floats, length);
+      case INTEGER:
+        int[] ints = toInts(grid);
+        HaarTransforms.inverse(ints, length);
+        return toGrid(ints, length);
+      default:
+        return inverseHaarTransform(grid, length);
+    }
+  }
+
+  /**
+   * Gets the values the coefficients of the integer transform would have in the normalized
+   * transform. Each level of the normalized transform multiplies the averages by the square root of
+   * two along the rows and along the columns, and the differences are divided by it, so that a
+   * coefficient of level k, where the finest level is 1, is multiplied by 2 to the k - 1 when it is
+   * a difference along one of the rows or the columns, by 2 to the k - 2 when it is a difference
+   * along both, and the average of the whole grid by the grid size.
+   *
+   * @param grid The grid of coefficients of the integer transform.
+   * @return The grid of the normalized coefficients.
+   */
+  private static double[][] normalize(double[][] grid) {
+    int length = grid.length;
+    double[][] result = PixelPool.takeGrid(length);
+    for (int i = 0; i < length; i++) {
+      for (int j = 0; j < length; j++) {
+        int larger = Math.max(i, j);
+        if (larger == 0) {
+          result[i][j] = grid[i][j] * length;
+          continue;
+        }
+        // the level of the coefficient is the one of its larger index
+        int level = Integer.numberOfLeadingZeros(larger) - Integer.numberOfLeadingZeros(length);
+        boolean both = Integer.highestOneBit(i) == Integer.highestOneBit(j);
+        result[i][j] = Math.scalb(grid[i][j], both ? level - 2 : level - 1);
+      }
+    }
+    return result;
+  }
+
+  private static float[] toFloats(double[][] grid) {
+    int length = grid.length;
+    float[] values = new float[length * length];
+    for (int i = 0; i < length; i++) {
+      for (int j = 0; j < length; j++) {
+        values[i * length + j] = (float) grid[i][j];
+      }
+    }
+    return values;
+  }
+
+  private static int[] toInts(double[][] grid) {
+    int length = grid.length;
+    int[] values = new int[length * length];
+    for (int i = 0; i < length; i++) {
+      for (int j = 0; j < length; j++) {
+        values[i * length + j] = (int) Math.round(grid[i][j]);
+      }
+    }
+    return values;
+  }
+
+  private static double[][] toGrid(float[] values, int length) {
+    double[][] grid = PixelPool.takeGrid(length);
+    for (int i = 0; i < length; i++) {
+      for (int j = 0; j < length; j++) {
+        grid[i][j] = values[i * length + j];
+      }
+    }
+    return grid;
+  }
+
+  private static double[][] toGrid(int[] values, int length) {
+    double[][] grid = PixelPool.takeGrid(length);
+    for (int i = 0; i < length; i++) {
+      for (int j = 0; j < length; j++) {
+        grid[i][j] = values[i * length + j];
+      }
+    }
+    return grid;
+  }
+
+  private static int toValue(double value, boolean isClamped) {
+    long rounded = Math.round(value);
+    return isClamped ? (int) Math.min(Math.max(rounded, 0), 255) : (int) rounded;
   }
 
   /**
    * This method compresses the grid by removing the smallest values which is governed by the
    * percentage that the base image should be compressed by.
    *
-   * @param grid      The grid of values.
-   * @param threshold The percentage by which the image should be compressed by.
+   * @param grid       The grid of values.
+   * @param magnitudes The grid of the values the threshold is compared to.
+   * @param threshold  The percentage by which the image should be compressed by.
    * @return The new grid object where the smallest 'n' percentage of values are removed.
    */
-  private double[][] compressGridByPercentage(double[][] grid, double threshold) {
+  private double[][] compressGridByPercentage(double[][] grid, double[][] magnitudes,
+                                              double threshold) {
 
     int h = grid.length;
-    double[][] res = new double[h][h];
+    double[][] res = PixelPool.takeGrid(h);
 
     for (int i = 0; i < h; i++) {
       for (int j = 0; j < h; j++) {
-        if (Math.abs(grid[i][j]) <= threshold) {
+        if (Math.abs(magnitudes[i][j]) <= threshold) {
           res[i][j] = 0;
         } else {
           res[i][j] = grid[i][j];
@@ -131,7 +447,7 @@ public class ImageCompressor {
    */
   private double[][] haarTransform(double[][] grid, int length) {
 
-    double[][] res = new double[length][length];
+    double[][] res = PixelPool.takeGrid(length);
 
     for (int i = 0; i < length; i++) {
       System.arraycopy(grid[i], 0, res[i], 0, length);
@@ -196,9 +512,9 @@ public class ImageCompressor {
    * @param length The length of the grid, This will be a square grid so, the sides are the same.
    * @return The transformed grid object.
    */
-  private double[][] inverseHaarTransform(double[][] grid, int length) {
+  private static double[][] inverseHaarTransform(double[][] grid, int length) {
 
-    double[][] res = new double[length][length];
+    double[][] res = PixelPool.takeGrid(length);
 
     for (int i = 0; i < length; i++) {
       System.arraycopy(grid[i], 0, res[i], 0, length);
@@ -253,14 +569,14 @@ public class ImageCompressor {
     return res;
   }
 
-  private double getNormalizedAverage(double a, double b) {
+  private static double getNormalizedAverage(double a, double b) {
 
-    return (a + b) / (Math.sqrt(2));
+    return (a + b) / SQRT_2;
   }
 
-  private double getNormalizedDifference(double a, double b) {
+  private static double getNormalizedDifference(double a, double b) {
 
-    return (a - b) / (Math.sqrt(2));
+    return (a - b) / SQRT_2;
   }
 
 
@@ -297,7 +613,7 @@ public class ImageCompressor {
   private double[][] getValueGridFromImage(int channel, int gridSize) {
 
 
-    double[][] resultGrid = new double[gridSize][gridSize];
+    double[][] resultGrid = PixelPool.takeGrid(gridSize);
 
     for (int i = 0; i < gridSize; i++) {
 
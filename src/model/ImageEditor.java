@@ -1,6 +1,9 @@
 package model;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 
 /**
  * An interface to perform operations on the Image like loading, saving, compressing and editing,
@@ -16,6 +19,54 @@ public interface ImageEditor {
    */
   Image load(String srcPath) throws IOException;
 
+  /**
+   * Loads an image subsampled at a scale, keeping one pixel out of the scale along the rows and
+   * the columns. The png and jpg files are only decoded as far as needed.
+   *
+   * @param srcPath source path of the image
+   * @param scale   the scale, 1 to keep every pixel
+   * @return Image model
+   * @throws IllegalArgumentException if the scale is not positive.
+   */
+  Image load(String srcPath, int scale) throws IOException;
+
+  /**
+   * Loads a region of an image, subsampled at a scale. The png, jpg and ppm files are only decoded
+   * as far as the last row of the region.
+   *
+   * @param srcPath source path of the image
+   * @param scale   the scale, 1 to keep every pixel
+   * @param row     the first row of the region
+   * @param col     the first column of the region
+   * @param height  the number of rows in the region
+   * @param width   the number of columns in the region
+   * @return Image model
+   * @throws IllegalArgumentException if the scale is not positive or the region is outside the
+   *                                  image.
+   */
+  Image load(String srcPath, int scale, int row, int col, int height, int width)
+          throws IOException;
+
+  /**
+   * Loads an image from the bytes of a png or jpg file, which are read to the end of the stream.
+   *
+   * @param input the stream of the image file
+   * @return Image model
+   * @throws IOException if the stream could not be read or is not an image file.
+   */
+  Image load(InputStream input) throws IOException;
+
+  /**
+   * Writes provided image to a stream, as the bytes of a file in the given format.
+   *
+   * @param image  image to be written
+   * @param format the format of the file, ppm, png or jpg
+   * @param output the stream the file is written to, which is left open
+   * @throws IOException if the stream could not be written.
+   * @throws IllegalArgumentException if the format is not supported.
+   */
+  void write(Image image, String format, OutputStream output) throws IOException;
+
   /**
    * Saves provided image as a png file.
    *
@@ -40,6 +91,26 @@ public interface ImageEditor {
    */
   void saveAsPPM(Image image, String destinationPath) throws IOException;
 
+  /**
+   * Saves provided image as a haar file, which has the wavelet coefficients of a compressed image.
+   * Any other image is saved with all its coefficients.
+   *
+   * @param image           image to be saved
+   * @param destinationPath destination location path
+   */
+  void saveAsHaar(Image image, String destinationPath) throws IOException;
+
+  /**
+   * Opens an image file to be edited a row at a time, without loading the whole image. The
+   * operations added to the pipeline run when it is saved.
+   *
+   * @param srcPath source location path of a ppm, png or jpg file
+   * @return The pipeline which reads the image.
+   * @throws IOException if the file could not be read.
+   * @throws IllegalArgumentException if the format can not be streamed.
+   */
+  ImagePipeline stream(String srcPath) throws IOException;
+
   /**
    * Gets red component of given image.
    *
@@ -122,6 +193,24 @@ public interface ImageEditor {
    */
   Image blur(Image image);
 
+  /**
+   * Blur the image with a blur of the given radius.
+   *
+   * @param image  Image to process
+   * @param radius The radius of the blur.
+   * @return processed Image result
+   */
+  Image blur(Image image, int radius);
+
+  /**
+   * Convolute the image with a kernel.
+   *
+   * @param image  Image to process
+   * @param kernel The square kernel with an odd number of rows and columns.
+   * @return processed Image result
+   */
+  Image convolve(Image image, double[][] kernel);
+
   /**
    * Sharpen the image.
    *
@@ -138,6 +227,16 @@ public interface ImageEditor {
    */
   Image toSepia(Image image);
 
+  /**
+   * Applies a color matrix to every pixel of the image. Takes in the image object and the 3x3 or
+   * 4x4 color matrix.
+   *
+   * @param image  The base image.
+   * @param matrix The color matrix.
+   * @return The new image with the color matrix applied.
+   */
+  Image colorTransform(Image image, double[][] matrix);
+
   /**
    * Combine the given three images, extract r g b values and add it to the result image.
    *
@@ -178,6 +277,17 @@ public interface ImageEditor {
    */
   Image compress(Image image, int percent);
 
+  /**
+   * Compresses the image and generates a new image, computing the haar transform in the given
+   * precision.
+   *
+   * @param image     The base image.
+   * @param percent   The percentage by which the image should be compressed by.
+   * @param precision The precision of the transform.
+   * @return The new compressed image.
+   */
+  Image compress(Image image, int percent, ImageCompressor.Precision precision);
+
 
   /**
    * Adjusts the peaks of r g b values in the histogram to coincide at same x-axis value by offset
@@ -188,6 +298,60 @@ public interface ImageEditor {
    */
   Image colorCorrect(Image image);
 
+  /**
+   * Generates the split view of the original and the transformed image. The first percent of the
+   * columns are taken from the transformed image, the rest from the original image.
+   *
+   * @param image1  The original image.
+   * @param image2  The transformed image. Only needs to cover the split percentage.
+   * @param percent The percentage of the columns taken from the transformed image.
+   * @return The split view image.
+   */
   Image getSplitView(Image image1, Image image2, int percent);
 
+  /**
+   * Gets the part of the image which is shown transformed in a split view, so that only this part
+   * needs to be transformed before calling getSplitView.
+   *
+   * @param image   The original image.
+   * @param percent The percentage of the columns taken from the transformed image.
+   * @return The region of the image to be transformed.
+   */
+  Image getSplitRegion(Image image, int percent);
+
+  /**
+   * Gets a rectangular region of the image. Operations on the region compute only the region,
+   * but still read the pixels around it when they need them, like the convolutions.
+   *
+   * @param image  The image to get the region from.
+   * @param row    The first row of the region.
+   * @param col    The first column of the region.
+   * @param height The number of rows in the region.
+   * @param width  The number of columns in the region.
+   * @return The region of the image.
+   */
+  Image getRegion(Image image, int row, int col, int height, int width);
+
+  /**
+   * Places the overlay image over the image, the rest of the pixels are shared with the image.
+   *
+   * @param image   The base image.
+   * @param overlay The image to be placed over the base image.
+   * @param row     The row where the overlay is placed.
+   * @param col     The column where the overlay is placed.
+   * @param mask    The mask selecting the pixels taken from the overlay, null selects all.
+   * @return The image with the overlay.
+   */
+  Image getOverlayView(Image image, Image overlay, int row, int col, Image mask);
+
+  /**
+   * Releases an image which is no longer used, returning the arrays of its pixels to the pool for
+   * the next images to reuse. Nothing is released if one of the kept images is the image or reads
+   * its pixels, like a view of it. The image must not be used by the caller afterwards.
+   *
+   * @param image      The image which is no longer used.
+   * @param keptImages The images still used by the caller.
+   */
+  void release(Image image, Collection<Image> keptImages);
+
 }
@@ -7,11 +7,20 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
+import static util.Constants.HAAR;
 import static util.Constants.JPG;
 import static util.Constants.MAX_PIXEL_VALUE;
 import static util.Constants.PNG;
@@ -19,18 +28,67 @@ import static util.Constants.PPM;
 
 /**
  * A class to edit the load, edit and save images by implementing the ImageEditor interface.
+ *
+ * <p>The operations return the deferred images of the model, whose pixels are computed when they
+ * are first read, by saving, displaying or taking the histogram of an image, so the results which
+ * are never read are never computed. Running with {@code -Dimage.evaluation=eager} computes the
+ * results which are computed for the whole image at once, like the convolutions, as the operation
+ * runs instead, so that the recorded operations include their pixels.
  */
 public class ImageEditorImpl implements ImageEditor {
 
+  private static final boolean IS_EAGER = "eager".equals(System.getProperty("image.evaluation"));
+
   @Override
   public Image load(String srcPath) throws IOException {
+    return load(srcPath, RGBImage.getLoader());
+  }
+
+  @Override
+  public Image load(String srcPath, int scale) throws IOException {
+    return load(srcPath, RGBImage.getLoader().withScale(scale));
+  }
+
+  @Override
+  public Image load(String srcPath, int scale, int row, int col, int height, int width)
+          throws IOException {
+    return load(srcPath, RGBImage.getLoader().withScale(scale)
+            .withRegion(row, col, height, width));
+  }
+
+  /**
+   * Loads an image with a loader, whose region and scale are applied after the whole image is
+   * decoded for the haar files. The binary ppm files are mapped into memory instead of being read,
+   * so that only the pixels of the region are read from them.
+   *
+   * @param srcPath source path of the image
+   * @param loader  the loader of the image
+   * @return Image model
+   */
+  Image load(String srcPath, RGBImage.ImageLoader loader) throws IOException {
     int lastDot = srcPath.lastIndexOf('.');
     String ext = srcPath.substring(lastDot + 1);
 
+    if (ext.equals(PPM) && OffHeapImage.isBinaryPPM(srcPath)) {
+      ImageIOEvent event = new ImageIOEvent();
+      event.begin();
+      Image image = OffHeapImage.store(loader.loadFromImage(OffHeapImage.map(srcPath)));
+      event.end();
+      event.commit("load", srcPath, PPM, image);
+      return image;
+    }
     if (ext.equals(PPM)) {
-      return RGBImage.getLoader().loadFromPPM(srcPath);
+      return OffHeapImage.store(loader.loadFromPPM(srcPath));
     }
-    return RGBImage.getLoader().loadFromPngOrJpg(srcPath);
+    if (ext.equals(HAAR)) {
+      ImageIOEvent event = new ImageIOEvent();
+      event.begin();
+      Image image = OffHeapImage.store(loader.loadFromImage(ImageCompressor.load(srcPath)));
+      event.end();
+      event.commit("load", srcPath, HAAR, image);
+      return image;
+    }
+    return OffHeapImage.store(loader.loadFromPngOrJpg(srcPath));
   }
 
   @Override
@@ -45,97 +103,139 @@ public class ImageEditorImpl implements ImageEditor {
 
   @Override
   public void saveAsPPM(Image image, String destinationPath) throws IOException {
-    int width = image.getWidth();
-    int height = image.getHeight();
-
+    ImageIOEvent event = new ImageIOEvent();
+    event.begin();
     try (BufferedWriter writer = new BufferedWriter(new FileWriter(destinationPath))) {
-      // Write the PPM header
-      writer.write("P3\n");
-      writer.write(width + " " + height + "\n");
-      writer.write(MAX_PIXEL_VALUE + "\n");
-
-      // Write the pixel data in ascii format
-      for (int x = 0; x < height; x++) {
-        for (int y = 0; y < width; y++) {
-          Pixel p = image.getPixel(x, y);
-          int r = p.getRed();
-          int g = p.getGreen();
-          int b = p.getBlue();
-          writer.write(r + "\n");
-          writer.write(g + "\n");
-          writer.write(b + "\n");
-        }
-      }
+      writePPM(image, writer);
     }
+    event.end();
+    event.commit("save", destinationPath, PPM, image);
+  }
+
+  @Override
+  public Image load(InputStream input) throws IOException {
+    BufferedImage bufferedImage = ImageIO.read(input);
+    if (bufferedImage == null) {
+      throw new IOException("Unsupported image data");
+    }
+    return OffHeapImage.store(RGBImage.getLoader().loadFromBufferedImage(bufferedImage));
+  }
+
+  @Override
+  public void write(Image image, String format, OutputStream output) throws IOException {
+    if (format.equals(PPM)) {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.US_ASCII));
+      writePPM(image, writer);
+      writer.flush();
+    } else if (format.equals(PNG) || format.equals(JPG)) {
+      ImageIO.write(getBufferedImageUtil(image), format, output);
+    } else {
+      throw new IllegalArgumentException("Images can only be written as ppm, png or jpg");
+    }
+  }
+
+  @Override
+  public void saveAsHaar(Image image, String destinationPath) throws IOException {
+    ImageIOEvent event = new ImageIOEvent();
+    event.begin();
+    new ImageCompressor(image).save(destinationPath);
+    event.end();
+    event.commit("save", destinationPath, HAAR, image);
+  }
+
+  @Override
+  public ImagePipeline stream(String srcPath) throws IOException {
+    return new StreamingPipeline(srcPath);
   }
 
   @Override
   public Image redComponent(Image image) {
-    return image.redComponent();
+    return record("redComponent", image, image::redComponent);
   }
 
   @Override
   public Image greenComponent(Image image) {
-    return image.greenComponent();
+    return record("greenComponent", image, image::greenComponent);
   }
 
   @Override
   public Image blueComponent(Image image) {
-    return image.blueComponent();
+    return record("blueComponent", image, image::blueComponent);
   }
 
   @Override
   public Image valueComponent(Image image) {
-    return image.valueComponent();
+    return record("valueComponent", image, image::valueComponent);
   }
 
   @Override
   public Image intensityComponent(Image image) {
-    return image.intensityComponent();
+    return record("intensityComponent", image, image::intensityComponent);
   }
 
   @Override
   public Image lumaComponent(Image image) {
-    return image.lumaComponent();
+    return record("lumaComponent", image, image::lumaComponent);
   }
 
   @Override
   public Image horizontalFlip(Image image) {
-    return image.horizontalFlip();
+    return record("horizontalFlip", image, image::horizontalFlip);
   }
 
   @Override
   public Image verticalFlip(Image image) {
-    return image.verticalFlip();
+    return record("verticalFlip", image, image::verticalFlip);
   }
 
   @Override
   public Image brighten(Image image, int brightnessValue) {
-    return image.brighten(brightnessValue);
+    return record("brighten", image, () -> image.brighten(brightnessValue), brightnessValue);
   }
 
   @Override
   public Image blur(Image image) {
-    return image.blur();
+    return record("blur", image, image::blur);
+  }
+
+  @Override
+  public Image blur(Image image, int radius) {
+    return record("blur", image, () -> image.blur(radius), radius);
+  }
+
+  @Override
+  public Image convolve(Image image, double[][] kernel) {
+    return record("convolve", image, () -> image.convolve(kernel), kernel.length);
   }
 
   @Override
   public Image sharpen(Image image) {
-    return image.sharpen();
+    return record("sharpen", image, image::sharpen);
   }
 
   @Override
   public Image toSepia(Image image) {
-    return image.toSepia();
+    return record("toSepia", image, image::toSepia);
+  }
+
+  @Override
+  public Image colorTransform(Image image, double[][] matrix) {
+    return record("colorTransform", image, () -> image.colorTransform(matrix),
+            Arrays.deepToString(matrix));
   }
 
   @Override
   public Image rgbCombine(Image redImage, Image greenImage, Image blueImage) {
-    return redImage.rgbCombine(redImage, greenImage, blueImage);
+    return record("rgbCombine", redImage,
+            () -> redImage.rgbCombine(redImage, greenImage, blueImage));
   }
 
   @Override
   public Image getHistogram(Image image) {
+    return record("getHistogram", image, () -> getHistogramUtil(image));
+  }
+
+  private Image getHistogramUtil(Image image) {
 
     int[] redValues = new int[256];
     int[] greenValues = new int[256];
@@ -172,23 +272,62 @@ public class ImageEditorImpl implements ImageEditor {
 
   @Override
   public Image levelsAdjust(Image image, int b, int m, int w) {
-    return image.levelsAdjust(b, m, w);
+    return record("levelsAdjust", image, () -> image.levelsAdjust(b, m, w), b, m, w);
   }
 
 
   @Override
   public Image compress(Image image, int percent) {
-    return new ImageCompressor(image).compress(percent);
+    return record("compress", image, () -> new ImageCompressor(image).compress(percent),
+            percent);
+  }
+
+  @Override
+  public Image compress(Image image, int percent, ImageCompressor.Precision precision) {
+    return record("compress", image,
+            () -> new ImageCompressor(image, precision).compress(percent), percent, precision);
   }
 
   @Override
   public Image colorCorrect(Image image) {
-    return image.colorCorrect();
+    return record("colorCorrect", image, image::colorCorrect);
   }
 
   @Override
   public Image getSplitView(Image image1, Image image2, int percent) {
-    return image2.getSplitView(image1, percent);
+    return record("getSplitView", image1, () -> image2.getSplitView(image1, percent), percent);
+  }
+
+  @Override
+  public Image getSplitRegion(Image image, int percent) {
+    return record("getSplitRegion", image,
+            () -> image.getRegion(0, 0, image.getHeight(), percent * image.getWidth() / 100),
+            percent);
+  }
+
+  @Override
+  public Image getRegion(Image image, int row, int col, int height, int width) {
+    return record("getRegion", image, () -> image.getRegion(row, col, height, width),
+            row, col, height, width);
+  }
+
+  @Override
+  public Image getOverlayView(Image image, Image overlay, int row, int col, Image mask) {
+    return record("getOverlayView", image, () -> image.getOverlayView(overlay, row, col, mask),
+            row, col);
+  }
+
+  @Override
+  public void release(Image image, Collection<Image> keptImages) {
+    if (!(image instanceof AbstractImage)) {
+      return;
+    }
+    for (Image kept : keptImages) {
+      if (kept != null && AbstractImage.uses(kept, image)) {
+        return;
+      }
+    }
+    ((AbstractImage) image).releasePixels();
   }
 
   protected BufferedImage getBufferedImageUtil(Image image) {
@@ -225,12 +364,80 @@ public class ImageEditorImpl implements ImageEditor {
     }
   }
 
+  /**
+   * Writes the image as the text of a plain ppm file.
+   *
+   * @param image  image to be written
+   * @param writer the writer of the text
+   * @throws IOException if the text could not be written.
+   */
+  private static void writePPM(Image image, Writer writer) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+
+    // Write the PPM header
+    writer.write("P3\n");
+    writer.write(width + " " + height + "\n");
+    writer.write(MAX_PIXEL_VALUE + "\n");
+
+    // Write the pixel data in ascii format
+    for (int x = 0; x < height; x++) {
+      for (int y = 0; y < width; y++) {
+        Pixel p = image.getPixel(x, y);
+        int r = p.getRed();
+        int g = p.getGreen();
+        int b = p.getBlue();
+        writer.write(r + "\n");
+        writer.write(g + "\n");
+        writer.write(b + "\n");
+      }
+    }
+  }
+
   private void saveImage(Image image, String destinationPath, String format) throws IOException {
 
+    ImageIOEvent event = new ImageIOEvent();
+    event.begin();
+
     BufferedImage bufferedImage = getBufferedImageUtil(image);
 
     File output = new File(destinationPath);
     ImageIO.write(bufferedImage, format, output);
+
+    event.end();
+    event.commit("save", destinationPath, format, image);
+  }
+
+  /**
+   * Runs an operation on the image and records it as a flight recorder event. The event is
+   * disabled by default, in which case only the begin and end calls are made on it. The deferred
+   * result is computed right away when the operations are eager, and the result is stored off the
+   * heap when the editors should.
+   *
+   * @param operation  The name of the operation.
+   * @param image      The image the operation is run on.
+   * @param function   The operation.
+   * @param parameters The parameters of the operation, recorded along with the event.
+   * @return The result of the operation.
+   */
+  private Image record(String operation, Image image, Supplier<Image> function,
+                       Object... parameters) {
+    ImageOperationEvent event = new ImageOperationEvent();
+    event.begin();
+    Image result = function.get();
+    if (IS_EAGER && result instanceof AbstractImage && ((AbstractImage) result).isDeferred()) {
+      result = ((AbstractImage) result).compute();
+    }
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.parameters = Arrays.toString(parameters);
+      event.width = image.getWidth();
+      event.height = image.getHeight();
+      event.commit();
+    }
+    return OffHeapImage.store(result);
   }
 
   private int getMaxCount(int maxCount, int red, int green, int blue) {
@@ -0,0 +1,67 @@
+package model;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for loading an image from a file or saving an image to a file. The event
+ * is disabled by default, and has to be enabled in the recording settings, for example with the
+ * res/image-editor.jfc settings file.
+ */
+@Name("model.ImageIO")
+@Label("Image I/O")
+@Category("Image Editor")
+@Description("An image loaded from or saved to a file")
+@Enabled(false)
+@StackTrace(false)
+class ImageIOEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Path")
+  String path;
+
+  @Label("Format")
+  String format;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  /**
+   * Fills in the fields and commits the event, if it was ended and should be recorded. Meant to
+   * be called after end, so that the file size is only looked up for the recorded events.
+   *
+   * @param operation The name of the operation, load or save.
+   * @param path      The path of the file.
+   * @param format    The format of the file.
+   * @param image     The image loaded or saved.
+   */
+  void commit(String operation, String path, String format, Image image) {
+    if (!shouldCommit()) {
+      return;
+    }
+    this.operation = operation;
+    this.path = path;
+    this.format = format;
+    this.bytes = new File(path).length();
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    commit();
+  }
+}
@@ -0,0 +1,35 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for an operation run by the image editor. The event is disabled by
+ * default, and has to be enabled in the recording settings, for example with the
+ * res/image-editor.jfc settings file.
+ */
+@Name("model.ImageOperation")
+@Label("Image Operation")
+@Category("Image Editor")
+@Description("An operation run on an image by the image editor")
+@Enabled(false)
+@StackTrace(false)
+class ImageOperationEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Parameters")
+  String parameters;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+}
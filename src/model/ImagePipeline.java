@@ -0,0 +1,104 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A chain of operations which streams an image from one file to another, a row at a time, instead
+ * of loading the whole image. Only a few rows are kept in memory, whatever the size of the image,
+ * so that images which would not fit in memory can be edited. The operations are added in the
+ * order they are applied, and run when the image is saved. The results are the same as the
+ * operations on the loaded image.
+ */
+public interface ImagePipeline extends Closeable {
+
+  /**
+   * Adds the red component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline redComponent();
+
+  /**
+   * Adds the green component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline greenComponent();
+
+  /**
+   * Adds the blue component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline blueComponent();
+
+  /**
+   * Adds the value component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline valueComponent();
+
+  /**
+   * Adds the intensity component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline intensityComponent();
+
+  /**
+   * Adds the luma component operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline lumaComponent();
+
+  /**
+   * Adds the sepia operation.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline sepia();
+
+  /**
+   * Adds the brighten operation, which darkens with a negative value.
+   *
+   * @param brightnessValue The value added to every channel.
+   * @return This pipeline.
+   */
+  ImagePipeline brighten(int brightnessValue);
+
+  /**
+   * Adds the blur operation. Only the three rows of the blur kernel around a row are kept.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline blur();
+
+  /**
+   * Adds the sharpen operation. Only the five rows of the sharpen kernel around a row are kept.
+   *
+   * @return This pipeline.
+   */
+  ImagePipeline sharpen();
+
+  /**
+   * Adds a color matrix operation.
+   *
+   * @param matrix The color matrix, of three rows and columns, or four with the offsets.
+   * @return This pipeline.
+   * @throws IllegalArgumentException if the matrix is not a valid color matrix.
+   */
+  ImagePipeline colorTransform(double[][] matrix);
+
+  /**
+   * Runs the operations over the rows of the image and saves the result, in the format of the
+   * extension of the path. The pipeline is closed afterwards.
+   *
+   * @param destinationPath The path of the saved image, a ppm, png or jpg file.
+   * @throws IOException if the image could not be read or saved.
+   * @throws IllegalArgumentException if the format can not be streamed.
+   */
+  void save(String destinationPath) throws IOException;
+}
@@ -0,0 +1,108 @@
+package model;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads the rows of a PNG or JPG file a strip at a time, with the source region of an image
+ * reader, so that only the pixels of one strip are in memory. The decoders of these formats can
+ * not seek to a row, so every strip decodes the file up to its last row again, and the strips are
+ * made as large as a fixed number of pixels to keep this to a few passes over the file.
+ */
+class ImageReaderRowSource implements RowSource {
+
+  /**
+   * The number of pixels in a strip.
+   */
+  static final int STRIP_PIXELS = 1 << 22;
+
+  private final ImageInputStream input;
+
+  private final ImageReader reader;
+
+  private final int width;
+
+  private final int height;
+
+  private final int stripHeight;
+
+  private int[] strip;
+
+  private int stripStart;
+
+  private int next;
+
+  /**
+   * Opens the file and reads its size.
+   *
+   * @param path        The path of the image file.
+   * @param stripPixels The number of pixels in a strip, which has at least one row.
+   * @throws IOException if the file could not be read or has no image reader.
+   */
+  ImageReaderRowSource(String path, int stripPixels) throws IOException {
+    this.input = new FileImageInputStream(new File(path));
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      input.close();
+      throw new IOException("Unsupported image file: " + path);
+    }
+    this.reader = readers.next();
+    reader.setInput(input, false, true);
+    try {
+      this.width = reader.getWidth(0);
+      this.height = reader.getHeight(0);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+    this.stripHeight = Math.max(1, Math.min(height, stripPixels / width));
+    this.stripStart = 0;
+    this.next = 0;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void readRow(int[] red, int[] green, int[] blue) throws IOException {
+    if (strip == null || next == stripStart + stripHeight) {
+      int rows = Math.min(stripHeight, height - next);
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceRegion(new Rectangle(0, next, width, rows));
+      BufferedImage image = reader.read(0, param);
+      strip = image.getRGB(0, 0, width, rows, strip, 0, width);
+      stripStart = next;
+    }
+
+    int offset = (next - stripStart) * width;
+    for (int j = 0; j < width; j++) {
+      int rgb = strip[offset + j];
+      red[j] = (rgb >> 16) & 0xFF;
+      green[j] = (rgb >> 8) & 0xFF;
+      blue[j] = rgb & 0xFF;
+    }
+    next++;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.dispose();
+    input.close();
+  }
+}
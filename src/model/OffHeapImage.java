@@ -0,0 +1,242 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An image whose pixels are stored outside of the heap, so that the garbage collector never copies
+ * or scans them, however large the images are. The red, green and blue values of every pixel are
+ * stored as three consecutive bytes, in row major order, in a direct buffer taken from the pixel
+ * pool, or in a binary ppm file mapped into memory, whose pixels are stored the same way after its
+ * header.
+ *
+ * <p>The operations read the pixels like those of any other image. The operations which need a
+ * contiguous grid, like the convolutions, copy the pixels into a grid on the heap for as long as
+ * they run, instead of keeping it with the image. The deferred results of the operations are
+ * stored this way too once they are computed, so they do not keep their grid either. The direct
+ * buffer returns to the pool when the
+ * image is released, by the controllers once its alias name or its place in the undo history is
+ * gone, so the next off heap image reuses it. A mapped file is unmapped once its image is
+ * collected, as the Java 17 platform has no other way to unmap it.
+ *
+ * <p>The images loaded and computed by the editors are stored this way when running with
+ * {@code -Dimage.storage=off-heap}.
+ */
+final class OffHeapImage extends AbstractImage {
+
+  /**
+   * Whether the editors should store the images they load and compute off the heap.
+   */
+  static final boolean ENABLED = "off-heap".equals(System.getProperty("image.storage"));
+
+  private static final int MAX_HEADER_LENGTH = 1024;
+
+  private final int height;
+
+  private final int width;
+
+  private final ByteBuffer pixels;
+
+  /**
+   * The position of the first pixel in the buffer, after the header of a mapped file.
+   */
+  private final int offset;
+
+  private final boolean isMapped;
+
+  private OffHeapImage(int height, int width, ByteBuffer pixels, int offset, boolean isMapped) {
+    this.height = height;
+    this.width = width;
+    this.pixels = pixels;
+    this.offset = offset;
+    this.isMapped = isMapped;
+  }
+
+  /**
+   * Copies the pixels of an image into a direct buffer.
+   *
+   * @param image The image.
+   * @return The image stored off the heap.
+   * @throws IllegalArgumentException if the image is too large for a single buffer.
+   */
+  static OffHeapImage copyOf(Image image) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    if (3L * height * width > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The image is too large to be stored off the heap");
+    }
+    ByteBuffer pixels = PixelPool.takeBuffer(3 * height * width);
+    TileScheduler.forEachRows(height, width, (from, to) -> {
+      // the tiles write through their own views of the buffer, which share its content.
+      ByteBuffer tile = pixels.duplicate();
+      for (int i = from; i < to; i++) {
+        for (int j = 0; j < width; j++) {
+          Pixel p = image.getPixel(i, j);
+          int k = 3 * (i * width + j);
+          tile.put(k, (byte) p.getRed());
+          tile.put(k + 1, (byte) p.getGreen());
+          tile.put(k + 2, (byte) p.getBlue());
+        }
+      }
+    });
+    return new OffHeapImage(height, width, pixels, 0, false);
+  }
+
+  /**
+   * Moves the pixels of a grid into a direct buffer, and returns the arrays of the grid to the
+   * pixel pool.
+   *
+   * @param grid The grid, which must not be used afterwards.
+   * @return The image stored off the heap.
+   * @throws IllegalArgumentException if the image is too large for a single buffer.
+   */
+  static OffHeapImage moveOf(RGBImage grid) {
+    OffHeapImage image = copyOf(grid);
+    grid.releasePixels();
+    return image;
+  }
+
+  /**
+   * Stores an image off the heap if the editors should, and the image is a grid of pixels on the
+   * heap. The grid is left to the garbage collector while it is still young, as an operation may
+   * return one of the images it was given. The views are kept as they are, as they only read the
+   * pixels of their sources, and store their own pixels off the heap once they compute them.
+   *
+   * @param image The image loaded or created by the editor.
+   * @return The image stored off the heap, or the image itself.
+   */
+  static Image store(Image image) {
+    if (!ENABLED || !(image instanceof RGBImage)) {
+      return image;
+    }
+    return copyOf(image);
+  }
+
+  /**
+   * Checks whether a file is a binary ppm file, which starts with P6 instead of the P3 of the text
+   * ones.
+   *
+   * @param path The path of the file.
+   * @return True if the file is a binary ppm file, false otherwise.
+   * @throws IOException if the file could not be read.
+   */
+  static boolean isBinaryPPM(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(2);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {
+        // reads the two bytes of the magic number.
+      }
+      return magic.position() == 2 && magic.get(0) == 'P' && magic.get(1) == '6';
+    }
+  }
+
+  /**
+   * Maps the pixels of a binary ppm file into memory, without reading them. The file should not be
+   * changed while the image is used.
+   *
+   * @param path The path of the binary ppm file.
+   * @return The image of the file.
+   * @throws IOException if the file could not be read, is not a binary ppm file with values up to
+   *                     255, or is too large to be mapped at once.
+   */
+  static OffHeapImage map(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate((int) Math.min(MAX_HEADER_LENGTH, channel.size()));
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // reads the header, which is at the start of the file.
+      }
+      header.flip();
+
+      if (!"P6".equals(readToken(header))) {
+        throw new IOException("Invalid PPM file: binary file should begin with P6");
+      }
+      int width = readNumber(header);
+      int height = readNumber(header);
+      if (readNumber(header) != 255) {
+        throw new IOException("Only binary ppm files with values up to 255 can be mapped");
+      }
+      // a single whitespace separates the header from the pixels.
+      int offset = header.position() + 1;
+      long length = 3L * height * width;
+      if (offset + length > Integer.MAX_VALUE) {
+        throw new IOException("The ppm file is too large to be mapped");
+      }
+      if (offset + length > channel.size()) {
+        throw new IOException("Invalid PPM file: the file is shorter than its pixels");
+      }
+      ByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, 0, offset + length);
+      return new OffHeapImage(height, width, pixels, offset, true);
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    int k = offset + 3 * (i * width + j);
+    return new Pixel(pixels.get(k) & 0xFF, pixels.get(k + 1) & 0xFF, pixels.get(k + 2) & 0xFF);
+  }
+
+  @Override
+  RGBImage materialize() {
+    // the grid is only kept by the operation which needs it, not by this image.
+    return copyPixels();
+  }
+
+  @Override
+  void releasePixels() {
+    if (!isMapped) {
+      PixelPool.give(pixels);
+    }
+  }
+
+  /**
+   * Reads the next token of a ppm header, skipping the whitespace and the comments before it.
+   *
+   * @param header The header, at the position to read from.
+   * @return The token, which is empty at the end of the header.
+   */
+  private static String readToken(ByteBuffer header) {
+    while (header.hasRemaining()) {
+      char c = (char) header.get(header.position());
+      if (c == '#') {
+        while (header.hasRemaining() && header.get() != '\n') {
+          // skips the comment up to the end of its line.
+        }
+      } else if (Character.isWhitespace(c)) {
+        header.get();
+      } else {
+        break;
+      }
+    }
+    StringBuilder token = new StringBuilder();
+    while (header.hasRemaining() && !Character.isWhitespace((char) header.get(header.position()))) {
+      token.append((char) header.get());
+    }
+    return token.toString();
+  }
+
+  private static int readNumber(ByteBuffer header) throws IOException {
+    String token = readToken(header);
+    try {
+      int number = Integer.parseInt(token);
+      if (number > 0) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // reported below like the other invalid numbers.
+    }
+    throw new IOException("Invalid PPM file: " + token + " is not a valid number");
+  }
+}
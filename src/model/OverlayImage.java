@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * A view of an image with a smaller image placed over it. The pixels inside the rectangle covered
+ * by the overlay are taken from the overlay, and the rest are shared with the base image. When a
+ * mask is given, only the pixels of the rectangle where the mask is not black are taken from the
+ * overlay. The pixels are not copied, every access is delegated to the image which owns it.
+ */
+class OverlayImage extends AbstractImage {
+
+  private final AbstractImage base;
+
+  private final Image overlay;
+
+  private final int row;
+
+  private final int col;
+
+  private final Image mask;
+
+  /**
+   * Creates the view of the base image with the overlay placed at the given position.
+   *
+   * @param base    The image below the overlay.
+   * @param overlay The image placed over the base image.
+   * @param row     The row of the base image where the first row of the overlay is placed.
+   * @param col     The column of the base image where the first column of the overlay is placed.
+   * @param mask    The mask with the size of the base image, or null to use the whole overlay.
+   */
+  OverlayImage(AbstractImage base, Image overlay, int row, int col, Image mask) {
+    this.base = base;
+    this.overlay = overlay;
+    this.row = row;
+    this.col = col;
+    this.mask = mask;
+  }
+
+  @Override
+  public int getHeight() {
+    return base.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return base.getWidth();
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    if (isCovered(i, j)) {
+      return overlay.getPixel(i - row, j - col);
+    }
+    return base.getPixelUtil(i, j);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || base.uses(image) || uses(overlay, image)
+            || mask != null && uses(mask, image);
+  }
+
+  private boolean isCovered(int i, int j) {
+    if (i < row || i >= row + overlay.getHeight() || j < col || j >= col + overlay.getWidth()) {
+      return false;
+    }
+    if (mask == null) {
+      return true;
+    }
+    Pixel p = mask.getPixel(i, j);
+    return p.getRed() > 0 || p.getGreen() > 0 || p.getBlue() > 0;
+  }
+}
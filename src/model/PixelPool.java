@@ -0,0 +1,174 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pool of the channel arrays of the images and of the grids of the haar transforms, so that the
+ * images of the same size processed one after the other, as in a batch, reuse the arrays of the
+ * images which are no longer used instead of allocating new ones. The direct buffers of the images
+ * stored off the heap are pooled the same way, as they are even slower to allocate. The arrays are
+ * pooled by their exact length, as the images and the grids of a batch mostly have the same few
+ * sizes, and the code using them relies on their length. The arrays are cleared when they are
+ * taken, so they can be used like new ones.
+ *
+ * <p>The arrays only come back to the pool when they are released explicitly, by the controllers
+ * through {@link ImageEditor#release}, once the image is no longer referred to. The pool keeps at
+ * most an eighth of the largest heap, which can be changed with {@code -Dimage.pool.bytes=n}, and
+ * drops the arrays returned beyond it.
+ */
+public final class PixelPool {
+
+  private static final long MAX_BYTES = Long.getLong("image.pool.bytes",
+          Runtime.getRuntime().maxMemory() / 8);
+
+  private static final Map<Integer, ArrayDeque<int[]>> CHANNELS = new HashMap<>();
+
+  private static final Map<Integer, ArrayDeque<double[][]>> GRIDS = new HashMap<>();
+
+  private static final Map<Integer, ArrayDeque<ByteBuffer>> BUFFERS = new HashMap<>();
+
+  private static long bytes;
+
+  private static long requests;
+
+  private static long hits;
+
+  private static long returns;
+
+  private static long drops;
+
+  private PixelPool() {
+  }
+
+  /**
+   * Gets the statistics of the pool, the arrays taken from it and how many of them were reused,
+   * the arrays returned to it and dropped, and the memory it keeps.
+   *
+   * @return The statistics, in one line.
+   */
+  public static synchronized String getSummary() {
+    return String.format("buffer pool: %d of %d buffers reused (%.1f%%), %d returned, %d dropped, "
+                    + "%.1f MB kept", hits, requests, requests == 0 ? 0 : 100.0 * hits / requests,
+            returns, drops, bytes / 1e6);
+  }
+
+  /**
+   * Takes a channel array from the pool, or allocates it if there is none of the length.
+   *
+   * @param length The length of the array.
+   * @return The array, filled with zeros.
+   */
+  static int[] takeChannel(int length) {
+    int[] channel;
+    synchronized (PixelPool.class) {
+      requests++;
+      ArrayDeque<int[]> channels = CHANNELS.get(length);
+      channel = channels == null ? null : channels.pollFirst();
+      if (channel == null) {
+        return new int[length];
+      }
+      hits++;
+      bytes -= 4L * length;
+    }
+    Arrays.fill(channel, 0);
+    return channel;
+  }
+
+  /**
+   * Takes a square grid from the pool, or allocates it if there is none of the size.
+   *
+   * @param size The number of rows and columns of the grid.
+   * @return The grid, filled with zeros.
+   */
+  static double[][] takeGrid(int size) {
+    double[][] grid;
+    synchronized (PixelPool.class) {
+      requests++;
+      ArrayDeque<double[][]> grids = GRIDS.get(size);
+      grid = grids == null ? null : grids.pollFirst();
+      if (grid == null) {
+        return new double[size][size];
+      }
+      hits++;
+      bytes -= 8L * size * size;
+    }
+    for (double[] row : grid) {
+      Arrays.fill(row, 0);
+    }
+    return grid;
+  }
+
+  /**
+   * Takes a direct buffer from the pool, or allocates it if there is none of the capacity. Unlike
+   * the arrays, the buffer is not cleared, as the off heap images write all of it.
+   *
+   * @param capacity The number of bytes of the buffer.
+   * @return The buffer.
+   */
+  static synchronized ByteBuffer takeBuffer(int capacity) {
+    requests++;
+    ArrayDeque<ByteBuffer> buffers = BUFFERS.get(capacity);
+    ByteBuffer buffer = buffers == null ? null : buffers.pollFirst();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(capacity);
+    }
+    hits++;
+    bytes -= capacity;
+    return buffer;
+  }
+
+  /**
+   * Returns a channel array to the pool. The array must not be used anymore by its previous user.
+   *
+   * @param channel The array.
+   */
+  static synchronized void give(int[] channel) {
+    if (add(4L * channel.length)) {
+      CHANNELS.computeIfAbsent(channel.length, length -> new ArrayDeque<>()).addFirst(channel);
+    }
+  }
+
+  /**
+   * Returns a square grid to the pool. The grid must not be used anymore by its previous user.
+   *
+   * @param grid The grid.
+   */
+  static synchronized void give(double[][] grid) {
+    if (add(8L * grid.length * grid.length)) {
+      GRIDS.computeIfAbsent(grid.length, size -> new ArrayDeque<>()).addFirst(grid);
+    }
+  }
+
+  /**
+   * Returns a direct buffer to the pool. The buffer must not be used anymore by its previous
+   * user.
+   *
+   * @param buffer The buffer.
+   */
+  static synchronized void give(ByteBuffer buffer) {
+    if (add(buffer.capacity())) {
+      BUFFERS.computeIfAbsent(buffer.capacity(), capacity -> new ArrayDeque<>())
+              .addFirst(buffer);
+    }
+  }
+
+  /**
+   * Counts an array returned to the pool, if it has room for it.
+   *
+   * @param size The number of bytes of the array.
+   * @return True if the array should be kept, false if it is dropped.
+   */
+  private static boolean add(long size) {
+    returns++;
+    if (bytes + size > MAX_BYTES) {
+      drops++;
+      return false;
+    }
+    bytes += size;
+    return true;
+  }
+}
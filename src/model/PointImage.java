@@ -0,0 +1,91 @@
+package model;
+
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A view of an image with a function applied to every pixel, like the value component or the
+ * levels adjustment. The pixels are only computed when they are read, or when the view is
+ * materialized. A function applied to this view is composed with its own function over the same
+ * source, so a chain of point operations reads every pixel of the source once, without the images
+ * in between. A single operation with planar kernels runs them when the view is materialized.
+ */
+class PointImage extends AbstractImage {
+
+  private final AbstractImage source;
+
+  private final UnaryOperator<Pixel> function;
+
+  /**
+   * The function run by the planar kernels on a whole grid, or null if there is none.
+   */
+  private final Function<RGBImage, RGBImage> planar;
+
+  /**
+   * Creates the view of the source image with the function applied.
+   *
+   * @param source   The image the function is applied to.
+   * @param function The function of a pixel.
+   * @param planar   The same function run by the planar kernels on a whole grid, or null if there
+   *                 is none.
+   */
+  PointImage(AbstractImage source, UnaryOperator<Pixel> function,
+             Function<RGBImage, RGBImage> planar) {
+    this.source = source;
+    this.function = function;
+    this.planar = planar;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  Image map(UnaryOperator<Pixel> function, Function<RGBImage, RGBImage> planar) {
+    UnaryOperator<Pixel> first = this.function;
+    return new PointImage(source, pixel -> function.apply(first.apply(pixel)), null);
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    return function.apply(source.getPixelUtil(i, j));
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || source.uses(image);
+  }
+
+  @Override
+  boolean isDeferred() {
+    return source.isDeferred();
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    boolean isWhole = row == 0 && col == 0 && height == getHeight() && width == getWidth();
+    if (planar != null && PointKernels.ENABLED && isWhole) {
+      RGBImage grid = source.materialize();
+      RGBImage result = planar.apply(grid);
+      source.releaseGrid(grid);
+      return result;
+    }
+
+    // the copy of the source belongs to this view, so the function is applied in place.
+    RGBImage result = source.copyRegion(row, col, height, width);
+    TileScheduler.forEachRows(height, width, (from, to) -> {
+      for (int i = from; i < to; ++i) {
+        for (int j = 0; j < width; ++j) {
+          result.setPixel(i, j, function.apply(result.getPixelUtil(i, j)));
+        }
+      }
+    });
+    return result;
+  }
+}
@@ -0,0 +1,119 @@
+package model;
+
+/**
+ * The kernels of the point operations which combine the channels of a pixel, like the color
+ * matrices, run over the planar channel arrays of an RGB image. Every kernel is a single counted
+ * loop over primitive arrays with no objects or branches in its body, which the JIT compiler can
+ * unroll and turn into SIMD code. The kernels evaluate the exact same double expressions in the
+ * same order as the methods of the pixel, so their results, including the truncation of the casts,
+ * are identical to the pixel ones. The offset of a color matrix row is added last, and adding the
+ * zero offset of the sepia and the luma leaves the sum unchanged. The kernels can be turned off by
+ * running with {@code -Dimage.kernels=scalar}, in which case the images fall back to the
+ * operations of the pixels.
+ */
+final class PointKernels {
+
+  /**
+   * Whether the images should use these kernels instead of the operations of the pixels.
+   */
+  static final boolean ENABLED = !"scalar".equals(System.getProperty("image.kernels"));
+
+  private PointKernels() {
+  }
+
+  /**
+   * Computes the linear combination of the channels with the given coefficients and offset for
+   * every pixel. The result is truncated to an int and clamped between 0 and 255.
+   *
+   * @param coefficients The coefficients of the red, green and blue values and the offset.
+   * @param red          The red values of the pixels.
+   * @param green        The green values of the pixels.
+   * @param blue         The blue values of the pixels.
+   * @param result       The array the combined values are written to.
+   */
+  static void combine(double[] coefficients, int[] red, int[] green, int[] blue, int[] result) {
+    combine(coefficients, red, green, blue, result, 0, result.length);
+  }
+
+  /**
+   * Computes the linear combination of the channels with the given coefficients and offset for
+   * the pixels of a range, for the tiles of a larger image.
+   *
+   * @param coefficients The coefficients of the red, green and blue values and the offset.
+   * @param red          The red values of the pixels.
+   * @param green        The green values of the pixels.
+   * @param blue         The blue values of the pixels.
+   * @param result       The array the combined values are written to.
+   * @param from         The position of the first pixel of the range.
+   * @param to           The position after the last pixel of the range.
+   */
+  static void combine(double[] coefficients, int[] red, int[] green, int[] blue, int[] result,
+                      int from, int to) {
+    double r = coefficients[0];
+    double g = coefficients[1];
+    double b = coefficients[2];
+    double offset = coefficients[3];
+    for (int k = from; k < to; k++) {
+      int value = (int) (r * red[k] + g * green[k] + b * blue[k] + offset);
+      result[k] = Math.min(Math.max(value, 0), 255);
+    }
+  }
+
+  /**
+   * Computes the average of the channels for every pixel.
+   *
+   * @param red    The red values of the pixels.
+   * @param green  The green values of the pixels.
+   * @param blue   The blue values of the pixels.
+   * @param result The array the averages are written to.
+   */
+  static void intensity(int[] red, int[] green, int[] blue, int[] result) {
+    intensity(red, green, blue, result, 0, result.length);
+  }
+
+  /**
+   * Computes the average of the channels for the pixels of a range, for the tiles of a larger
+   * image.
+   *
+   * @param red    The red values of the pixels.
+   * @param green  The green values of the pixels.
+   * @param blue   The blue values of the pixels.
+   * @param result The array the averages are written to.
+   * @param from   The position of the first pixel of the range.
+   * @param to     The position after the last pixel of the range.
+   */
+  static void intensity(int[] red, int[] green, int[] blue, int[] result, int from, int to) {
+    for (int k = from; k < to; k++) {
+      result[k] = (red[k] + green[k] + blue[k]) / 3;
+    }
+  }
+
+  /**
+   * Computes the maximum of the channels for every pixel.
+   *
+   * @param red    The red values of the pixels.
+   * @param green  The green values of the pixels.
+   * @param blue   The blue values of the pixels.
+   * @param result The array the maximums are written to.
+   */
+  static void value(int[] red, int[] green, int[] blue, int[] result) {
+    value(red, green, blue, result, 0, result.length);
+  }
+
+  /**
+   * Computes the maximum of the channels for the pixels of a range, for the tiles of a larger
+   * image.
+   *
+   * @param red    The red values of the pixels.
+   * @param green  The green values of the pixels.
+   * @param blue   The blue values of the pixels.
+   * @param result The array the maximums are written to.
+   * @param from   The position of the first pixel of the range.
+   * @param to     The position after the last pixel of the range.
+   */
+  static void value(int[] red, int[] green, int[] blue, int[] result, int from, int to) {
+    for (int k = from; k < to; k++) {
+      result[k] = Math.max(red[k], Math.max(green[k], blue[k]));
+    }
+  }
+}
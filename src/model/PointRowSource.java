@@ -0,0 +1,87 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Applies a point operation to the rows of another source, with the same planar kernels as the
+ * images, so that the values are the same as the operation on the whole image. The operation is
+ * either a color matrix, or the value or the intensity, which are written to every channel.
+ */
+class PointRowSource implements RowSource {
+
+  private final RowSource source;
+
+  private final double[][] matrix;
+
+  private final boolean isValue;
+
+  private final int[] red;
+
+  private final int[] green;
+
+  private final int[] blue;
+
+  /**
+   * Creates the source which applies a color matrix.
+   *
+   * @param source The source of the rows.
+   * @param matrix The matrix of three rows, each with the red, green and blue coefficients and
+   *               the offset.
+   */
+  PointRowSource(RowSource source, double[][] matrix) {
+    this(source, matrix, false);
+  }
+
+  /**
+   * Creates the source which writes the value or the intensity to every channel.
+   *
+   * @param source  The source of the rows.
+   * @param isValue True for the value, false for the intensity.
+   */
+  PointRowSource(RowSource source, boolean isValue) {
+    this(source, null, isValue);
+  }
+
+  private PointRowSource(RowSource source, double[][] matrix, boolean isValue) {
+    this.source = source;
+    this.matrix = matrix;
+    this.isValue = isValue;
+    this.red = new int[source.getWidth()];
+    this.green = new int[source.getWidth()];
+    this.blue = new int[source.getWidth()];
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public void readRow(int[] red, int[] green, int[] blue) throws IOException {
+    source.readRow(this.red, this.green, this.blue);
+    if (matrix != null) {
+      PointKernels.combine(matrix[0], this.red, this.green, this.blue, red);
+      PointKernels.combine(matrix[1], this.red, this.green, this.blue, green);
+      PointKernels.combine(matrix[2], this.red, this.green, this.blue, blue);
+      return;
+    }
+
+    if (isValue) {
+      PointKernels.value(this.red, this.green, this.blue, red);
+    } else {
+      PointKernels.intensity(this.red, this.green, this.blue, red);
+    }
+    System.arraycopy(red, 0, green, 0, red.length);
+    System.arraycopy(red, 0, blue, 0, red.length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+}
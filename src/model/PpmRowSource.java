@@ -0,0 +1,126 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the rows of a plain PPM file as they are needed, instead of the whole file at once. Like
+ * the loader of the RGB image, the lines which start with a # are comments, and the values are
+ * clamped between 0 and 255.
+ */
+class PpmRowSource implements RowSource {
+
+  private final String path;
+
+  private final Reader reader;
+
+  private final int width;
+
+  private final int height;
+
+  private boolean isLineStart;
+
+  /**
+   * Opens the file and reads its header.
+   *
+   * @param path The path of the PPM file.
+   * @throws IOException if the file could not be read or is not a plain PPM file.
+   */
+  PpmRowSource(String path) throws IOException {
+    this.path = path;
+    this.reader = new BufferedReader(new FileReader(path), 1 << 16);
+    this.isLineStart = true;
+    try {
+      if (nextInt('P') != 3) {
+        throw new IOException("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      this.width = nextInt(-1);
+      this.height = nextInt(-1);
+      nextInt(-1);
+    } catch (IOException e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void readRow(int[] red, int[] green, int[] blue) throws IOException {
+    for (int j = 0; j < width; j++) {
+      red[j] = Math.min(Math.max(nextInt(-1), 0), 255);
+      green[j] = Math.min(Math.max(nextInt(-1), 0), 255);
+      blue[j] = Math.min(Math.max(nextInt(-1), 0), 255);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * Reads the next integer, skipping the white space and the comment lines before it.
+   *
+   * @param prefix The character the integer should start with, or -1 if there is none.
+   * @return The integer.
+   * @throws IOException if the file could not be read or the next value is not an integer.
+   */
+  private int nextInt(int prefix) throws IOException {
+    int c = read();
+    while (Character.isWhitespace(c)) {
+      c = read();
+    }
+    if (prefix >= 0) {
+      if (c != prefix) {
+        throw new IOException("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      c = read();
+    }
+
+    boolean negative = c == '-';
+    if (negative) {
+      c = read();
+    }
+    if (c < '0' || c > '9') {
+      throw new IOException("Invalid PPM file: " + path);
+    }
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      value = Math.min(value * 10 + c - '0', Integer.MAX_VALUE);
+      c = read();
+    }
+    if (c >= 0 && !Character.isWhitespace(c)) {
+      throw new IOException("Invalid PPM file: " + path);
+    }
+    return (int) (negative ? -value : value);
+  }
+
+  /**
+   * Reads the next character which is not in a comment line.
+   *
+   * @return The character, or -1 at the end of the file.
+   * @throws IOException if the file could not be read.
+   */
+  private int read() throws IOException {
+    int c = reader.read();
+    while (isLineStart && c == '#') {
+      while (c >= 0 && c != '\n') {
+        c = reader.read();
+      }
+      c = reader.read();
+    }
+    isLineStart = c == '\n';
+    return c;
+  }
+}
@@ -1,35 +1,54 @@
 package model;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Scanner;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 /**
  * The RGB image class. Has pixels which have three channels representing the three color channels.
- * All the pixels are stored in a grid of pixels, making up the image. Information regarding the
- * image height and the width is also stored and used in multiple methods of the RGB Image.
+ * The channels are stored in three planar arrays in row major order, so that the point operations
+ * can run over plain int arrays instead of pixel objects. Information regarding the image height
+ * and the width is also stored and used in multiple methods of the RGB Image. This is the
+ * contiguous image which the views of other images are materialized into.
  */
-public class RGBImage implements Image {
+public class RGBImage extends AbstractImage {
 
   private final int height;
 
   private final int width;
 
-  private final Pixel[][] pixelGrid;
+  private final int[] red;
+
+  private final int[] green;
+
+  private final int[] blue;
 
   /**
-   * The constructor method of the RGB Image. This method takes in the image source path as an
-   * input. This loads image data from a specified file location. Location should include the image
-   * name as well and stores the pixel information in the grid.
+   * The constructor method of the RGB Image which takes in the channel values of the image. The
+   * values are in row major order and between 0 and 255.
+   *
+   * @param height The height of the image.
+   * @param width  The width of the image.
+   * @param red    The red values of the pixels.
+   * @param green  The green values of the pixels.
+   * @param blue   The blue values of the pixels.
    */
-  private RGBImage(int height, int width, Pixel[][] pixelGrid) {
+  private RGBImage(int height, int width, int[] red, int[] green, int[] blue) {
     this.height = height;
     this.width = width;
-    this.pixelGrid = pixelGrid;
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
   }
 
   /**
@@ -39,10 +58,9 @@ public class RGBImage implements Image {
    * @param height The height of the image.
    * @param width  The width of the image.
    */
-  private RGBImage(int height, int width) {
-    pixelGrid = new Pixel[height][width];
-    this.height = height;
-    this.width = width;
+  RGBImage(int height, int width) {
+    this(height, width, PixelPool.takeChannel(height * width),
+            PixelPool.takeChannel(height * width), PixelPool.takeChannel(height * width));
   }
 
   /**
@@ -56,16 +74,96 @@ public class RGBImage implements Image {
 
   /**
    * A static builder class to load the RGBImage class from various files and types like ppm, jpg,
-   * png or even a buffered image.
+   * png or even a buffered image. Only a region of the image can be loaded, and the image can be
+   * subsampled, keeping one pixel out of the scale along the rows and the columns. The files are
+   * then only decoded as far as needed, and only the kept pixels are stored.
    */
   public static class ImageLoader {
 
     private int height;
     private int width;
-    private Pixel[][] pixelGrid;
+
+    private int scale;
+    private int maxSize;
+    private Rectangle region;
 
     private ImageLoader() {
+      this.scale = 1;
+      this.maxSize = 0;
+      this.region = null;
+    }
+
+    /**
+     * Subsamples the loaded image, keeping the pixels whose row and column in the loaded region
+     * are multiples of the scale.
+     *
+     * @param scale The scale, 1 to keep every pixel.
+     * @return This loader.
+     * @throws IllegalArgumentException if the scale is not positive.
+     */
+    public ImageLoader withScale(int scale) {
+      if (scale < 1) {
+        throw new IllegalArgumentException("The scale should be positive");
+      }
+      this.scale = scale;
+      return this;
+    }
+
+    /**
+     * Subsamples the loaded image at the smallest scale, at least the one given, which makes it
+     * fit in a square of the given size.
+     *
+     * @param maxSize The largest height and width of the loaded image.
+     * @return This loader.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public ImageLoader withMaxSize(int maxSize) {
+      if (maxSize < 1) {
+        throw new IllegalArgumentException("The preview size should be positive");
+      }
+      this.maxSize = maxSize;
+      return this;
+    }
+
+    /**
+     * Only loads a region of the image.
+     *
+     * @param row    The first row of the region.
+     * @param col    The first column of the region.
+     * @param height The number of rows in the region.
+     * @param width  The number of columns in the region.
+     * @return This loader.
+     * @throws IllegalArgumentException if the position or the size is negative.
+     */
+    public ImageLoader withRegion(int row, int col, int height, int width) {
+      if (row < 0 || col < 0 || height < 0 || width < 0) {
+        throw new IllegalArgumentException("The region is outside the image");
+      }
+      this.region = new Rectangle(col, row, width, height);
+      return this;
+    }
 
+    /**
+     * Applies the region and the scale of this loader to an image which is already loaded, for the
+     * files which can only be decoded whole.
+     *
+     * @param image The loaded image.
+     * @return The region of the image at the scale, or the image itself without them.
+     * @throws IllegalArgumentException if the region is outside the image.
+     */
+    public Image loadFromImage(Image image) {
+      if (!hasOptions()) {
+        return image;
+      }
+      Rectangle area = getArea(image.getHeight(), image.getWidth());
+      int step = getStep(area);
+      RGBImage result = new RGBImage(getLength(area.height, step), getLength(area.width, step));
+      for (int i = 0; i < result.height; i++) {
+        for (int j = 0; j < result.width; j++) {
+          result.setPixel(i, j, image.getPixel(area.y + i * step, area.x + j * step));
+        }
+      }
+      return result;
     }
 
     /**
@@ -76,6 +174,11 @@ public class RGBImage implements Image {
      * @throws IOException if file reading produces exception
      */
     public Image loadFromPPM(String filename) throws IOException {
+      if (hasOptions()) {
+        return loadFromPPMRows(filename);
+      }
+      ImageIOEvent event = new ImageIOEvent();
+      event.begin();
       Scanner sc;
 
       sc = new Scanner(new FileInputStream(filename));
@@ -101,18 +204,20 @@ public class RGBImage implements Image {
       this.width = sc.nextInt();
       this.height = sc.nextInt();
       int maxValue = sc.nextInt();
-      pixelGrid = new Pixel[height][width];
+      RGBImage image = new RGBImage(height, width);
 
       for (int i = 0; i < height; i++) {
         for (int j = 0; j < width; j++) {
           int r = sc.nextInt();
           int g = sc.nextInt();
           int b = sc.nextInt();
-          pixelGrid[i][j] = new Pixel(r, g, b);
+          image.setPixel(i, j, new Pixel(r, g, b));
         }
       }
 
-      return new RGBImage(height, width, pixelGrid);
+      event.end();
+      event.commit("load", filename, "ppm", image);
+      return image;
     }
 
     /**
@@ -123,342 +228,389 @@ public class RGBImage implements Image {
      * @throws IOException if file reading produces exception
      */
     public Image loadFromPngOrJpg(String filename) throws IOException {
-      BufferedImage image = ImageIO.read(new File(filename));
-      return getRgbImageFromBufferedImage(image);
+      ImageIOEvent event = new ImageIOEvent();
+      event.begin();
+      BufferedImage bufferedImage = hasOptions() ? readRegion(filename)
+              : ImageIO.read(new File(filename));
+      Image image = getRgbImageFromBufferedImage(bufferedImage);
+      event.end();
+      event.commit("load", filename, filename.substring(filename.lastIndexOf('.') + 1), image);
+      return image;
     }
 
     /**
-     * Load the image from a buffered image by fetching the rgb values.
+     * Decodes the region of a png or jpg file at the scale, with the source region and the source
+     * subsampling of an image reader, so that the rows below the region are not decoded and the
+     * skipped pixels are not stored.
      *
-     * @param bufferedImage buffered image object to be read from
-     * @return new RGBImage model with values from given file
+     * @param filename file path for the file to be fetched
+     * @return The decoded region.
+     * @throws IOException if file reading produces exception
      */
-    public Image loadFromBufferedImage(BufferedImage bufferedImage) {
-      return getRgbImageFromBufferedImage(bufferedImage);
+    private BufferedImage readRegion(String filename) throws IOException {
+      try (ImageInputStream input = ImageIO.createImageInputStream(new File(filename))) {
+        Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+        if (readers == null || !readers.hasNext()) {
+          throw new IOException("Unsupported image file: " + filename);
+        }
+        ImageReader reader = readers.next();
+        try {
+          reader.setInput(input, true, true);
+          Rectangle area = getArea(reader.getHeight(0), reader.getWidth(0));
+          int step = getStep(area);
+          ImageReadParam param = reader.getDefaultReadParam();
+          param.setSourceRegion(area);
+          param.setSourceSubsampling(step, step, 0, 0);
+          return reader.read(0, param);
+        } finally {
+          reader.dispose();
+        }
+      }
     }
 
-    private Image getRgbImageFromBufferedImage(BufferedImage image) {
-      this.width = image.getWidth();
-      this.height = image.getHeight();
-      pixelGrid = new Pixel[height][width];
-
-      for (int x = 0; x < height; x++) {
-        for (int y = 0; y < width; y++) {
-          int rgb = image.getRGB(y, x);
-          Pixel p = new Pixel((rgb >> 16) & 0xFF,
-                  (rgb >> 8) & 0xFF,
-                  rgb & 0xFF);
-          pixelGrid[x][y] = p;
+    /**
+     * Reads the rows of a ppm file one at a time, and only keeps the pixels of the region at the
+     * scale. The rows below the region are not read.
+     *
+     * @param filename file path for the file to be fetched
+     * @return new RGBImage model with values from given file
+     * @throws IOException if file reading produces exception
+     */
+    private Image loadFromPPMRows(String filename) throws IOException {
+      ImageIOEvent event = new ImageIOEvent();
+      event.begin();
+      RGBImage image;
+      try (RowSource source = new PpmRowSource(filename)) {
+        Rectangle area = getArea(source.getHeight(), source.getWidth());
+        int step = getStep(area);
+        image = new RGBImage(getLength(area.height, step), getLength(area.width, step));
+        int[] r = new int[source.getWidth()];
+        int[] g = new int[source.getWidth()];
+        int[] b = new int[source.getWidth()];
+        for (int i = 0; i < area.y + area.height; i++) {
+          source.readRow(r, g, b);
+          if (i < area.y || (i - area.y) % step != 0) {
+            continue;
+          }
+          int k = (i - area.y) / step * image.width;
+          for (int j = 0; j < image.width; j++) {
+            int y = area.x + j * step;
+            image.red[k + j] = r[y];
+            image.green[k + j] = g[y];
+            image.blue[k + j] = b[y];
+          }
         }
       }
-
-      return new RGBImage(height, width, pixelGrid);
+      event.end();
+      event.commit("load", filename, "ppm", image);
+      return image;
     }
-  }
 
-  @Override
-  public int getHeight() {
-    return height;
-  }
-
-  @Override
-  public int getWidth() {
-    return width;
-  }
-
-  @Override
-  public Pixel getPixel(int i, int j) {
-    if (invalidIndices(i, j)) {
-      return new Pixel(0, 0, 0);
+    private boolean hasOptions() {
+      return scale > 1 || maxSize > 0 || region != null;
     }
-    return getPixelUtil(i, j);
-  }
 
-  @Override
-  public Image redComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithRed());
+    /**
+     * Gets the region to load from an image of the given size.
+     *
+     * @param height The height of the image.
+     * @param width  The width of the image.
+     * @return The region, the whole image if none was given.
+     * @throws IllegalArgumentException if the region is outside the image.
+     */
+    private Rectangle getArea(int height, int width) {
+      if (region == null) {
+        return new Rectangle(0, 0, width, height);
       }
-    }
-    return newImage;
-  }
-
-  @Override
-  public Image greenComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithGreen());
+      if (region.y + region.height > height || region.x + region.width > width) {
+        throw new IllegalArgumentException("The region is outside the image");
       }
-    }
-    return newImage;
-  }
-
-  @Override
-  public Image blueComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithBlue());
+      if (region.width == 0 || region.height == 0) {
+        throw new IllegalArgumentException("The region should not be empty");
       }
+      return region;
     }
-    return newImage;
-  }
 
-  @Override
-  public Image valueComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithValueComp());
+    /**
+     * Gets the scale at which a region is loaded, the smallest one from the given scale which fits
+     * the region in the largest size.
+     */
+    private int getStep(Rectangle area) {
+      if (maxSize == 0) {
+        return scale;
       }
+      return Math.max(scale, getLength(Math.max(area.height, area.width), maxSize));
     }
-    return newImage;
-  }
 
-  @Override
-  public Image intensityComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithIntensityComp());
-      }
+    /**
+     * Gets the number of pixels kept out of a length at a scale, rounded up.
+     */
+    private static int getLength(int length, int step) {
+      return (length + step - 1) / step;
     }
-    return newImage;
-  }
 
-  @Override
-  public Image lumaComponent() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).getPixelWithLumaComp());
-      }
+    /**
+     * Load the image from a buffered image by fetching the rgb values.
+     *
+     * @param bufferedImage buffered image object to be read from
+     * @return new RGBImage model with values from given file
+     */
+    public Image loadFromBufferedImage(BufferedImage bufferedImage) {
+      return getRgbImageFromBufferedImage(bufferedImage);
     }
-    return newImage;
-  }
 
-  @Override
-  public Image horizontalFlip() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; i++) {
-      for (int j = width - 1; j >= 0; j--) {
-        newImage.setPixel(i, width - 1 - j, getPixelUtil(i, j));
+    private Image getRgbImageFromBufferedImage(BufferedImage image) {
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      int[] rgbValues = image.getRGB(0, 0, width, height, null, 0, width);
+      int[] red = PixelPool.takeChannel(height * width);
+      int[] green = PixelPool.takeChannel(height * width);
+      int[] blue = PixelPool.takeChannel(height * width);
+
+      for (int k = 0; k < rgbValues.length; k++) {
+        int rgb = rgbValues[k];
+        red[k] = (rgb >> 16) & 0xFF;
+        green[k] = (rgb >> 8) & 0xFF;
+        blue[k] = rgb & 0xFF;
       }
+
+      return new RGBImage(height, width, red, green, blue);
     }
-    return newImage;
   }
 
   @Override
-  public Image verticalFlip() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = height - 1; i >= 0; i--) {
-      for (int j = 0; j < width; j++) {
-        newImage.setPixel(height - 1 - i, j, getPixelUtil(i, j));
-      }
-    }
-    return newImage;
+  public int getHeight() {
+    return height;
   }
 
   @Override
-  public Image brighten(int brightnessValue) {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).brighten(brightnessValue));
-      }
-    }
-    return newImage;
+  public int getWidth() {
+    return width;
   }
 
   @Override
-  public Image blur() {
-
-    double[][] kernel;
-    kernel = new double[][]{{0.0625, 0.125, 0.0625},
-                            {0.125, 0.25, 0.125},
-                            {0.0625, 0.125, 0.0625}};
-    return this.getConvolutedImageOfThis(kernel);
+  Pixel getPixelUtil(int i, int j) {
+    int k = i * width + j;
+    return new Pixel(red[k], green[k], blue[k]);
   }
 
   @Override
-  public Image sharpen() {
-
-    double[][] kernel;
-    kernel = new double[][]{{-0.125, -0.125, -0.125, -0.125, -0.125},
-                            {-0.125, 0.25, 0.25, 0.25, -0.125},
-                            {-0.125, 0.25, 1, 0.25, -0.125},
-                            {-0.125, 0.25, 0.25, 0.25, -0.125},
-                            {-0.125, -0.125, -0.125, -0.125, -0.125}};
-    return this.getConvolutedImageOfThis(kernel);
+  RGBImage materialize() {
+    return this;
   }
 
   @Override
-  public Image toSepia() {
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        newImage.setPixel(i, j, getPixelUtil(i, j).toSepia());
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    RGBImage result = new RGBImage(height, width);
+    TileScheduler.forEachRows(height, width, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int k = (row + i) * this.width + col;
+        System.arraycopy(red, k, result.red, i * width, width);
+        System.arraycopy(green, k, result.green, i * width, width);
+        System.arraycopy(blue, k, result.blue, i * width, width);
       }
-    }
-    return newImage;
+    });
+    return result;
   }
 
   @Override
-  public Image rgbCombine(Image redImage, Image greenImage, Image blueImage) {
-    RGBImage newImage = new RGBImage(getMax(redImage.getHeight(), greenImage.getHeight(),
-            blueImage.getHeight()), getMax(redImage.getWidth(), greenImage.getWidth(),
-            blueImage.getWidth()));
-
-    for (int i = 0; i < newImage.getHeight(); i++) {
-      for (int j = 0; j < newImage.getWidth(); j++) {
-        Pixel p = new Pixel(redImage.getPixel(i, j).getRed(),
-                greenImage.getPixel(i, j).getGreen(), blueImage.getPixel(i, j).getBlue());
-        newImage.setPixel(i, j, p);
-      }
-    }
-
-    return newImage;
+  void releasePixels() {
+    PixelPool.give(red);
+    PixelPool.give(green);
+    PixelPool.give(blue);
   }
 
-  @Override
-  public Image levelsAdjust(int b, int m, int w) {
+  /**
+   * Method to generate a new image which is convoluted with a kernel. Only the given region of this
+   * image is convoluted, the pixels around the region are still used as its neighbours. The large
+   * kernels are convoluted in the frequency domain when that is cheaper.
+   *
+   * @param kernel       The kernel which should be convoluted on the image.
+   * @param row          The first row of the region.
+   * @param col          The first column of the region.
+   * @param regionHeight The number of rows in the region.
+   * @param regionWidth  The number of columns in the region.
+   * @return The new image object with the size of the region.
+   */
+  RGBImage getConvolutedImageOfThis(double[][] kernel, int row, int col, int regionHeight,
+                                    int regionWidth) {
 
-    double ao = (b * b * (m - w)) - (b * (m * m - w * w)) + (w * m * m) - (m * w * w);
-    double aa = (b * 127) + (128 * w) - (255 * m);
-    double ab = (b * b * (-127)) + (255 * m * m) - (128 * w * w);
-    double ac = (b * b * (255 * m - 128 * w)) - (b * (255 * m * m - 128 * w * w));
+    RGBImage resultImage = new RGBImage(regionHeight, regionWidth);
 
-    double p = aa / ao;
-    double q = ab / ao;
-    double r = ac / ao;
+    if (FftConvolver.isCheaper(kernel.length)) {
+      FftConvolver.convolve(new int[][]{red, green, blue}, height, width, kernel, row, col,
+              regionHeight, regionWidth,
+              new int[][]{resultImage.red, resultImage.green, resultImage.blue});
+      return resultImage;
+    }
 
-    return getLevelsAdjustedImage(p, q, r);
-  }
+    // every pixel of a row multiplies the whole kernel.
+    int rowCost = regionWidth * kernel.length * kernel.length;
+    TileScheduler.forEachRows(regionHeight, rowCost, (from, to) -> {
+      for (int x = from; x < to; x++) {
+        for (int y = 0; y < regionWidth; y++) {
 
-  @Override
-  public Image colorCorrect() {
-
-    int a = 0;
-    int b = 0;
-    int c = 0;
-
-    int redMax = 0;
-    int greenMax = 0;
-    int blueMax = 0;
-
-    int[] redValues = new int[256];
-    int[] greenValues = new int[256];
-    int[] blueValues = new int[256];
-
-    for (int x = 0; x < height; x++) {
-      for (int y = 0; y < width; y++) {
-        Pixel p = getPixelUtil(x, y);
-        redValues[p.getRed()]++;
-        greenValues[p.getGreen()]++;
-        blueValues[p.getBlue()]++;
-
-        if (isMeaningfulPeak(p.getRed()) && redValues[p.getRed()] > redMax) {
-          redMax = redValues[p.getRed()];
-          a = p.getRed();
-        }
-        if (isMeaningfulPeak(p.getGreen()) && greenValues[p.getGreen()] > greenMax) {
-          greenMax = greenValues[p.getGreen()];
-          b = p.getGreen();
-        }
-        if (isMeaningfulPeak(p.getBlue()) && blueValues[p.getBlue()] > blueMax) {
-          blueMax = blueValues[p.getBlue()];
-          c = p.getBlue();
+          Pixel p = multiplyKernelAndPixel(row + x, col + y, kernel);
+          resultImage.setPixel(x, y, p);
         }
       }
-    }
+    });
 
-    int avg = (a + b + c) / 3;
-
-
-    return offset(avg - a, avg - b, avg - c);
+    return resultImage;
   }
 
-  @Override
-  public Image getSplitView(Image image, int split) {
-    RGBImage rgbImage = new RGBImage(height, width);
-    int boundary = (split * width / 100);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        if (j >= boundary) {
-          rgbImage.setPixel(i, j, image.getPixel(i, j));
-        } else {
-          rgbImage.setPixel(i, j, this.getPixelUtil(i, j));
+  /**
+   * Method to generate a new image which is blurred by three passes of a box blur. Only the given
+   * region of this image is blurred, the pixels around the region are still used as its
+   * neighbours. Each pass averages the values along the rows and then along the columns with a
+   * running sum, so the cost per pixel does not depend on the radius. As every pass spreads a value
+   * by the radius, only the pixels at most three radii away from the region are blurred.
+   *
+   * @param radius       The radius of the box.
+   * @param row          The first row of the region.
+   * @param col          The first column of the region.
+   * @param regionHeight The number of rows in the region.
+   * @param regionWidth  The number of columns in the region.
+   * @return The new image object with the size of the region.
+   */
+  RGBImage getBoxBlurredImageOfThis(int radius, int row, int col, int regionHeight,
+                                    int regionWidth) {
+    radius = Math.min(radius, Math.max(height, width));
+    int top = Math.max(0, row - 3 * radius);
+    int left = Math.max(0, col - 3 * radius);
+    int areaHeight = Math.min(height, row + regionHeight + 3 * radius) - top;
+    int areaWidth = Math.min(width, col + regionWidth + 3 * radius) - left;
+
+    RGBImage resultImage = new RGBImage(regionHeight, regionWidth);
+    int[][] channels = {red, green, blue};
+    int[][] resultChannels = {resultImage.red, resultImage.green, resultImage.blue};
+    double[] values = new double[areaHeight * areaWidth];
+    int boxRadius = radius;
+
+    for (int c = 0; c < channels.length; c++) {
+      int[] channel = channels[c];
+      int[] resultChannel = resultChannels[c];
+      for (int x = 0; x < areaHeight; x++) {
+        for (int y = 0; y < areaWidth; y++) {
+          values[x * areaWidth + y] = channel[(top + x) * width + left + y];
         }
       }
+
+      // the lines of a pass are independent, so the rows and then the columns are cut into tiles.
+      for (int pass = 0; pass < 3; pass++) {
+        TileScheduler.forEachRows(areaHeight, areaWidth, (from, to) -> {
+          double[] line = new double[areaWidth];
+          for (int x = from; x < to; x++) {
+            boxBlurLine(values, x * areaWidth, 1, areaWidth, boxRadius, line);
+          }
+        });
+        TileScheduler.forEachRows(areaWidth, areaHeight, (from, to) -> {
+          double[] line = new double[areaHeight];
+          for (int y = from; y < to; y++) {
+            boxBlurLine(values, y, areaWidth, areaHeight, boxRadius, line);
+          }
+        });
+      }
+
+      TileScheduler.forEachRows(regionHeight, regionWidth, (from, to) -> {
+        for (int x = from; x < to; x++) {
+          for (int y = 0; y < regionWidth; y++) {
+            double value = values[(row - top + x) * areaWidth + col - left + y];
+            resultChannel[x * regionWidth + y] = (int) Math.round(value);
+          }
+        }
+      });
     }
-    return rgbImage;
+    return resultImage;
   }
 
-
   /**
-   * Runs through the image and generates the new levels adjusted image.
+   * Replaces the values along a line of the array by their averages over the box around them. The
+   * positions of the box outside the line are left out of the average.
    *
-   * @param p The x square coefficient in the transformation.
-   * @param q The x coefficient in the transformation.
-   * @param r The constant factor in the transformation.
-   * @return new image with the levels adjusted accordingly.
+   * @param values The values of the area.
+   * @param start  The position of the first value of the line.
+   * @param step   The distance between two values of the line.
+   * @param length The number of values in the line.
+   * @param radius The radius of the box.
+   * @param line   The array the line is copied to, with at least the length of the line.
    */
-  private Image getLevelsAdjustedImage(double p, double q, double r) {
-
-    RGBImage newImage = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
+  private static void boxBlurLine(double[] values, int start, int step, int length, int radius,
+                                  double[] line) {
+    for (int k = 0; k < length; k++) {
+      line[k] = values[start + k * step];
+    }
 
-        newImage.setPixel(i, j, getPixelUtil(i, j).levelsAdjust(p, q, r));
+    double sum = 0;
+    for (int k = 0; k < Math.min(radius, length - 1) + 1; k++) {
+      sum += line[k];
+    }
+    for (int k = 0; k < length; k++) {
+      int count = Math.min(length - 1, k + radius) - Math.max(0, k - radius) + 1;
+      values[start + k * step] = sum / count;
+      if (k + radius + 1 < length) {
+        sum += line[k + radius + 1];
+      }
+      if (k - radius >= 0) {
+        sum -= line[k - radius];
       }
     }
-    return newImage;
   }
 
   /**
-   * Helper method to determine whether a specific position is inside the image boundaries.
+   * Method to generate a new image with a color matrix applied to every pixel of this image. The
+   * planar kernels compute each channel of the new image, and the channels with the same row of
+   * the matrix as an earlier channel are copied from it instead.
    *
-   * @param i The position of the object row-wise.
-   * @param j The position of the object column-wise.
-   * @return Boolean result. True if the position is inside the image boundaries. False if no.
+   * @param matrix The matrix of three rows, each with the red, green and blue coefficients and
+   *               the offset.
+   * @return The new image object.
    */
-  private boolean invalidIndices(int i, int j) {
-    return i < 0 || i >= height || j < 0 || j >= width;
+  RGBImage getColorTransformedImageOfThis(double[][] matrix) {
+    RGBImage resultImage = new RGBImage(height, width);
+    int[][] channels = {resultImage.red, resultImage.green, resultImage.blue};
+
+    for (int c = 0; c < channels.length; c++) {
+      int same = 0;
+      while (same < c && !Arrays.equals(matrix[same], matrix[c])) {
+        same++;
+      }
+      if (same < c) {
+        System.arraycopy(channels[same], 0, channels[c], 0, channels[c].length);
+      } else {
+        int[] channel = channels[c];
+        double[] coefficients = matrix[c];
+        TileScheduler.forEachRows(height, width, (from, to) -> PointKernels.combine(coefficients,
+                red, green, blue, channel, from * width, to * width));
+      }
+    }
+    return resultImage;
   }
 
   /**
-   * Helper method to retrieve the pixel at a position in the image.
+   * Method to generate a new greyscale image of the value component of every pixel of this image,
+   * computed by the planar kernels.
    *
-   * @param i The position of the pixel along the row.
-   * @param j The position of the pixel along the column.
-   * @return The pixel object present at the position.
+   * @return The new image object.
    */
-  private Pixel getPixelUtil(int i, int j) {
-    return pixelGrid[i][j];
+  RGBImage getValueImageOfThis() {
+    RGBImage newImage = new RGBImage(height, width);
+    TileScheduler.forEachRows(height, width, (from, to) ->
+            PointKernels.value(red, green, blue, newImage.red, from * width, to * width));
+    return newImage.withGreyChannels();
   }
 
   /**
-   * Method to generate a new image which is convoluted with a kernel.
+   * Method to generate a new greyscale image of the intensity component of every pixel of this
+   * image, computed by the planar kernels.
    *
-   * @param kernel The kernel which should be convoluted on the image.
    * @return The new image object.
    */
-  private Image getConvolutedImageOfThis(double[][] kernel) {
-
-    RGBImage resultImage = new RGBImage(height, width);
-
-    for (int x = 0; x < height; x++) {
-      for (int y = 0; y < width; y++) {
-
-        Pixel p = multiplyKernelAndPixel(x, y, kernel);
-        resultImage.setPixel(x, y, p);
-      }
-    }
-
-    return resultImage;
+  RGBImage getIntensityImageOfThis() {
+    RGBImage newImage = new RGBImage(height, width);
+    TileScheduler.forEachRows(height, width, (from, to) ->
+            PointKernels.intensity(red, green, blue, newImage.red, from * width, to * width));
+    return newImage.withGreyChannels();
   }
 
   /**
@@ -490,30 +642,33 @@ public class RGBImage implements Image {
     return new Pixel((int) cnv_red_double, (int) cnv_green_double, (int) cnv_blue_double);
   }
 
-  private Image offset(int r, int g, int b) {
-    RGBImage image = new RGBImage(height, width);
-    for (int i = 0; i < height; ++i) {
-      for (int j = 0; j < width; ++j) {
-        image.setPixel(i, j, getPixel(i, j).offset(r, g, b));
-      }
-    }
-    return image;
-  }
-
-  private boolean isMeaningfulPeak(int value) {
-
-    return value > 10 && value < 245;
-  }
-
-  private int getMax(int a, int b, int c) {
-    return Math.max(a, Math.max(b, c));
-  }
-
-
-  private void setPixel(int i, int j, Pixel p) {
+  /**
+   * Sets the pixel at a position of this image. Only used while the image is being built, as the
+   * images are treated as immutable once they are returned.
+   *
+   * @param i The position of the pixel along the row.
+   * @param j The position of the pixel along the column.
+   * @param p The pixel to be set.
+   */
+  void setPixel(int i, int j, Pixel p) {
     if (invalidIndices(i, j)) {
       return;
     }
-    pixelGrid[i][j] = p;
+    int k = i * width + j;
+    red[k] = p.getRed();
+    green[k] = p.getGreen();
+    blue[k] = p.getBlue();
+  }
+
+  /**
+   * Copies the red channel of this image into the green and blue channels, for the greyscale
+   * images whose kernels only fill in the red channel.
+   *
+   * @return This image.
+   */
+  private RGBImage withGreyChannels() {
+    System.arraycopy(red, 0, green, 0, red.length);
+    System.arraycopy(red, 0, blue, 0, red.length);
+    return this;
   }
 }
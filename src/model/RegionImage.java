@@ -0,0 +1,96 @@
+package model;
+
+/**
+ * A rectangular region of another image. The pixels are not copied, the indices are offset into
+ * the source image on every access. The source stays the context of the operations on the region,
+ * so the convolutions read the neighbouring pixels outside the region and the color correction
+ * uses the histogram peaks of the whole source. This way an operation on the region gives the same
+ * pixels which the operation on the whole source gives inside that region.
+ *
+ * <p>A region of a deferred operation, like a convolution, is materialized on its own when its
+ * pixels are read, so only the pixels of the region are computed.
+ */
+class RegionImage extends AbstractImage {
+
+  private final AbstractImage source;
+
+  private final int row;
+
+  private final int col;
+
+  private final int height;
+
+  private final int width;
+
+  /**
+   * Creates a region view of the given image. The region is expected to be inside the source.
+   *
+   * @param source The image which the region belongs to.
+   * @param row    The first row of the region in the source.
+   * @param col    The first column of the region in the source.
+   * @param height The number of rows in the region.
+   * @param width  The number of columns in the region.
+   */
+  RegionImage(AbstractImage source, int row, int col, int height, int width) {
+    this.source = source;
+    this.row = row;
+    this.col = col;
+    this.height = height;
+    this.width = width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public Image getRegion(int row, int col, int height, int width) {
+    validateRegion(row, col, height, width);
+    return new RegionImage(source, this.row + row, this.col + col, height, width);
+  }
+
+  @Override
+  public Image colorCorrect() {
+    int[] offsets = source.getColorCorrectOffsets();
+    return offset(offsets[0], offsets[1], offsets[2]);
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    if (source.isDeferred()) {
+      return compute().getPixelUtil(i, j);
+    }
+    return source.getPixelUtil(row + i, col + j);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || source.uses(image);
+  }
+
+  @Override
+  boolean isDeferred() {
+    return !isMaterialized() && source.isDeferred();
+  }
+
+  @Override
+  RGBImage copyRegion(int row, int col, int height, int width) {
+    return source.copyRegion(this.row + row, this.col + col, height, width);
+  }
+
+  @Override
+  Image getConvolutedImage(double[][] kernel) {
+    return source.getConvolutedImage(kernel).getRegion(row, col, height, width);
+  }
+
+  @Override
+  Image getBoxBlurredImage(int radius) {
+    return source.getBoxBlurredImage(radius).getRegion(row, col, height, width);
+  }
+}
@@ -0,0 +1,36 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of the rows of an image, which are read one at a time from the top to the bottom, so
+ * that only the rows being read are kept in memory. The sources are either read from a file or
+ * apply an operation to the rows of another source.
+ */
+interface RowSource extends Closeable {
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return The number of rows.
+   */
+  int getHeight();
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return The number of columns.
+   */
+  int getWidth();
+
+  /**
+   * Reads the next row of the image. The arrays have the width of the image.
+   *
+   * @param red   The array the red values of the row are written to.
+   * @param green The array the green values of the row are written to.
+   * @param blue  The array the blue values of the row are written to.
+   * @throws IOException if the row could not be read.
+   */
+  void readRow(int[] red, int[] green, int[] blue) throws IOException;
+}
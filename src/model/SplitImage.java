@@ -0,0 +1,52 @@
+package model;
+
+/**
+ * A split view of two images. The columns to the left of the boundary are taken from the first
+ * image and the rest of the columns are taken from the second image, which also decides the size
+ * of the view. The first image only needs to cover the columns to the left of the boundary. The
+ * pixels are not copied, every access is delegated to the image which owns that column.
+ */
+class SplitImage extends AbstractImage {
+
+  private final Image left;
+
+  private final Image right;
+
+  private final int boundary;
+
+  /**
+   * Creates a split view of the two images.
+   *
+   * @param left     The image shown to the left of the boundary.
+   * @param right    The image shown from the boundary onwards.
+   * @param boundary The first column which is taken from the right image.
+   */
+  SplitImage(Image left, Image right, int boundary) {
+    this.left = left;
+    this.right = right;
+    this.boundary = boundary;
+  }
+
+  @Override
+  public int getHeight() {
+    return right.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return right.getWidth();
+  }
+
+  @Override
+  Pixel getPixelUtil(int i, int j) {
+    if (j >= boundary) {
+      return right.getPixel(i, j);
+    }
+    return left.getPixel(i, j);
+  }
+
+  @Override
+  boolean uses(Image image) {
+    return super.uses(image) || uses(left, image) || uses(right, image);
+  }
+}
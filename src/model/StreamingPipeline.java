@@ -0,0 +1,358 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Vector;
+
+import javax.imageio.ImageIO;
+
+import static util.Constants.JPG;
+import static util.Constants.MAX_PIXEL_VALUE;
+import static util.Constants.PNG;
+import static util.Constants.PPM;
+
+/**
+ * The pipeline which streams the rows of an image through a chain of row sources. The convolutions
+ * only keep the rows their kernels cover, so the memory does not depend on the height. Consecutive
+ * color matrices are collapsed into a single one under the same conditions as the color matrix
+ * views, only when the product gives exactly the same values, so that the values are the same as
+ * the operations on the loaded image.
+ *
+ * <p>The rows are written to a PPM file as they come. The PNG and JPG writers take a rendered
+ * image, whose rows are pulled from the sources as the writer asks for them. The PNG writer asks
+ * for one row at a time, but the JPG writer asks for the whole image at once, so saving a JPG file
+ * keeps the packed pixels of the image in memory.
+ */
+class StreamingPipeline implements ImagePipeline {
+
+  private RowSource source;
+
+  /**
+   * The last color matrix, which is kept back so that the next one can be collapsed into it.
+   */
+  private double[][] matrix;
+
+  private boolean isClosed;
+
+  /**
+   * Opens the image file the rows are read from.
+   *
+   * @param srcPath The path of the ppm, png or jpg file.
+   * @throws IOException if the file could not be read.
+   * @throws IllegalArgumentException if the format can not be streamed.
+   */
+  StreamingPipeline(String srcPath) throws IOException {
+    String ext = srcPath.substring(srcPath.lastIndexOf('.') + 1);
+    if (ext.equals(PPM)) {
+      source = new PpmRowSource(srcPath);
+    } else if (ext.equals(PNG) || ext.equals(JPG)) {
+      source = new ImageReaderRowSource(srcPath, ImageReaderRowSource.STRIP_PIXELS);
+    } else {
+      throw new IllegalArgumentException("Only ppm, png and jpg files can be streamed");
+    }
+    matrix = null;
+    isClosed = false;
+  }
+
+  @Override
+  public ImagePipeline redComponent() {
+    return colorTransform(ColorMatrixImage.RED);
+  }
+
+  @Override
+  public ImagePipeline greenComponent() {
+    return colorTransform(ColorMatrixImage.GREEN);
+  }
+
+  @Override
+  public ImagePipeline blueComponent() {
+    return colorTransform(ColorMatrixImage.BLUE);
+  }
+
+  @Override
+  public ImagePipeline valueComponent() {
+    addMatrixSource();
+    source = new PointRowSource(source, true);
+    return this;
+  }
+
+  @Override
+  public ImagePipeline intensityComponent() {
+    addMatrixSource();
+    source = new PointRowSource(source, false);
+    return this;
+  }
+
+  @Override
+  public ImagePipeline lumaComponent() {
+    return colorTransform(ColorMatrixImage.LUMA);
+  }
+
+  @Override
+  public ImagePipeline sepia() {
+    return colorTransform(ColorMatrixImage.SEPIA);
+  }
+
+  @Override
+  public ImagePipeline brighten(int brightnessValue) {
+    addMatrix(new double[][]{{1, 0, 0, brightnessValue}, {0, 1, 0, brightnessValue},
+        {0, 0, 1, brightnessValue}});
+    return this;
+  }
+
+  @Override
+  public ImagePipeline blur() {
+    addMatrixSource();
+    source = new ConvolutionRowSource(source, AbstractImage.BLUR_KERNEL);
+    return this;
+  }
+
+  @Override
+  public ImagePipeline sharpen() {
+    addMatrixSource();
+    source = new ConvolutionRowSource(source, AbstractImage.SHARPEN_KERNEL);
+    return this;
+  }
+
+  @Override
+  public ImagePipeline colorTransform(double[][] matrix) {
+    addMatrix(ColorMatrixImage.toAffine(matrix));
+    return this;
+  }
+
+  @Override
+  public void save(String destinationPath) throws IOException {
+    addMatrixSource();
+    String ext = destinationPath.substring(destinationPath.lastIndexOf('.') + 1);
+    try {
+      if (ext.equals(PPM)) {
+        saveAsPPM(destinationPath);
+      } else if (ext.equals(PNG) || ext.equals(JPG)) {
+        ImageIO.write(new RowImage(source), ext, new File(destinationPath));
+      } else {
+        throw new IllegalArgumentException("Streams can only be saved as ppm, png or jpg files");
+      }
+    } finally {
+      close();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!isClosed) {
+      isClosed = true;
+      source.close();
+    }
+  }
+
+  private void addMatrix(double[][] matrix) {
+    if (this.matrix != null && ColorMatrixImage.isCollapsible(this.matrix, matrix)) {
+      this.matrix = ColorMatrixImage.multiply(matrix, this.matrix);
+      return;
+    }
+    addMatrixSource();
+    this.matrix = matrix;
+  }
+
+  private void addMatrixSource() {
+    if (matrix != null) {
+      source = new PointRowSource(source, matrix);
+      matrix = null;
+    }
+  }
+
+  /**
+   * Writes the rows in the same format as the PPM files saved by the editor.
+   */
+  private void saveAsPPM(String destinationPath) throws IOException {
+    int width = source.getWidth();
+    int[] red = new int[width];
+    int[] green = new int[width];
+    int[] blue = new int[width];
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(destinationPath))) {
+      writer.write("P3\n");
+      writer.write(width + " " + source.getHeight() + "\n");
+      writer.write(MAX_PIXEL_VALUE + "\n");
+
+      for (int x = 0; x < source.getHeight(); x++) {
+        source.readRow(red, green, blue);
+        for (int y = 0; y < width; y++) {
+          writer.write(red[y] + "\n");
+          writer.write(green[y] + "\n");
+          writer.write(blue[y] + "\n");
+        }
+      }
+    }
+  }
+
+  /**
+   * A rendered image whose tiles are its rows, which are read from a row source when the image
+   * writer asks for them. The rows can only be asked for once and in order.
+   */
+  private static class RowImage implements RenderedImage {
+
+    private static final ColorModel COLOR_MODEL = new DirectColorModel(24, 0xFF0000, 0xFF00,
+            0xFF);
+
+    private final RowSource source;
+
+    private final int[] red;
+
+    private final int[] green;
+
+    private final int[] blue;
+
+    private int next;
+
+    private RowImage(RowSource source) {
+      this.source = source;
+      this.red = new int[source.getWidth()];
+      this.green = new int[source.getWidth()];
+      this.blue = new int[source.getWidth()];
+      this.next = 0;
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+      if (rect.y != next) {
+        throw new IllegalStateException("The rows of a stream can only be read in order");
+      }
+      int width = source.getWidth();
+      int[] pixels = new int[width * rect.height];
+      try {
+        for (int i = 0; i < rect.height; i++) {
+          source.readRow(red, green, blue);
+          for (int j = 0; j < width; j++) {
+            pixels[i * width + j] = (red[j] << 16) | (green[j] << 8) | blue[j];
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+      next += rect.height;
+
+      WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length),
+              width, rect.height, width, new int[]{0xFF0000, 0xFF00, 0xFF},
+              new Point(0, rect.y));
+      if (rect.x == 0 && rect.width == width) {
+        return raster;
+      }
+      return raster.createChild(rect.x, rect.y, rect.width, rect.height, rect.x, rect.y, null);
+    }
+
+    @Override
+    public Raster getData() {
+      return getData(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+      return getData(new Rectangle(0, tileY, getWidth(), 1));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+      if (raster == null) {
+        return (WritableRaster) getData();
+      }
+      raster.setRect(getData(raster.getBounds()));
+      return raster;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+      return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+      return java.awt.Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+      return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+      return COLOR_MODEL;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+      return COLOR_MODEL.createCompatibleSampleModel(getWidth(), 1);
+    }
+
+    @Override
+    public int getWidth() {
+      return source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+      return source.getHeight();
+    }
+
+    @Override
+    public int getMinX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinY() {
+      return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+      return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+      return getHeight();
+    }
+
+    @Override
+    public int getMinTileX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+      return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+      return getWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+      return 1;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+      return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package model;
+
+import java.awt.EventQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the loops of the image operations as tiles of rows on one pool of worker threads shared by
+ * all the images. An operation is cut into tiles of at least {@link #MIN_TILE_PIXELS} pixels, so a
+ * small image runs in the calling thread as a single tile, and many small images processed at the
+ * same time each keep a core of their own, while a single large image is spread over all the
+ * cores. The calling thread runs the tiles of its own operation as well, so an operation started
+ * from within a tile, or by many threads at once, never waits for a tile nobody is running.
+ *
+ * <p>The idle workers take the next tile of any operation waiting, those of the interactive
+ * operations first, so that the previews of the GUI overtake the operations of the batches at the
+ * next tile boundary instead of waiting for them to finish. The operations started on the event
+ * dispatch thread are interactive, all the others are batch operations. The number of workers is
+ * one less than the number of cores, as the calling thread is the last one, and can be changed
+ * by running with {@code -Dimage.tiles.workers=n}.
+ */
+final class TileScheduler {
+
+  /**
+   * The priorities of the operations, the interactive ones running first.
+   */
+  enum Priority {
+    INTERACTIVE,
+    BATCH
+  }
+
+  /**
+   * The smallest number of pixels of a tile, below which the cost of handing a tile to another
+   * thread is larger than the time it saves.
+   */
+  static final int MIN_TILE_PIXELS = 1 << 14;
+
+  /**
+   * The largest number of tiles per thread, so that the threads finishing early take over the
+   * tiles of the others.
+   */
+  private static final int TILES_PER_THREAD = 4;
+
+  private static final TileScheduler SHARED = new TileScheduler(Integer.getInteger(
+          "image.tiles.workers", Runtime.getRuntime().availableProcessors() - 1));
+
+  private static final ThreadLocal<Priority> PRIORITY = ThreadLocal.withInitial(
+          () -> EventQueue.isDispatchThread() ? Priority.INTERACTIVE : Priority.BATCH);
+
+  private final int workerCount;
+
+  /**
+   * The operations with tiles left to take, by priority, in the order they were started. The map
+   * iterates the priorities from the highest.
+   */
+  private final Map<Priority, Deque<Job>> queues = new EnumMap<>(Priority.class);
+
+  /**
+   * A loop over a range of rows.
+   */
+  interface Rows {
+
+    /**
+     * Runs the loop over the rows.
+     *
+     * @param from The first row.
+     * @param to   The row after the last one.
+     */
+    void run(int from, int to);
+  }
+
+  /**
+   * Creates a scheduler and starts its workers.
+   *
+   * @param workerCount The number of worker threads, which may be zero to run every tile in the
+   *                    calling threads.
+   * @throws IllegalArgumentException if the number of workers is negative.
+   */
+  TileScheduler(int workerCount) {
+    if (workerCount < 0) {
+      throw new IllegalArgumentException("The number of workers should not be negative");
+    }
+    this.workerCount = workerCount;
+    for (Priority priority : Priority.values()) {
+      queues.put(priority, new ArrayDeque<>());
+    }
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = new Thread(this::work, "image-tiles-" + i);
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  /**
+   * Runs a loop over rows on the shared scheduler, with the priority of the calling thread.
+   *
+   * @param rows    The number of rows.
+   * @param rowCost The cost of a row, its number of pixels for the loops doing the same work for
+   *                every pixel.
+   * @param loop    The loop, which may run on several threads at once for different rows.
+   */
+  static void forEachRows(int rows, int rowCost, Rows loop) {
+    SHARED.run(PRIORITY.get(), rows, rowCost, loop);
+  }
+
+  /**
+   * Runs a loop over rows, cut into tiles, and returns once every tile is done.
+   *
+   * @param priority The priority of the loop.
+   * @param rows     The number of rows.
+   * @param rowCost  The cost of a row, its number of pixels for the loops doing the same work for
+   *                 every pixel.
+   * @param loop     The loop, which may run on several threads at once for different rows.
+   * @throws RuntimeException if a tile failed, the first of the exceptions of the tiles.
+   */
+  void run(Priority priority, int rows, int rowCost, Rows loop) {
+    long pixels = (long) rows * rowCost;
+    int tileCount = (int) Math.min(Math.min(rows, pixels / MIN_TILE_PIXELS),
+            (workerCount + 1L) * TILES_PER_THREAD);
+    if (workerCount == 0 || tileCount <= 1) {
+      loop.run(0, rows);
+      return;
+    }
+    join(submit(priority, rows, tileCount, loop));
+  }
+
+  /**
+   * Queues the tiles of a loop for the workers.
+   *
+   * @param priority  The priority of the loop.
+   * @param rows      The number of rows.
+   * @param tileCount The number of tiles the rows are cut into.
+   * @param loop      The loop.
+   * @return The queued loop.
+   */
+  synchronized Job submit(Priority priority, int rows, int tileCount, Rows loop) {
+    Job job = new Job(priority, rows, tileCount, loop);
+    queues.get(priority).add(job);
+    notifyAll();
+    return job;
+  }
+
+  /**
+   * Runs the tiles of a loop which no worker took yet, and waits for the others to be done.
+   *
+   * @param job The queued loop.
+   * @throws RuntimeException if a tile failed, the first of the exceptions of the tiles.
+   */
+  void join(Job job) {
+    int tile = take(job);
+    while (tile >= 0) {
+      job.run(tile);
+      tile = take(job);
+    }
+
+    boolean isInterrupted = false;
+    while (true) {
+      try {
+        job.done.await();
+        break;
+      } catch (InterruptedException e) {
+        // the tiles taken by the workers still write into the result, so it has to be waited for.
+        isInterrupted = true;
+      }
+    }
+    if (isInterrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (job.failure instanceof Error) {
+      throw (Error) job.failure;
+    } else if (job.failure != null) {
+      throw (RuntimeException) job.failure;
+    }
+  }
+
+  /**
+   * Runs the next tile of the queued loops, those with the highest priority first, without
+   * waiting for one to be queued.
+   *
+   * @return True if a tile was run, false if there was none.
+   */
+  boolean runNextTile() {
+    Job job;
+    int tile;
+    synchronized (this) {
+      job = peek();
+      if (job == null) {
+        return false;
+      }
+      tile = take(job);
+    }
+    job.run(tile);
+    return true;
+  }
+
+  private void work() {
+    while (true) {
+      Job job;
+      int tile;
+      synchronized (this) {
+        job = peek();
+        while (job == null) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+          job = peek();
+        }
+        tile = take(job);
+      }
+      job.run(tile);
+    }
+  }
+
+  /**
+   * Gets the queued loop the next tile should be taken from.
+   *
+   * @return The first loop of the highest priority, or null if nothing is queued.
+   */
+  private Job peek() {
+    for (Deque<Job> queue : queues.values()) {
+      if (!queue.isEmpty()) {
+        return queue.peekFirst();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Takes the next tile of a loop, and removes the loop from its queue once its last tile is
+   * taken.
+   *
+   * @param job The loop.
+   * @return The index of the tile, or -1 if every tile was already taken.
+   */
+  private synchronized int take(Job job) {
+    if (job.next == job.tileCount) {
+      return -1;
+    }
+    int tile = job.next++;
+    if (job.next == job.tileCount) {
+      queues.get(job.priority).remove(job);
+    }
+    return tile;
+  }
+
+  /**
+   * A loop cut into tiles of consecutive rows, with the tiles which are not done yet.
+   */
+  static final class Job {
+    private final Priority priority;
+    private final int rows;
+    private final int tileCount;
+    private final Rows loop;
+    private final CountDownLatch done;
+
+    /**
+     * The index of the next tile to take, guarded by the scheduler.
+     */
+    private int next;
+
+    private volatile Throwable failure;
+
+    private Job(Priority priority, int rows, int tileCount, Rows loop) {
+      this.priority = priority;
+      this.rows = rows;
+      this.tileCount = tileCount;
+      this.loop = loop;
+      this.done = new CountDownLatch(tileCount);
+    }
+
+    private void run(int tile) {
+      try {
+        if (failure == null) {
+          loop.run((int) ((long) rows * tile / tileCount),
+                  (int) ((long) rows * (tile + 1) / tileCount));
+        }
+      } catch (RuntimeException | Error e) {
+        if (failure == null) {
+          failure = e;
+        }
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+}
@@ -23,18 +23,28 @@ public class Constants {
   public static final String BLUR = "blur";
   public static final String SHARPEN = "sharpen";
   public static final String SEPIA = "sepia";
+  public static final String COLOR_TRANSFORM = "color-transform";
   public static final String RUN = "run";
+  public static final String STATS = "stats";
   public static final String HISTOGRAM = "histogram";
   public static final String COLOR_CORRECT = "color-correct";
   public static final String LEVELS_ADJUST = "levels-adjust";
   public static final String COMPRESS = "compress";
   public static final String SPLIT = "split";
+  public static final String REGION = "region";
+  public static final String MASK = "mask";
+  public static final String PRECISION = "precision";
+  public static final String STREAM = "stream";
+  public static final String SCALE = "scale";
+  public static final String OPTIMIZE = "optimize";
   public static final String PPM = "ppm";
 
   public static final String PNG = "png";
 
   public static final String JPG = "jpg";
 
+  public static final String HAAR = "haar";
+
   public static final int MAX_PIXEL_VALUE = 255;
 
   public static final int MIN_PIXEL_VALUE = 0;
@@ -45,6 +55,15 @@ public class Constants {
   public static final Set<String> SPLIT_SET = Set.of(VALUE_COMPONENT, INTENSITY_COMPONENT,
           LUMA_COMPONENT, BLUR, SHARPEN, SEPIA, COLOR_CORRECT);
 
+  public static final Set<String> STREAM_SET = Set.of(RED_COMPONENT, GREEN_COMPONENT,
+          BLUE_COMPONENT, VALUE_COMPONENT, INTENSITY_COMPONENT, LUMA_COMPONENT, BLUR, SHARPEN,
+          SEPIA);
+
   public static final Set<String> RGB_SET = Set.of(RGB_COMBINE, RGB_SPLIT);
 
+  public static final Set<String> REGION_SET = Set.of(RED_COMPONENT, GREEN_COMPONENT,
+          BLUE_COMPONENT, VALUE_COMPONENT, INTENSITY_COMPONENT, LUMA_COMPONENT, HORIZONTAL_FLIP,
+          VERTICAL_FLIP, BRIGHTEN, BLUR, SHARPEN, SEPIA, COLOR_TRANSFORM, COLOR_CORRECT,
+          LEVELS_ADJUST, COMPRESS);
+
 }
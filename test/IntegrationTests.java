@@ -5,6 +5,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 import controller.ImageController;
@@ -1141,6 +1144,502 @@ public class IntegrationTests {
     assertEquals(exc, output);
   }
 
+  @Test
+  public void testBlurRegion() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n blur k kb region 1 2 2 1 \n"
+            + " save test/images/16px-blur-region-test.ppm kb";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image blurred = original.blur();
+    Image result = RGBImage.getLoader().loadFromPPM("test/images/16px-blur-region-test.ppm");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        boolean inRegion = i == 2 && j >= 1 && j < 3;
+        Pixel expected = inRegion ? blurred.getPixel(i, j) : original.getPixel(i, j);
+        assertEquals(expected, result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testSepiaRegionWithMask() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n brighten -52 k m \n"
+            + " sepia k ks region 0 0 4 4 mask m \n"
+            + " save test/images/16px-sepia-mask-test.ppm ks";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image sepia = original.toSepia();
+    Image result = RGBImage.getLoader().loadFromPPM("test/images/16px-sepia-mask-test.ppm");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        boolean inMask = original.getPixel(i, j).getRed() > 52;
+        Pixel expected = inMask ? sepia.getPixel(i, j) : original.getPixel(i, j);
+        assertEquals(expected, result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testAliasNamedRegion() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n sepia k region \n blur region kb region 1 2 2 1"
+            + " \n save test/images/16px-sepia-alias-test.ppm region"
+            + " \n save test/images/16px-blur-alias-test.ppm kb";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image sepia = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm").toSepia();
+    Image blurred = sepia.blur();
+    Image result = RGBImage.getLoader().loadFromPPM("test/images/16px-sepia-alias-test.ppm");
+    Image blurredResult = RGBImage.getLoader().loadFromPPM("test/images/16px-blur-alias-test.ppm");
+    for (int i = 0; i < sepia.getHeight(); i++) {
+      for (int j = 0; j < sepia.getWidth(); j++) {
+        boolean inRegion = i == 2 && j >= 1 && j < 3;
+        assertEquals(sepia.getPixel(i, j), result.getPixel(i, j));
+        assertEquals(inRegion ? blurred.getPixel(i, j) : sepia.getPixel(i, j),
+                blurredResult.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testRegionOutsideImage() {
+
+    String input = "load test/images/16px.ppm k \n blur k kb region 2 2 3 3";
+
+    String exc = "Error : The region is outside the image" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+    String output = executeCommand(input);
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testRegionInvalidCommand() {
+
+    String input = "load test/images/16px.ppm k \n histogram k kh region 0 0 8 8 \n"
+            + " blur k kb region 0 0 8 \n blur k kb region 0 0 8 8 mask";
+
+    String exc = "Invalid command" +
+            System.getProperty("line.separator") +
+            "Invalid command" +
+            System.getProperty("line.separator") +
+            "Invalid command" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+    String output = executeCommand(input);
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testStatsWithoutCommands() {
+
+    String exc = "No commands recorded" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+    String output = executeCommand("stats");
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testStats() {
+
+    String input = "load test/images/16px.ppm k \n blur k kb \n blur kb kb \n stats";
+
+    String[] output = executeCommand(input).split(System.getProperty("line.separator"));
+    assertEquals(4, output.length);
+    assertTrue(output[0].startsWith("blur: count 2, wall ms p50 "));
+    assertTrue(output[0].endsWith(", largest 4x4"));
+    assertTrue(output[1].startsWith("load: count 1, wall ms p50 "));
+    assertTrue(output[2].startsWith("buffer pool: "));
+    assertEquals("Exiting the application", output[3]);
+  }
+
+  @Test
+  public void testColorTransformSepiaMatrix() {
+
+    String input = "load test/images/16px.ppm ms \n color-transform 0.393,0.769,0.189"
+            + " 0.349,0.686,0.168 0.272,0.534,0.131 ms ms11"
+            + " \n save test/images/16px-color-transform-test.ppm ms11";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(arePPMImagesEqual("test/images/16px-color-transform-test.ppm",
+            "test/images/16px-sepia-split-100.ppm"));
+  }
+
+  @Test
+  public void testColorTransformSplit() {
+
+    String input = "load test/images/16px.ppm ms \n color-transform 0.393,0.769,0.189"
+            + " 0.349,0.686,0.168 0.272,0.534,0.131 ms ms11 split 60"
+            + " \n save test/images/16px-color-transform-split-test.ppm ms11";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(arePPMImagesEqual("test/images/16px-color-transform-split-test.ppm",
+            "test/images/16px-sepia-split-ref.ppm"));
+  }
+
+  @Test
+  public void testColorTransformWithOffset() throws IOException {
+
+    String input = "load test/images/16px.ppm ms \n color-transform 0,0,1,10 0,1,0,0 1,0,0,-60"
+            + " 0,0,0,1 ms ms11 \n save test/images/16px-color-transform-offset-test.ppm ms11";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image result = RGBImage.getLoader()
+            .loadFromPPM("test/images/16px-color-transform-offset-test.ppm");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        Pixel p = original.getPixel(i, j);
+        assertEquals(new Pixel(p.getBlue() + 10, p.getGreen(), p.getRed() - 60),
+                result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testColorTransformInvalidMatrix() {
+
+    String input = "load test/images/16px.ppm ms \n color-transform 1,0 0,1 ms ms11";
+
+    String exc = "Invalid command" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+
+    String output = executeCommand(input);
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testColorTransformInvalidLastRow() {
+
+    String input = "load test/images/16px.ppm ms \n color-transform 1,0,0,0 0,1,0,0 0,0,1,0"
+            + " 0,0,1,1 ms ms11";
+
+    String exc = "Error : The last row of a 4x4 color matrix should be 0 0 0 1" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+
+    String output = executeCommand(input);
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testBlurWithRadius() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n blur 1 k kb"
+            + " \n save test/images/16px-blur-radius-test.ppm kb";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image result = RGBImage.getLoader().loadFromPPM("test/images/16px-blur-radius-test.ppm");
+    double[][][] expected = new double[3][original.getHeight()][original.getWidth()];
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        Pixel p = original.getPixel(i, j);
+        expected[0][i][j] = p.getRed();
+        expected[1][i][j] = p.getGreen();
+        expected[2][i][j] = p.getBlue();
+      }
+    }
+    for (int pass = 0; pass < 3; pass++) {
+      for (int c = 0; c < 3; c++) {
+        expected[c] = boxAverage(boxAverage(expected[c], 0, 1), 1, 0);
+      }
+    }
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        assertEquals(new Pixel((int) Math.round(expected[0][i][j]),
+                (int) Math.round(expected[1][i][j]), (int) Math.round(expected[2][i][j])),
+                result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testBlurWithRadiusSplit() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n blur 2 k kb split 50"
+            + " \n save test/images/16px-blur-radius-split-test.ppm kb";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image blurred = original.blur(2);
+    Image result = RGBImage.getLoader()
+            .loadFromPPM("test/images/16px-blur-radius-split-test.ppm");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        Pixel expected = j < 2 ? blurred.getPixel(i, j) : original.getPixel(i, j);
+        assertEquals(expected, result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testBlurWithRadiusRegion() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n blur 3 k kb region 1 1 2 2"
+            + " \n save test/images/16px-blur-radius-region-test.ppm kb";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+
+    Image original = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image blurred = original.blur(3);
+    Image result = RGBImage.getLoader()
+            .loadFromPPM("test/images/16px-blur-radius-region-test.ppm");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        boolean inRegion = i >= 1 && i < 3 && j >= 1 && j < 3;
+        Pixel expected = inRegion ? blurred.getPixel(i, j) : original.getPixel(i, j);
+        assertEquals(expected, result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testBlurNegativeRadius() {
+
+    String input = "load test/images/16px.ppm k \n blur -1 k kb";
+
+    String exc = "Invalid command" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+
+    String output = executeCommand(input);
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testSaveAndLoadHaar() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n compress 60 k kc"
+            + " \n save test/images/16px-compress-test.haar kc"
+            + " \n load test/images/16px-compress-test.haar kh"
+            + " \n save test/images/16px-compress-haar-test.ppm kh";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(arePPMImagesEqual("test/images/16px-compress-haar-test.ppm",
+            "test/images/16px-compress-ref.ppm"));
+    assertTrue(Files.size(Paths.get("test/images/16px-compress-test.haar"))
+            < Files.size(Paths.get("test/images/16px.ppm")));
+  }
+
+  @Test
+  public void testSaveHaarAgainIsIdentical() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n compress 30 k kc"
+            + " \n save test/images/16px-compress-30-test.haar kc"
+            + " \n load test/images/16px-compress-30-test.haar kh"
+            + " \n save test/images/16px-compress-30-again-test.haar kh";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(Arrays.equals(
+            Files.readAllBytes(Paths.get("test/images/16px-compress-30-test.haar")),
+            Files.readAllBytes(Paths.get("test/images/16px-compress-30-again-test.haar"))));
+  }
+
+  @Test
+  public void testSaveUncompressedAsHaar() throws IOException {
+
+    String input = "load test/images/16px.ppm k"
+            + " \n save test/images/16px-test.haar k"
+            + " \n load test/images/16px-test.haar kh"
+            + " \n save test/images/16px-haar-test.ppm kh";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(arePPMImagesEqual("test/images/16px-haar-test.ppm", "test/images/16px.ppm"));
+  }
+
+  @Test
+  public void testLoadInvalidHaar() {
+
+    String input = "load test/images/16px.ppm k"
+            + " \n save test/images/16px-not-haar-test.png k";
+    executeCommand(input);
+    try {
+      Files.copy(Paths.get("test/images/16px-not-haar-test.png"),
+              Paths.get("test/images/16px-not-haar-test.haar"));
+    } catch (IOException e) {
+      fail(e.getMessage());
+    }
+
+    out = new StringBuffer();
+    textView = new TextView(out);
+    String exc = "Error : Invalid haar file: test/images/16px-not-haar-test.haar" +
+            System.getProperty("line.separator") +
+            "Exiting the application";
+
+    String output = executeCommand("load test/images/16px-not-haar-test.haar k");
+    assertEquals(exc, output);
+  }
+
+  @Test
+  public void testStreamPpmIsSameAsLoaded() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n luma-component k kl \n sepia kl ks"
+            + " \n brighten 40 ks kb \n save test/images/16px-stream-ref-test.ppm kb"
+            + " \n stream test/images/16px.ppm test/images/16px-stream-test.ppm"
+            + " luma-component sepia brighten 40";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(Arrays.equals(
+            Files.readAllBytes(Paths.get("test/images/16px-stream-ref-test.ppm")),
+            Files.readAllBytes(Paths.get("test/images/16px-stream-test.ppm"))));
+  }
+
+  @Test
+  public void testStreamPngIsSameAsLoaded() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n save test/images/16px-stream-src-test.png k"
+            + " \n brighten -30 k kb \n value-component kb kv"
+            + " \n color-transform 0.5,0,0 0,1,0 0,0,2 kv kc"
+            + " \n save test/images/16px-stream-ref-test.png kc"
+            + " \n stream test/images/16px-stream-src-test.png test/images/16px-stream-test.png"
+            + " brighten -30 value-component color-transform 0.5,0,0 0,1,0 0,0,2";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(Arrays.equals(
+            Files.readAllBytes(Paths.get("test/images/16px-stream-ref-test.png")),
+            Files.readAllBytes(Paths.get("test/images/16px-stream-test.png"))));
+  }
+
+  @Test
+  public void testStreamBlurAndSharpen() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n blur k kb \n sharpen kb ks"
+            + " \n save test/images/16px-stream-sharpen-ref-test.png ks"
+            + " \n stream test/images/16px.ppm test/images/16px-stream-sharpen-test.png"
+            + " blur sharpen";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(Arrays.equals(
+            Files.readAllBytes(Paths.get("test/images/16px-stream-sharpen-ref-test.png")),
+            Files.readAllBytes(Paths.get("test/images/16px-stream-sharpen-test.png"))));
+  }
+
+  @Test
+  public void testStreamWithoutOperations() throws IOException {
+
+    String input = "stream test/images/16px.ppm test/images/16px-stream-copy-test.ppm";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    assertTrue(arePPMImagesEqual("test/images/16px-stream-copy-test.ppm",
+            "test/images/16px.ppm"));
+  }
+
+  @Test
+  public void testStreamInvalidOperation() {
+
+    String exc = "Invalid command" + System.getProperty("line.separator")
+            + "Exiting the application";
+
+    assertEquals(exc, executeCommand("stream test/images/16px.ppm test/images/16px-s.ppm flip"));
+    out = new StringBuffer();
+    textView = new TextView(out);
+    assertEquals(exc, executeCommand("stream test/images/16px.ppm test/images/16px-s.ppm"
+            + " brighten"));
+  }
+
+  @Test
+  public void testStreamToHaar() {
+
+    String exc = "Error : Streams can only be saved as ppm, png or jpg files"
+            + System.getProperty("line.separator") + "Exiting the application";
+
+    assertEquals(exc, executeCommand("stream test/images/16px.ppm test/images/16px-s.haar sepia"));
+  }
+
+  @Test
+  public void testLoadScaleAndRegion() throws IOException {
+
+    String input = "load test/images/16px.ppm k \n save test/images/16px-load-test.png k"
+            + " \n load test/images/16px-load-test.png kp scale 2 region 1 0 3 4"
+            + " \n save test/images/16px-load-png-test.ppm kp"
+            + " \n load test/images/16px.ppm kr region 1 0 3 4 scale 2"
+            + " \n save test/images/16px-load-ppm-test.ppm kr";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    Image image = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    for (String path : new String[]{"test/images/16px-load-png-test.ppm",
+        "test/images/16px-load-ppm-test.ppm"}) {
+      Image loaded = RGBImage.getLoader().loadFromPPM(path);
+      assertEquals(2, loaded.getHeight());
+      assertEquals(2, loaded.getWidth());
+      for (int i = 0; i < 2; i++) {
+        for (int j = 0; j < 2; j++) {
+          assertEquals(image.getPixel(2 * i, 1 + 2 * j), loaded.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLoadAliasNamedLikeOption() throws IOException {
+
+    String input = "load test/images/16px.ppm scale region 1 0 3 4"
+            + " \n save test/images/16px-load-alias-test.ppm scale"
+            + " \n load test/images/16px.ppm scale scale 2"
+            + " \n save test/images/16px-load-alias-scale-test.ppm scale";
+
+    String output = executeCommand(input);
+    assertEquals("Exiting the application", output);
+    Image image = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    Image region = RGBImage.getLoader().loadFromPPM("test/images/16px-load-alias-test.ppm");
+    Image scaled = RGBImage.getLoader().loadFromPPM("test/images/16px-load-alias-scale-test.ppm");
+    assertEquals(4, region.getHeight());
+    assertEquals(3, region.getWidth());
+    assertEquals(image.getPixel(0, 1), region.getPixel(0, 0));
+    assertEquals((image.getHeight() + 1) / 2, scaled.getHeight());
+    assertEquals(image.getPixel(2, 2), scaled.getPixel(1, 1));
+  }
+
+  @Test
+  public void testLoadInvalidOptions() {
+
+    String exc = "Invalid command" + System.getProperty("line.separator")
+            + "Exiting the application";
+
+    assertEquals(exc, executeCommand("load test/images/16px.ppm k scale 0"));
+    out = new StringBuffer();
+    textView = new TextView(out);
+    assertEquals(exc, executeCommand("load test/images/16px.ppm k region 1 2 3"));
+    out = new StringBuffer();
+    textView = new TextView(out);
+    assertEquals(exc, executeCommand("load test/images/16px.ppm k scale 2 scale 2"));
+    out = new StringBuffer();
+    textView = new TextView(out);
+    assertEquals("Error : The region is outside the image"
+            + System.getProperty("line.separator") + "Exiting the application",
+            executeCommand("load test/images/16px.ppm k region 2 2 3 1"));
+  }
+
   private String executeCommand(String input) {
 
     // Set up the input stream with the current input
@@ -1237,6 +1736,35 @@ public class IntegrationTests {
     }
   }
 
+  /**
+   * Averages every value over the values at most one position away along the given direction,
+   * leaving out the positions outside the array.
+   *
+   * @param values The values.
+   * @param di     The step along the rows.
+   * @param dj     The step along the columns.
+   * @return The averaged values.
+   */
+  private double[][] boxAverage(double[][] values, int di, int dj) {
+    double[][] result = new double[values.length][values[0].length];
+    for (int i = 0; i < values.length; i++) {
+      for (int j = 0; j < values[0].length; j++) {
+        double sum = 0;
+        int count = 0;
+        for (int k = -1; k <= 1; k++) {
+          int x = i + k * di;
+          int y = j + k * dj;
+          if (x >= 0 && x < values.length && y >= 0 && y < values[0].length) {
+            sum += values[x][y];
+            count++;
+          }
+        }
+        result[i][j] = sum / count;
+      }
+    }
+    return result;
+  }
+
   /**
    * Check if two ppm images are equal.
    * @param imagePath1 image 1 path.
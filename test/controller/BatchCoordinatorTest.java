@@ -0,0 +1,77 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the batch coordinator. Tests that the files are processed by the worker JVMs,
+ * that a file which fails on every worker is reported, and that a worker which stopped is started
+ * again.
+ */
+public class BatchCoordinatorTest {
+
+  private File outputDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    outputDirectory = Files.createTempDirectory("batch").toFile();
+    outputDirectory.deleteOnExit();
+  }
+
+  @Test
+  public void testBatch() throws IOException {
+    File bad = File.createTempFile("bad", ".ppm");
+    bad.deleteOnExit();
+    Files.writeString(bad.toPath(), "P3 not an image");
+
+    BatchCoordinator coordinator = new BatchCoordinator(2, List.of("-Xmx64m"));
+    coordinator.start();
+    try {
+      List<String> failed = coordinator.run(List.of("test/images/16px.ppm",
+              "test/images/16px.png", "test/images/black.ppm", bad.getPath()),
+              List.of("sepia input a", "blur a output"), outputDirectory.getPath());
+      assertEquals(List.of(bad.getAbsolutePath()), failed);
+      for (String name : new String[]{"16px.ppm", "16px.png", "black.ppm"}) {
+        File output = new File(outputDirectory, name);
+        output.deleteOnExit();
+        assertTrue(name, output.length() > 0);
+      }
+      String summary = coordinator.getSummary();
+      assertTrue(summary, summary.startsWith("worker 0: "));
+      assertTrue(summary, summary.contains("worker 1: "));
+    } finally {
+      coordinator.stop();
+    }
+  }
+
+  @Test
+  public void testWorkerStartedAgain() throws IOException, InterruptedException {
+    BatchCoordinator coordinator = new BatchCoordinator(1, List.of());
+    coordinator.start();
+    try {
+      coordinator.getProcess(0).destroyForcibly().waitFor();
+      List<String> failed = coordinator.run(List.of("test/images/16px.ppm"),
+              List.of("horizontal-flip input output"), outputDirectory.getPath());
+      new File(outputDirectory, "16px.ppm").deleteOnExit();
+      assertEquals(List.of(), failed);
+      assertTrue(coordinator.getSummary(), coordinator.getSummary().contains("1 files"));
+      assertTrue(coordinator.getSummary(), coordinator.getSummary().endsWith("1 restarts"
+              + System.lineSeparator()));
+    } finally {
+      coordinator.stop();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoWorkers() {
+    new BatchCoordinator(0, List.of());
+  }
+}
@@ -3,8 +3,10 @@ package controller;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
 
 import model.ImageEditorImpl;
 import view.TextView;
@@ -658,6 +660,15 @@ public class ImageControllerNegativeTest {
             + " the application" + System.getProperty("line.separator"), out.toString());
   }
 
+  @Test
+  public void testCompressInvalidPrecision() {
+
+    execute("compress 10 k kc precision half" +
+            "\n quit \n");
+    assertEquals("Invalid command" + System.getProperty("line.separator") + "Exiting"
+            + " the application" + System.getProperty("line.separator"), out.toString());
+  }
+
   @Test
   public void testCompressInvalidInputLt0() {
 
@@ -676,6 +687,18 @@ public class ImageControllerNegativeTest {
             + " the application" + System.getProperty("line.separator"), out.toString());
   }
 
+  //a line of spaces in a script is skipped like an empty line
+  @Test
+  public void testScriptBlankLine() throws IOException {
+    File script = File.createTempFile("blank", ".txt");
+    script.deleteOnExit();
+    Files.writeString(script.toPath(), "   \t \nload n \n");
+
+    execute("run " + script.getPath() + "\n quit \n");
+    assertEquals("Invalid command" + System.getProperty("line.separator") + "Exiting"
+            + " the application" + System.getProperty("line.separator"), out.toString());
+  }
+
   private void execute(String s) {
     Readable in = new StringReader(s);
     imageController = new ImageController(view, in, new ImageEditorImpl());
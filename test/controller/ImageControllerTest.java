@@ -4,8 +4,10 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 
 import model.Image;
+import model.ImageCompressor;
 import model.ImageEditorImpl;
 import model.RGBImage;
 import view.TextView;
@@ -155,6 +157,14 @@ public class ImageControllerTest {
       return image;
     }
 
+    @Override
+    public Image blur(Image image, int radius) {
+
+      log.append("Blur Input is ").append(image.toString()).append(" radius: ").append(radius)
+              .append(System.getProperty("line.separator"));
+      return image;
+    }
+
     @Override
     public Image sharpen(Image image) {
 
@@ -187,6 +197,15 @@ public class ImageControllerTest {
       return image;
     }
 
+    @Override
+    public Image colorTransform(Image image, double[][] matrix) {
+
+      log.append("Color transform called with ").append(image.toString()).append(", ")
+              .append("matrix: ").append(Arrays.deepToString(matrix))
+              .append(System.getProperty("line.separator"));
+      return image;
+    }
+
     @Override
     public Image levelsAdjust(Image image, int b, int m, int w) {
 
@@ -205,6 +224,15 @@ public class ImageControllerTest {
       return image;
     }
 
+    @Override
+    public Image compress(Image image, int percent, ImageCompressor.Precision precision) {
+
+      log.append("Compress called with ").append(image.toString()).append(", ")
+              .append("percent: ").append(percent).append(", precision: ").append(precision)
+              .append(System.getProperty("line.separator"));
+      return image;
+    }
+
     @Override
     public Image colorCorrect(Image image) {
 
@@ -212,6 +240,14 @@ public class ImageControllerTest {
               .append(System.getProperty("line.separator"));
       return image;
     }
+
+    @Override
+    public Image getSplitRegion(Image image, int percent) {
+
+      log.append("Split region called with ").append(image.toString()).append(", ")
+              .append("percent: ").append(percent).append(System.getProperty("line.separator"));
+      return image;
+    }
   }
 
   @Test
@@ -294,6 +330,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n luma-component k kRed"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Luma Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -327,6 +365,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n blur k kRed"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Blur Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -338,6 +378,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n sharpen k kRed"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Sharpen Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -349,11 +391,40 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n sepia k kRed"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Sepia Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
   }
 
+  @Test
+  public void testColorTransform() {
+
+    StringBuilder log = getOutput("load test/images/16px.ppm k \n color-transform 0,0,1 0,1,0"
+            + " 1,0,0 k kRed split 50 \n quit \n");
+    assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
+            + System.getProperty("line.separator")
+            + "Color transform called with " + testImage.toString()
+            + ", matrix: [[0.0, 0.0, 1.0], [0.0, 1.0, 0.0], [1.0, 0.0, 0.0]]"
+            + System.getProperty("line.separator"), log.toString());
+  }
+
+  @Test
+  public void testBlurWithRadius() {
+
+    StringBuilder log = getOutput("load test/images/16px.ppm k \n blur 5 k kRed split 40"
+            + " \n quit \n");
+    assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 40"
+            + System.getProperty("line.separator")
+            + "Blur Input is " + testImage.toString() + " radius: 5"
+            + System.getProperty("line.separator"), log.toString());
+  }
+
   @Test
   public void testBrighten() {
 
@@ -382,6 +453,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n blur k kRed split 50"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Blur Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -393,6 +466,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n sharpen k kRed split 50"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Sharpen Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -404,6 +479,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n sepia k kRed split 50"
             + " \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Sepia Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -415,6 +492,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n luma-component k kRed" +
             " split 50 \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Luma Input is " + testImage.toString() + " "
             + System.getProperty("line.separator"), log.toString());
@@ -426,6 +505,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n color-correct k kRed" +
             " split 50 \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Color Correct called with " + testImage.toString()
             + System.getProperty("line.separator"), log.toString());
@@ -437,6 +518,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n levels-adjust" +
             " 20 100 200 k kRed split 50 \n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 50"
             + System.getProperty("line.separator")
             + "Levels adjusted called with " + testImage.toString() + ", b: 20, m: 100," +
             " w: 200, " + System.getProperty("line.separator"), log.toString());
@@ -459,6 +542,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n color-correct k kRed" +
             "\n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Color Correct called with " + testImage.toString()
             + System.getProperty("line.separator"), log.toString());
@@ -470,6 +555,8 @@ public class ImageControllerTest {
     StringBuilder log = getOutput("load test/images/16px.ppm k \n levels-adjust" +
             " 20 101 201 k kRed\n quit \n");
     assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Split region called with " + testImage.toString() + ", percent: 100"
             + System.getProperty("line.separator")
             + "Levels adjusted called with " + testImage.toString() + ", b: 20, m: 101," +
             " w: 201, " + System.getProperty("line.separator"), log.toString());
@@ -486,6 +573,17 @@ public class ImageControllerTest {
             + System.getProperty("line.separator"), log.toString());
   }
 
+  @Test
+  public void testCompressWithPrecision() {
+
+    StringBuilder log = getOutput("load test/images/16px.ppm k \n compress 10 " +
+            "k kRed precision integer\n quit \n");
+    assertEquals("Load input is test/images/16px.ppm"
+            + System.getProperty("line.separator")
+            + "Compress called with " + testImage.toString() + ", percent: 10, precision: INTEGER"
+            + System.getProperty("line.separator"), log.toString());
+  }
+
   @Test
   public void testRunScriptFileParsing() {
 
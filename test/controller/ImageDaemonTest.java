@@ -0,0 +1,96 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.CachedImageEditor;
+import model.Image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the daemon. Tests that the sessions run the commands sent on their
+ * connections with their own alias names, that a session ending without the quit command does not
+ * stop the daemon, and that the sessions share the images loaded by the cached editor.
+ */
+public class ImageDaemonTest {
+
+  private Path socketPath;
+
+  @Before
+  public void setUp() throws IOException {
+    File file = File.createTempFile("daemon", ".sock");
+    file.delete();
+    socketPath = file.toPath();
+  }
+
+  @Test
+  public void testSessions() throws IOException {
+    ImageDaemon daemon = new ImageDaemon(socketPath, new CachedImageEditor(1 << 20));
+    daemon.start();
+    try {
+      File output = File.createTempFile("daemon", ".ppm");
+      output.deleteOnExit();
+      assertEquals("Exiting the application" + System.lineSeparator(),
+              send("load test/images/16px.ppm k\nsepia k s\nsave " + output.getPath()
+                      + " s\nquit\n"));
+      assertTrue(output.length() > 0);
+
+      assertEquals("Error : The source image name does not exist" + System.lineSeparator(),
+              send("sepia k s\n"));
+      assertEquals("Exiting the application" + System.lineSeparator(), send("quit\n"));
+    } finally {
+      daemon.stop();
+    }
+    assertTrue(!Files.exists(socketPath));
+  }
+
+  @Test
+  public void testSharedImages() throws IOException {
+    CachedImageEditor editor = new CachedImageEditor(1 << 20);
+    Image image = editor.load("test/images/16px.ppm");
+    assertSame(image, editor.load("./test/images/16px.ppm"));
+    assertSame(image, editor.load(new File("test/images/16px.ppm").getAbsolutePath()));
+    assertEquals("cached 1 images, 16 pixels, 2 hits, 1 misses", editor.getSummary());
+
+    CachedImageEditor small = new CachedImageEditor(20);
+    small.load("test/images/16px.ppm");
+    small.load("test/images/black.ppm");
+    small.load("test/images/16px.ppm");
+    assertTrue(small.getSummary(), small.getSummary().endsWith("0 hits, 3 misses"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRefuseOtherFile() throws IOException {
+    Files.createFile(socketPath);
+    try {
+      new ImageDaemon(socketPath, new CachedImageEditor(0)).start();
+    } finally {
+      Files.delete(socketPath);
+    }
+  }
+
+  private String send(String commands) throws IOException {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+      channel.write(ByteBuffer.wrap(commands.getBytes(StandardCharsets.UTF_8)));
+      channel.shutdownOutput();
+      InputStream input = Channels.newInputStream(channel);
+      return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
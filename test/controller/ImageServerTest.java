@@ -0,0 +1,188 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import model.Image;
+import model.ImageEditor;
+import model.ImageEditorImpl;
+import model.RGBImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the HTTP server. Tests that the result of a script is the same as the one
+ * of the application, that the stages of the requests are recorded, that the requests do not share
+ * their alias names, that the commands which use files are refused, and that the requests are
+ * refused when the workers are busy, before their uploads are read.
+ */
+public class ImageServerTest {
+
+  private ImageEditor editor;
+  private Image image;
+  private byte[] upload;
+
+  @Before
+  public void setUp() throws IOException {
+    editor = new ImageEditorImpl();
+    image = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    editor.write(image, "png", bytes);
+    upload = bytes.toByteArray();
+  }
+
+  @Test
+  public void testProcess() throws IOException {
+    ImageServer server = new ImageServer(0, 2, 2, editor);
+    server.start(1);
+    try {
+      HttpURLConnection connection = post(server, "sepia input s\nblur s output", "ppm");
+      assertEquals(200, connection.getResponseCode());
+      Image result = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      editor.write(editor.blur(editor.toSepia(result)), "ppm", expected);
+      assertEquals(expected.toString(StandardCharsets.US_ASCII),
+              read(connection.getInputStream()));
+
+      connection = post(server, "brighten 50 input output", "png");
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("image/png", connection.getContentType());
+      Image brightened = editor.load(connection.getInputStream());
+      assertEquals(editor.brighten(image, 50).getPixel(1, 2), brightened.getPixel(1, 2));
+
+      // the response of the last request can arrive before its writing is recorded.
+      String metrics = server.getMetrics();
+      for (String stage : new String[]{"compute: count 2", "queue wait: count 2",
+          "read: count 2", "write: count"}) {
+        assertTrue(metrics, metrics.contains(stage));
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testIsolatedAliases() throws IOException {
+    ImageServer server = new ImageServer(0, 1, 1, editor);
+    server.start(0);
+    try {
+      assertEquals(200, post(server, "sepia input kept\nsepia kept output", "png")
+              .getResponseCode());
+      HttpURLConnection connection = post(server, "blur kept output", "png");
+      assertEquals(400, connection.getResponseCode());
+      assertTrue(read(connection.getErrorStream())
+              .startsWith("Error : The source image name does not exist"));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testFileCommandsRefused() throws IOException {
+    ImageServer server = new ImageServer(0, 1, 1, editor);
+    server.start(0);
+    try {
+      HttpURLConnection connection = post(server, "sepia input output\n save /tmp/x.png output",
+              "png");
+      assertEquals(400, connection.getResponseCode());
+      assertEquals("The command save is not allowed on the server",
+              read(connection.getErrorStream()));
+      assertEquals(400, post(server, "sepia input other", "png").getResponseCode());
+      assertEquals(400, post(server, "sepia input output", "bmp").getResponseCode());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testTooManyRequests() throws IOException, InterruptedException {
+    ImageServer server = new ImageServer(0, 1, 0, editor);
+    server.start(0);
+    CountDownLatch busy = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      server.execute(() -> {
+        busy.countDown();
+        try {
+          release.await(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return null;
+      });
+      busy.await();
+      HttpURLConnection connection = post(server, "sepia input output", "png");
+      assertEquals(429, connection.getResponseCode());
+      assertEquals("1", connection.getHeaderField("Retry-After"));
+      release.countDown();
+    } finally {
+      release.countDown();
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testRefusedBeforeUploadIsRead() throws IOException, InterruptedException {
+    ImageServer server = new ImageServer(0, 1, 0, editor);
+    server.start(0);
+    CountDownLatch busy = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try (Socket socket = new Socket("localhost", server.getPort())) {
+      server.execute(() -> {
+        busy.countDown();
+        release.await(1, TimeUnit.MINUTES);
+        return null;
+      });
+      busy.await();
+
+      // the body is never sent, so the request is only answered if it is refused before reading it.
+      socket.setSoTimeout(10000);
+      OutputStream output = socket.getOutputStream();
+      output.write(("POST /process?format=png&script=sepia%20input%20output HTTP/1.1\r\n"
+              + "Host: localhost\r\nContent-Length: 100000\r\n\r\n")
+              .getBytes(StandardCharsets.US_ASCII));
+      output.flush();
+      String status = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+              StandardCharsets.US_ASCII)).readLine();
+      assertTrue(status, status.startsWith("HTTP/1.1 429"));
+    } finally {
+      release.countDown();
+      server.stop();
+    }
+  }
+
+  private HttpURLConnection post(ImageServer server, String script, String format)
+          throws IOException {
+    URL url = new URL("http://localhost:" + server.getPort() + "/process?format=" + format
+            + "&script=" + URLEncoder.encode(script, StandardCharsets.UTF_8));
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream body = connection.getOutputStream()) {
+      new ByteArrayInputStream(upload).transferTo(body);
+    }
+    return connection;
+  }
+
+  private static String read(InputStream input) throws IOException {
+    try (input) {
+      return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import model.Image;
+import model.ImageEditorImpl;
+import model.RGBImage;
+import view.TextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the optimizer of the compiled scripts. Tests that the images computed again
+ * are copied, that the commands whose images are never saved or kept are removed, that the
+ * images of alias names which were replaced are not reused, and that the optimized scripts compute
+ * the same saved images.
+ */
+public class PlanOptimizerTest {
+
+  private StringBuilder log;
+  private ImageController controller;
+
+  @Before
+  public void setUp() {
+    log = new StringBuilder();
+    controller = new ImageController(new TextView(log), new StringReader(""),
+            new ImageEditorImpl());
+  }
+
+  @Test
+  public void testReuse() {
+    ScriptPlan plan = optimize("histogram a h\nhistogram a h2\nsave h.png h\nsave h2.png h2");
+    assertEquals(List.of("Reused histogram a h for histogram a h2"), plan.getReport());
+    ScriptPlan.Command copy = plan.getCommands().get(1);
+    assertEquals(ScriptPlan.Operation.COPY, copy.operation);
+    assertEquals(plan.getSlot("h"), copy.sources[0]);
+    assertEquals(plan.getSlot("h2"), copy.targets[0]);
+  }
+
+  @Test
+  public void testReuseComponentOfSplit() {
+    ScriptPlan plan = optimize("red-component a r\nrgb-split a r2 g b\nsave r.png r\n"
+            + "save r2.png r2\nsave g.png g\nsave b.png b");
+    assertEquals(List.of("Reused red-component a r for rgb-split a r2 g b"), plan.getReport());
+    assertEquals(ScriptPlan.Operation.COPY, plan.getCommands().get(1).operation);
+    assertEquals(ScriptPlan.Operation.GREEN_COMPONENT, plan.getCommands().get(2).operation);
+    assertEquals(ScriptPlan.Operation.BLUE_COMPONENT, plan.getCommands().get(3).operation);
+  }
+
+  @Test
+  public void testRemoveDeadCommands() {
+    ScriptPlan plan = optimize("brighten 10 a b\nblur a c\nsharpen c d\nsepia b b\nsave x.png b"
+            + "\nstats");
+    assertEquals(List.of("Removed blur a c, its image is never saved",
+            "Removed sharpen c d, its image is never saved"), plan.getReport());
+    assertEquals(4, plan.getCommands().size());
+
+    plan = PlanOptimizer.optimize(controller.compile(List.of("blur a c", "sharpen c output")),
+            List.of("output"));
+    assertEquals(List.of(), plan.getReport());
+  }
+
+  @Test
+  public void testReplacedAliasNotReused() {
+    ScriptPlan plan = optimize("blur a b\nbrighten 10 a a\nblur a c\nsave b.png b\nsave c.png c");
+    assertEquals(List.of(), plan.getReport());
+
+    plan = optimize("blur a b\nrun other.txt\nblur a c\nsave c.png c");
+    assertEquals(List.of(), plan.getReport());
+  }
+
+  @Test
+  public void testSameImages() throws IOException {
+    Image image = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+    List<String> lines = List.of("sepia input a", "sepia input b", "horizontal-flip a c",
+            "horizontal-flip b d", "rgb-combine output c d a", "blur output unused");
+    ScriptPlan plan = controller.compile(lines);
+    ScriptPlan optimized = PlanOptimizer.optimize(plan, List.of("output"));
+    assertEquals(List.of("Removed sepia input b, its image is never saved",
+            "Reused horizontal-flip a c for horizontal-flip b d",
+            "Removed blur output unused, its image is never saved"), optimized.getReport());
+
+    List<Image> expected = Arrays.asList(new Image[plan.getSlotCount()]);
+    List<Image> actual = Arrays.asList(new Image[plan.getSlotCount()]);
+    expected.set(plan.getSlot("input"), image);
+    actual.set(plan.getSlot("input"), image);
+    controller.execute(plan, expected);
+    controller.execute(optimized, actual);
+    Image output = actual.get(plan.getSlot("output"));
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(expected.get(plan.getSlot("output")).getPixel(i, j), output.getPixel(i, j));
+      }
+    }
+    assertNull(actual.get(plan.getSlot("unused")));
+  }
+
+  @Test
+  public void testRunOptimized() throws IOException {
+    File script = File.createTempFile("script", ".txt");
+    File output = File.createTempFile("optimized", ".ppm");
+    script.deleteOnExit();
+    output.deleteOnExit();
+    Files.writeString(script.toPath(), "load test/images/16px.ppm a\nblur a b\nblur a c\n"
+            + "sepia a d\nsave " + output.getPath() + " c\n");
+
+    controller = new ImageController(new TextView(log),
+            new StringReader("run " + script.getPath() + " optimize\n"), new ImageEditorImpl());
+    controller.start();
+    assertEquals("Reused blur a b for blur a c" + System.lineSeparator()
+            + "Removed sepia a d, its image is never saved" + System.lineSeparator(),
+            log.toString());
+    assertTrue(output.length() > 0);
+    assertNull(controller.getImage("d"));
+  }
+
+  private ScriptPlan optimize(String script) {
+    return PlanOptimizer.optimize(controller.compile(Arrays.asList(script.split("\n"))),
+            List.of());
+  }
+}
@@ -0,0 +1,133 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import model.Image;
+import model.ImageEditor;
+import model.ImageEditorImpl;
+import model.RGBImage;
+import view.TextView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The test suite for the compiled scripts. Tests that the alias names are given slots, that the
+ * arguments are parsed when the script is compiled, that the lines which are not valid are kept in
+ * order, that a plan can be executed again on other images, and that only the images the
+ * commands created are released once they are replaced.
+ */
+public class ScriptPlanTest {
+
+  private ImageEditor editor;
+  private StringBuilder log;
+  private ImageController controller;
+  private Image image;
+
+  @Before
+  public void setUp() throws IOException {
+    editor = new ImageEditorImpl();
+    log = new StringBuilder();
+    controller = new ImageController(new TextView(log), new StringReader(""), editor);
+    image = RGBImage.getLoader().loadFromPPM("test/images/16px.ppm");
+  }
+
+  @Test
+  public void testCompile() {
+    ScriptPlan plan = controller.compile(List.of("# a comment", "", "brighten 10 a b",
+            "blur 2 b c split 50", "sepia c d region 1 2 3 4 mask a", "rgb-split d r g b"));
+
+    assertEquals(4, plan.getCommands().size());
+    assertEquals(0, plan.getSlot("a"));
+    assertEquals(1, plan.getSlot("b"));
+    assertEquals(-1, plan.getSlot("e"));
+    assertEquals(6, plan.getSlotCount());
+
+    ScriptPlan.Command brighten = plan.getCommands().get(0);
+    assertEquals(ScriptPlan.Operation.BRIGHTEN, brighten.operation);
+    assertArrayEquals(new int[]{10}, brighten.values);
+    assertArrayEquals(new int[]{0}, brighten.sources);
+    assertArrayEquals(new int[]{1}, brighten.targets);
+
+    ScriptPlan.Command blur = plan.getCommands().get(1);
+    assertArrayEquals(new int[]{2}, blur.values);
+    assertEquals(50, blur.split);
+
+    ScriptPlan.Command sepia = plan.getCommands().get(2);
+    assertArrayEquals(new int[]{1, 2, 3, 4}, sepia.region);
+    assertEquals(0, sepia.mask);
+    assertEquals("sepia region", sepia.getName());
+
+    ScriptPlan.Command split = plan.getCommands().get(3);
+    assertArrayEquals(new int[]{4, 5, 1}, split.targets);
+  }
+
+  @Test
+  public void testInvalidLinesKeptInOrder() throws IOException {
+    ScriptPlan plan = controller.compile(List.of("sepia a b", "brighten x a b", "blur c d"));
+    assertEquals(ScriptPlan.Operation.INVALID, plan.getCommands().get(1).operation);
+
+    List<Image> images = Arrays.asList(new Image[plan.getSlotCount()]);
+    images.set(plan.getSlot("a"), image);
+    controller.execute(plan, images);
+    assertEquals("Invalid command" + System.lineSeparator()
+            + "Error : The source image name does not exist" + System.lineSeparator(),
+            log.toString());
+    assertNull(images.get(plan.getSlot("d")));
+  }
+
+  @Test
+  public void testExecuteAgain() throws IOException {
+    ScriptPlan plan = controller.compile(List.of("sepia input a", "horizontal-flip a output"));
+    Image other = editor.brighten(image, 40);
+
+    for (Image input : new Image[]{image, other}) {
+      List<Image> images = Arrays.asList(new Image[plan.getSlotCount()]);
+      images.set(plan.getSlot("input"), input);
+      controller.execute(plan, images);
+      Image expected = editor.horizontalFlip(editor.toSepia(input));
+      Image output = images.get(plan.getSlot("output"));
+      for (int i = 0; i < expected.getHeight(); i++) {
+        for (int j = 0; j < expected.getWidth(); j++) {
+          assertEquals(expected.getPixel(i, j), output.getPixel(i, j));
+        }
+      }
+    }
+    assertEquals("", log.toString());
+    assertNull(controller.getImage("input"));
+  }
+
+  @Test
+  public void testReleaseReplacedImages() throws IOException {
+    List<Image> released = new ArrayList<>();
+    controller = new ImageController(new TextView(log), new StringReader(""),
+            new ImageEditorImpl() {
+              @Override
+              public void release(Image image, Collection<Image> keptImages) {
+                released.add(image);
+                super.release(image, keptImages);
+              }
+            });
+    ScriptPlan plan = controller.compile(List.of("brighten 10 input a", "horizontal-flip a b",
+            "blur b a", "brighten 5 input input", "sepia b b"));
+    List<Image> images = Arrays.asList(new Image[plan.getSlotCount()]);
+    images.set(plan.getSlot("input"), image);
+    controller.execute(plan, images);
+
+    // the image of the caller is not released, and the flipped image still reads the first one.
+    assertEquals(2, released.size());
+    assertFalse(released.contains(image));
+    assertEquals(editor.toSepia(editor.brighten(image, 10)).getPixel(1, 2),
+            images.get(plan.getSlot("b")).getPixel(1, image.getWidth() - 3));
+  }
+}
@@ -0,0 +1,111 @@
+package model;
+
+import org.junit.Test;
+
+import static model.ImageFixtures.assertPixelsEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Junit class to test the color matrix view, and the collapsing of color matrices applied one
+ * after the other.
+ */
+public class ColorMatrixImageTest {
+
+  private static final double[][] SWAP = {{0, 0, 1}, {0, 1, 0}, {1, 0, 0}};
+
+  private static final double[][] INVERT = {{-1, 0, 0, 255},
+                                            {0, -1, 0, 255},
+                                            {0, 0, -1, 255},
+                                            {0, 0, 0, 1}};
+
+  @Test
+  public void testChainCollapsesIntoProduct() {
+    Image image = getImage();
+    Image result = image.redComponent().lumaComponent();
+
+    assertTrue(result instanceof ColorMatrixImage);
+    Image expected = image.colorTransform(new double[][]{{0.2126, 0, 0},
+                                                         {0.2126, 0, 0},
+                                                         {0.2126, 0, 0}});
+    assertPixelsEqual(expected, result);
+  }
+
+  @Test
+  public void testIntegralChainCollapsesIntoProduct() {
+    Image image = getImage();
+    Image result = image.colorTransform(SWAP).colorTransform(INVERT);
+
+    assertTrue(result instanceof ColorMatrixImage);
+    Image expected = image.colorTransform(new double[][]{{0, 0, -1, 255},
+                                                         {0, -1, 0, 255},
+                                                         {-1, 0, 0, 255},
+                                                         {0, 0, 0, 1}});
+    assertPixelsEqual(expected, result);
+  }
+
+  @Test
+  public void testInvertedChainIsNotCollapsed() {
+    Image image = ImageFixtures.getImage(256, 256);
+    Image inverted = ((AbstractImage) image.colorTransform(INVERT)).materialize();
+    assertPixelsEqual(inverted.toSepia(), image.colorTransform(INVERT).toSepia());
+    assertPixelsEqual(inverted.lumaComponent(), image.colorTransform(INVERT).lumaComponent());
+  }
+
+  @Test
+  public void testClampedMatrixIsNotCollapsed() {
+    Image image = getImage();
+    Image result = image.toSepia().toSepia();
+
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(image.getPixel(i, j).toSepia().toSepia(), result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testTruncatedMatrixIsNotCollapsed() {
+    Image image = getImage();
+    Image lumaSepia = image.lumaComponent().toSepia();
+    Image lumaLuma = image.lumaComponent().lumaComponent();
+
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        Pixel luma = image.getPixel(i, j).getPixelWithLumaComp();
+        assertEquals(luma.toSepia(), lumaSepia.getPixel(i, j));
+        assertEquals(luma.getPixelWithLumaComp(), lumaLuma.getPixel(i, j));
+      }
+    }
+    assertPixelsEqual(lumaSepia, ((AbstractImage) lumaSepia).materialize());
+  }
+
+  @Test
+  public void testMaterializedPixelsMatchView() {
+    Image view = getImage().toSepia().colorTransform(new double[][]{{1, 0, 0, -20},
+                                                                   {0, 0.5, 0, 3},
+                                                                   {0, 0, 2, 0},
+                                                                   {0, 0, 0, 1}});
+    assertPixelsEqual(view, ((AbstractImage) view).materialize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMatrixSize() {
+    getImage().colorTransform(new double[][]{{1, 0}, {0, 1}});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMatrixValue() {
+    getImage().colorTransform(new double[][]{{1, 0, 0}, {0, Double.NaN, 0}, {0, 0, 1}});
+  }
+
+  private Image getImage() {
+    RGBImage image = new RGBImage(16, 16);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        image.setPixel(i, j, new Pixel(i * 16 + j, 255 - i * 16, j * 17));
+      }
+    }
+    return image;
+  }
+}
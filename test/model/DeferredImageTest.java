@@ -0,0 +1,168 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static model.ImageFixtures.assertPixelsEqual;
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the deferred operations. Tests that the operations only compute their pixels
+ * once they are read, that a region of a convolution only computes the region, and that the fused
+ * point operations and the graphs of views give the pixels of the operations run one by one.
+ */
+public class DeferredImageTest {
+
+  private final ImageEditor editor = new ImageEditorImpl();
+
+  @Test
+  public void testComputedWhenRead() {
+    RGBImage image = getImage(30, 20);
+    AbstractImage blurred = (AbstractImage) image.blur();
+    assertTrue(blurred.isDeferred());
+    assertTrue(((AbstractImage) blurred.toSepia()).isDeferred());
+
+    blurred.getPixel(3, 4);
+    assertFalse(blurred.isDeferred());
+    assertPixelsEqual(image.getConvolutedImageOfThis(AbstractImage.BLUR_KERNEL, 0, 0, 30, 20),
+            blurred);
+  }
+
+  @Test
+  public void testRegionOfConvolution() {
+    RGBImage image = getImage(60, 50);
+    AbstractImage[] convolved = {(AbstractImage) image.blur(), (AbstractImage) image.sharpen(),
+        (AbstractImage) image.blur(3)};
+    RGBImage[] expected = {image.getConvolutedImageOfThis(AbstractImage.BLUR_KERNEL, 0, 0, 60, 50),
+        image.getConvolutedImageOfThis(AbstractImage.SHARPEN_KERNEL, 0, 0, 60, 50),
+        image.getBoxBlurredImageOfThis(3, 0, 0, 60, 50)};
+    for (int k = 0; k < convolved.length; k++) {
+      Image region = convolved[k].getRegion(12, 20, 15, 9);
+      assertPixelsEqual(expected[k].getRegion(12, 20, 15, 9), region);
+      assertPixelsEqual(expected[k].getRegion(0, 41, 10, 9), convolved[k].getRegion(0, 41, 10, 9));
+      // only the regions were computed, not the whole image.
+      assertTrue(convolved[k].isDeferred());
+    }
+
+    // a convolution of a region is the region of the convolution of the source.
+    Image region = image.getRegion(5, 5, 20, 20);
+    assertPixelsEqual(expected[0].getRegion(5, 5, 20, 20), region.blur());
+  }
+
+  @Test
+  public void testFusedPointOperations() {
+    RGBImage image = getImage(25, 35);
+    Image fused = image.brighten(40).valueComponent().levelsAdjust(20, 100, 230).brighten(-10);
+
+    // the same operations, each computed into a grid before the next one.
+    AbstractImage expected = image;
+    expected = ((AbstractImage) expected.brighten(40)).copyPixels();
+    expected = ((AbstractImage) expected.valueComponent()).copyPixels();
+    expected = ((AbstractImage) expected.levelsAdjust(20, 100, 230)).copyPixels();
+    expected = ((AbstractImage) expected.brighten(-10)).copyPixels();
+    assertPixelsEqual(expected, fused);
+    assertPixelsEqual(expected, ((AbstractImage) fused).copyRegion(0, 0, 25, 35));
+    assertPixelsEqual(expected.getRegion(4, 6, 10, 11),
+            ((AbstractImage) fused).copyRegion(4, 6, 10, 11));
+  }
+
+  @Test
+  public void testGraphOfViews() {
+    RGBImage image = getImage(40, 45);
+    Image graph = image.blur(2).horizontalFlip().getRegion(3, 4, 20, 25).toSepia()
+            .intensityComponent();
+    RGBImage blurred = image.getBoxBlurredImageOfThis(2, 0, 0, 40, 45);
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 25; j++) {
+        Pixel expected = blurred.getPixel(3 + i, 45 - 1 - (4 + j)).toSepia()
+                .getPixelWithIntensityComp();
+        assertEquals(expected, graph.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testReleaseComputedPixels() {
+    RGBImage image = getImage(23, 7);
+    Pixel pixel = image.getPixel(2, 2);
+    AbstractImage blurred = (AbstractImage) image.blur();
+    blurred.getPixel(2, 2);
+    assertTrue(blurred.isMaterialized());
+
+    // the grid the blur was computed into is released, but not the source it was computed from.
+    editor.release(blurred, List.of(image));
+    assertFalse(blurred.isMaterialized());
+    new RGBImage(23, 7);
+    assertEquals(pixel, image.getPixel(2, 2));
+  }
+
+  @Test
+  public void testComputedOnceByConcurrentReads() throws InterruptedException {
+    CountingImage source = new CountingImage(getImage(300, 200));
+    Image blurred = source.blur();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] readers = new Thread[8];
+    for (int k = 0; k < readers.length; k++) {
+      int row = k;
+      readers[k] = new Thread(() -> {
+        try {
+          start.await();
+          blurred.getPixel(row, row);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      readers[k].start();
+    }
+    start.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(1, source.copies.get());
+  }
+
+  /**
+   * An image which counts the copies of its pixels, and keeps no grid of its own like the images
+   * stored off the heap.
+   */
+  private static class CountingImage extends AbstractImage {
+    private final RGBImage pixels;
+    private final AtomicInteger copies = new AtomicInteger();
+
+    private CountingImage(RGBImage pixels) {
+      this.pixels = pixels;
+    }
+
+    @Override
+    public int getHeight() {
+      return pixels.getHeight();
+    }
+
+    @Override
+    public int getWidth() {
+      return pixels.getWidth();
+    }
+
+    @Override
+    Pixel getPixelUtil(int i, int j) {
+      return pixels.getPixelUtil(i, j);
+    }
+
+    @Override
+    RGBImage materialize() {
+      return copyPixels();
+    }
+
+    @Override
+    RGBImage copyRegion(int row, int col, int height, int width) {
+      copies.incrementAndGet();
+      return pixels.copyRegion(row, col, height, width);
+    }
+  }
+}
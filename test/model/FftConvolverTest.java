@@ -0,0 +1,87 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static model.ImageFixtures.assertPixelsEqual;
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Junit class to test that the convolution in the frequency domain gives the same pixels as the
+ * direct convolution, across the tiles and for regions of the image.
+ */
+public class FftConvolverTest {
+
+  @Test
+  public void testSelection() {
+    assertFalse(FftConvolver.isCheaper(3));
+    assertFalse(FftConvolver.isCheaper(5));
+    assertTrue(FftConvolver.isCheaper(21));
+  }
+
+  @Test
+  public void testLargeKernel() {
+    Image image = getImage(150, 130);
+    double[][] kernel = getKernel(21);
+    assertPixelsEqual(getDirectConvolution(image, kernel, 0, 0, 150, 130),
+            image.convolve(kernel));
+  }
+
+  @Test
+  public void testManyTiles() {
+    Image image = getImage(140, 200);
+    double[][] kernel = getKernel(9);
+    assertPixelsEqual(getDirectConvolution(image, kernel, 0, 0, 140, 200),
+            image.convolve(kernel));
+  }
+
+  @Test
+  public void testRegion() {
+    Image image = getImage(150, 130);
+    double[][] kernel = getKernel(21);
+    assertPixelsEqual(getDirectConvolution(image, kernel, 10, 20, 50, 40),
+            image.getRegion(10, 20, 50, 40).convolve(kernel));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvenKernel() {
+    getImage(10, 10).convolve(new double[4][4]);
+  }
+
+  private Image getDirectConvolution(Image image, double[][] kernel, int row, int col,
+                                     int height, int width) {
+    int factor = (kernel.length - 1) / 2;
+    RGBImage result = new RGBImage(height, width);
+    for (int x = 0; x < height; x++) {
+      for (int y = 0; y < width; y++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int p = 0; p < kernel.length; p++) {
+          for (int q = 0; q < kernel.length; q++) {
+            Pixel px = image.getPixel(row + x - factor + p, col + y - factor + q);
+            red += px.getRed() * kernel[p][q];
+            green += px.getGreen() * kernel[p][q];
+            blue += px.getBlue() * kernel[p][q];
+          }
+        }
+        result.setPixel(x, y, new Pixel((int) red, (int) green, (int) blue));
+      }
+    }
+    return result;
+  }
+
+  private double[][] getKernel(int size) {
+    Random random = new Random(size);
+    double[][] kernel = new double[size][size];
+    for (int p = 0; p < size; p++) {
+      for (int q = 0; q < size; q++) {
+        kernel[p][q] = (random.nextDouble() - 0.3) * 4 / (size * size);
+      }
+    }
+    return kernel;
+  }
+}
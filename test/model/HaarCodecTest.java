@@ -0,0 +1,73 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static model.ImageCompressor.Precision.DOUBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Junit class to test the coding of the haar coefficients, that the coefficients are decoded
+ * within the quantization step and that compressed images are coded in fewer bytes.
+ */
+public class HaarCodecTest {
+
+  @Test
+  public void testOrderIsPermutation() {
+    for (int gridSize = 1; gridSize <= 64; gridSize *= 2) {
+      int[] order = HaarCodec.getOrder(gridSize);
+      boolean[] seen = new boolean[gridSize * gridSize];
+      for (int position : order) {
+        assertTrue(!seen[position]);
+        seen[position] = true;
+      }
+      assertEquals(0, order[0]);
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    double[][][] grids = getGrids(32, 0);
+    double[][][] decoded = HaarCodec.decode(HaarCodec.encode(grids, DOUBLE), 32, DOUBLE);
+    for (int c = 0; c < 3; c++) {
+      for (int i = 0; i < 32; i++) {
+        for (int j = 0; j < 32; j++) {
+          assertEquals(grids[c][i][j], decoded[c][i][j], 1.0 / 128);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSparseGridsAreSmaller() {
+    int dense = HaarCodec.encode(getGrids(64, 0), DOUBLE).length;
+    int sparse = HaarCodec.encode(getGrids(64, 0.9), DOUBLE).length;
+    assertTrue(sparse * 4 < dense);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedCoefficients() throws IOException {
+    byte[] coefficients = HaarCodec.encode(getGrids(16, 0), DOUBLE);
+    byte[] truncated = new byte[coefficients.length / 2];
+    System.arraycopy(coefficients, 0, truncated, 0, truncated.length);
+    HaarCodec.decode(truncated, 16, DOUBLE);
+  }
+
+  private double[][][] getGrids(int gridSize, double zeros) {
+    Random random = new Random(gridSize);
+    double[][][] grids = new double[3][gridSize][gridSize];
+    for (double[][] grid : grids) {
+      for (int i = 0; i < gridSize; i++) {
+        for (int j = 0; j < gridSize; j++) {
+          if (random.nextDouble() >= zeros) {
+            grid[i][j] = random.nextGaussian() * 100;
+          }
+        }
+      }
+    }
+    return grids;
+  }
+}
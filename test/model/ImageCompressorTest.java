@@ -0,0 +1,150 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A Junit class to test the scaled loading of haar files, that every pixel is the average of the
+ * block of the full size image it covers, including the blocks at the edges of the image, and the
+ * quality of the compression in the precisions of the transform.
+ */
+public class ImageCompressorTest {
+
+  private Image image;
+  private String path;
+
+  @Before
+  public void setUp() throws IOException {
+    image = getImage(45, 30);
+    File file = File.createTempFile("compressor", ".haar");
+    file.deleteOnExit();
+    path = file.getPath();
+    new ImageCompressor(image).save(path);
+  }
+
+  @Test
+  public void testFullScale() throws IOException {
+    Image full = ImageCompressor.load(path);
+    Image scaled = ImageCompressor.load(path, 1);
+    assertEquals(45, scaled.getHeight());
+    assertEquals(30, scaled.getWidth());
+    for (int i = 0; i < 45; i++) {
+      for (int j = 0; j < 30; j++) {
+        assertEquals(full.getPixel(i, j), scaled.getPixel(i, j));
+        assertEquals(image.getPixel(i, j), scaled.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testScales() throws IOException {
+    for (int scale = 2; scale <= 128; scale *= 2) {
+      assertAverages(image, ImageCompressor.load(path, scale), Math.min(scale, 64), 0.6);
+    }
+  }
+
+  @Test
+  public void testPreview() throws IOException {
+    Image preview = ImageCompressor.loadPreview(path, 12);
+    assertEquals(12, preview.getHeight());
+    assertEquals(8, preview.getWidth());
+    assertAverages(image, preview, 4, 0.6);
+    assertEquals(45, ImageCompressor.loadPreview(path, 45).getHeight());
+  }
+
+  @Test
+  public void testIntegerIsLossless() {
+    Image compressed = new ImageCompressor(image, ImageCompressor.Precision.INTEGER).compress(0);
+    assertEquals(Double.POSITIVE_INFINITY, getPsnr(image, compressed), 0);
+  }
+
+  @Test
+  public void testPrecisionsQuality() {
+    Image photo = getSmoothImage(100, 70);
+    for (int percent : new int[]{50, 90}) {
+      double psnr = getPsnr(photo, new ImageCompressor(photo).compress(percent));
+      double floatPsnr = getPsnr(photo,
+              new ImageCompressor(photo, ImageCompressor.Precision.FLOAT).compress(percent));
+      // the double values out of the pixel range are not clamped, unlike the float ones.
+      assertTrue(floatPsnr > psnr - 0.5);
+    }
+    ImageCompressor compressor = new ImageCompressor(photo, ImageCompressor.Precision.INTEGER);
+    assertTrue(getPsnr(photo, compressor.compress(30)) > getPsnr(photo, compressor.compress(70)));
+    assertTrue(getPsnr(photo, compressor.compress(70)) > 12);
+  }
+
+  @Test
+  public void testIntegerHaarFile() throws IOException {
+    Image compressed = new ImageCompressor(image, ImageCompressor.Precision.INTEGER).compress(20);
+    new ImageCompressor(compressed).save(path);
+    Image loaded = ImageCompressor.load(path);
+    for (int i = 0; i < 45; i++) {
+      for (int j = 0; j < 30; j++) {
+        assertEquals(compressed.getPixel(i, j), loaded.getPixel(i, j));
+      }
+    }
+
+    Image blocks = getImage(32, 24);
+    new ImageCompressor(blocks, ImageCompressor.Precision.INTEGER).save(path);
+    for (int scale = 2; scale <= 8; scale *= 2) {
+      assertAverages(blocks, ImageCompressor.load(path, scale), scale, 1.5);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidScale() throws IOException {
+    ImageCompressor.load(path, 3);
+  }
+
+  private void assertAverages(Image expected, Image scaled, int blockSize, double delta) {
+    int height = (expected.getHeight() + blockSize - 1) / blockSize;
+    int width = (expected.getWidth() + blockSize - 1) / blockSize;
+    assertEquals(height, scaled.getHeight());
+    assertEquals(width, scaled.getWidth());
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        double red = 0;
+        int count = 0;
+        for (int p = i * blockSize; p < Math.min(expected.getHeight(), (i + 1) * blockSize); p++) {
+          for (int q = j * blockSize; q < Math.min(expected.getWidth(), (j + 1) * blockSize); q++) {
+            red += expected.getPixel(p, q).getRed();
+            count++;
+          }
+        }
+        assertEquals(red / count, scaled.getPixel(i, j).getRed(), delta);
+      }
+    }
+  }
+
+  private double getPsnr(Image expected, Image actual) {
+    double error = 0;
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        Pixel p = expected.getPixel(i, j);
+        Pixel q = actual.getPixel(i, j);
+        error += Math.pow(p.getRed() - q.getRed(), 2) + Math.pow(p.getGreen() - q.getGreen(), 2)
+                + Math.pow(p.getBlue() - q.getBlue(), 2);
+      }
+    }
+    error /= 3.0 * expected.getHeight() * expected.getWidth();
+    return 10 * Math.log10(255 * 255 / error);
+  }
+
+  private Image getSmoothImage(int height, int width) {
+    RGBImage result = new RGBImage(height, width);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        result.setPixel(i, j, new Pixel((int) (128 + 100 * Math.sin(i / 9.0)),
+                (int) (128 + 100 * Math.cos(j / 7.0)), (i * j) % 256));
+      }
+    }
+    return result;
+  }
+}
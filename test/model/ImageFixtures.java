@@ -0,0 +1,50 @@
+package model;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The images and the assertions shared by the tests of the model. The images have random pixels,
+ * seeded by their size, so that every test sees the same pixels for the same size.
+ */
+final class ImageFixtures {
+
+  private ImageFixtures() {
+  }
+
+  /**
+   * Creates an image with random pixels, which are the same for every image of the same size.
+   *
+   * @param height The height of the image.
+   * @param width  The width of the image.
+   * @return The image.
+   */
+  static RGBImage getImage(int height, int width) {
+    Random random = new Random(height * 31L + width);
+    RGBImage image = new RGBImage(height, width);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        image.setPixel(i, j, new Pixel(random.nextInt(256), random.nextInt(256),
+                random.nextInt(256)));
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Asserts that two images have the same size and the same pixels.
+   *
+   * @param expected The expected image.
+   * @param actual   The actual image.
+   */
+  static void assertPixelsEqual(Image expected, Image actual) {
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getWidth(), actual.getWidth());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getPixel(i, j), actual.getPixel(i, j));
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A Junit class to test the loading of the regions of the image files at a scale, that the kept
+ * pixels are those of the loaded image in every format, and that the preview fits in its size.
+ */
+public class ImageLoaderTest {
+
+  private ImageEditorImpl editor;
+  private Image image;
+  private String[] paths;
+
+  @Before
+  public void setUp() throws IOException {
+    editor = new GUIImageEditorImpl();
+    image = getImage(41, 29);
+    paths = new String[]{getTempPath(".ppm"), getTempPath(".png"), getTempPath(".haar")};
+    editor.saveAsPPM(image, paths[0]);
+    editor.saveAsPNG(image, paths[1]);
+    editor.saveAsHaar(image, paths[2]);
+  }
+
+  @Test
+  public void testScale() throws IOException {
+    for (String path : paths) {
+      for (int scale = 1; scale <= 45; scale += 4) {
+        assertSubsampled(editor.load(path, scale), scale, 0, 0, 41, 29);
+      }
+    }
+  }
+
+  @Test
+  public void testRegion() throws IOException {
+    for (String path : paths) {
+      assertSubsampled(editor.load(path, 1, 3, 5, 20, 24), 1, 3, 5, 20, 24);
+      assertSubsampled(editor.load(path, 4, 3, 5, 38, 24), 4, 3, 5, 38, 24);
+      assertSubsampled(editor.load(path, 2, 40, 28, 1, 1), 2, 40, 28, 1, 1);
+    }
+  }
+
+  @Test
+  public void testPreview() throws IOException {
+    Image preview = new GUIImageEditorImpl().loadPreview(paths[1], 10);
+    assertEquals(9, preview.getHeight());
+    assertEquals(6, preview.getWidth());
+    assertSubsampled(preview, 5, 0, 0, 41, 29);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionOutside() throws IOException {
+    editor.load(paths[1], 1, 30, 0, 12, 29);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidScale() throws IOException {
+    editor.load(paths[0], 0);
+  }
+
+  private void assertSubsampled(Image loaded, int scale, int row, int col, int height,
+                                int width) {
+    assertEquals((height + scale - 1) / scale, loaded.getHeight());
+    assertEquals((width + scale - 1) / scale, loaded.getWidth());
+    for (int i = 0; i < loaded.getHeight(); i++) {
+      for (int j = 0; j < loaded.getWidth(); j++) {
+        assertEquals(image.getPixel(row + i * scale, col + j * scale), loaded.getPixel(i, j));
+      }
+    }
+  }
+
+  private String getTempPath(String suffix) throws IOException {
+    File file = File.createTempFile("loader", suffix);
+    file.deleteOnExit();
+    return file.getPath();
+  }
+}
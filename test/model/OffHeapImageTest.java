@@ -0,0 +1,133 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static model.ImageFixtures.assertPixelsEqual;
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the images stored off the heap. Tests that the copies and the mapped binary
+ * ppm files have the pixels of the images they were made from, that the operations on them give
+ * the same pixels as on the images on the heap, that the invalid binary files are rejected, and
+ * that the buffer of a released image is reused.
+ */
+public class OffHeapImageTest {
+
+  private final ImageEditor editor = new ImageEditorImpl();
+
+  @Test
+  public void testCopy() {
+    RGBImage image = getImage(40, 30);
+    Image copy = OffHeapImage.copyOf(image);
+    assertEquals(image.getHeight(), copy.getHeight());
+    assertEquals(image.getWidth(), copy.getWidth());
+    assertPixelsEqual(image, copy);
+
+    assertPixelsEqual(image.blur(), copy.blur());
+    assertPixelsEqual(image.blur(2), copy.blur(2));
+    assertPixelsEqual(image.sharpen(), copy.sharpen());
+    assertPixelsEqual(image.toSepia(), copy.toSepia());
+    assertPixelsEqual(image.brighten(-40), copy.brighten(-40));
+    assertPixelsEqual(image.getRegion(5, 7, 10, 12), copy.getRegion(5, 7, 10, 12));
+  }
+
+  @Test
+  public void testMap() throws IOException {
+    RGBImage image = getImage(9, 14);
+    File file = writeBinaryPPM(image, "P6\n# a comment before the size\n14 9\n255\n");
+    assertTrue(OffHeapImage.isBinaryPPM(file.getPath()));
+    assertPixelsEqual(image, OffHeapImage.map(file.getPath()));
+
+    Image loaded = editor.load(file.getPath());
+    assertPixelsEqual(image, loaded);
+    assertPixelsEqual(image.getRegion(2, 3, 4, 5), editor.load(file.getPath(), 1, 2, 3, 4, 5));
+
+    // the mapped files are never returned to the pool.
+    editor.release(loaded, List.of());
+    assertPixelsEqual(image, loaded);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMapInvalidMaxValue() throws IOException {
+    RGBImage image = getImage(2, 2);
+    OffHeapImage.map(writeBinaryPPM(image, "P6 2 2 65535\n").getPath());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMapTruncated() throws IOException {
+    RGBImage image = getImage(2, 2);
+    OffHeapImage.map(writeBinaryPPM(image, "P6 2 3 255\n").getPath());
+  }
+
+  @Test
+  public void testTextPPMNotMapped() throws IOException {
+    assertFalse(OffHeapImage.isBinaryPPM("test/images/16px.ppm"));
+  }
+
+  @Test
+  public void testRelease() {
+    // the size is used by no other test, so that the buffer taken is the one released here.
+    ByteBuffer buffer = PixelPool.takeBuffer(3 * 17 * 19);
+    PixelPool.give(buffer);
+    Image image = OffHeapImage.copyOf(getImage(17, 19));
+    editor.release(image, List.of());
+    assertSame(buffer, PixelPool.takeBuffer(3 * 17 * 19));
+  }
+
+  @Test
+  public void testComputedOperation() {
+    RGBImage image = getImage(21, 26);
+    AbstractImage blurred = (AbstractImage) OffHeapImage.copyOf(image).blur();
+    assertPixelsEqual(image.blur(), blurred);
+    // the computed pixels are stored like the images of the editors.
+    assertEquals(OffHeapImage.ENABLED, blurred.compute() instanceof OffHeapImage);
+  }
+
+  @Test
+  public void testOperationReleasesCopy() {
+    // the copy of the pixels the blur reads takes these arrays, which are returned once it is done.
+    int length = 23 * 29;
+    Image copy = OffHeapImage.copyOf(getImage(23, 29));
+    List<int[]> channels = List.of(new int[length], new int[length], new int[length]);
+    channels.forEach(PixelPool::give);
+    copy.blur().getPixel(0, 0);
+
+    Set<int[]> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int k = 0; k < 6; k++) {
+      taken.add(PixelPool.takeChannel(length));
+    }
+    assertTrue(taken.containsAll(channels));
+  }
+
+  private static File writeBinaryPPM(Image image, String header) throws IOException {
+    File file = File.createTempFile("off-heap", ".ppm");
+    file.deleteOnExit();
+    try (OutputStream output = new FileOutputStream(file)) {
+      output.write(header.getBytes(StandardCharsets.US_ASCII));
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          Pixel pixel = image.getPixel(i, j);
+          output.write(pixel.getRed());
+          output.write(pixel.getGreen());
+          output.write(pixel.getBlue());
+        }
+      }
+    }
+    return file;
+  }
+}
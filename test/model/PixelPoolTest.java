@@ -0,0 +1,93 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the pool of pixel buffers. Tests that the arrays returned to the pool are
+ * taken again cleared, that the editor only releases the arrays of an image when none of the kept
+ * images reads them, and that the images loaded by the cache are never released. The images have
+ * sizes no other test uses, so that the arrays taken are the ones released here.
+ */
+public class PixelPoolTest {
+
+  private final ImageEditor editor = new ImageEditorImpl();
+
+  @Test
+  public void testReuse() {
+    int[] channel = PixelPool.takeChannel(1009);
+    channel[5] = 42;
+    PixelPool.give(channel);
+    int[] taken = PixelPool.takeChannel(1009);
+    assertSame(channel, taken);
+    assertArrayEquals(new int[1009], taken);
+
+    double[][] grid = PixelPool.takeGrid(3);
+    grid[1][2] = 0.5;
+    PixelPool.give(grid);
+    assertSame(grid, PixelPool.takeGrid(3));
+    assertEquals(0, grid[1][2], 0);
+
+    assertTrue(PixelPool.getSummary(), PixelPool.getSummary().startsWith("buffer pool: "));
+  }
+
+  @Test
+  public void testRelease() {
+    RGBImage image = getImage(7, 13);
+    editor.release(image, List.of());
+
+    // the new image takes the released arrays, which are cleared.
+    RGBImage other = new RGBImage(7, 13);
+    assertEquals(new Pixel(0, 0, 0), image.getPixel(2, 3));
+    assertEquals(new Pixel(0, 0, 0), other.getPixel(2, 3));
+  }
+
+  @Test
+  public void testKeptViewNotReleased() {
+    RGBImage image = getImage(11, 5);
+    Image flipped = editor.horizontalFlip(image);
+    Image sepia = editor.toSepia(editor.getRegion(flipped, 1, 1, 3, 3));
+    editor.release(image, List.of(editor.getSplitView(image, sepia, 50)));
+    editor.release(image, List.of(sepia));
+    editor.release(image, List.of(image));
+
+    new RGBImage(11, 5);
+    assertEquals(new Pixel(10, 20, 30), image.getPixel(2, 3));
+    assertEquals(new Pixel(10, 20, 30), flipped.getPixel(2, 1));
+  }
+
+  @Test
+  public void testCachedImageNotReleased() throws IOException {
+    CachedImageEditor cached = new CachedImageEditor(1 << 10);
+    Image image = cached.load("test/images/16px.ppm");
+    Image expected = editor.load("test/images/16px.ppm");
+    cached.release(image, List.of());
+    for (int k = 0; k < 3; k++) {
+      // reading a pixel computes the whole blurred image, into arrays taken from the pool.
+      editor.blur(expected).getPixel(0, 0);
+    }
+    assertSame(image, cached.load("test/images/16px.ppm"));
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(expected.getPixel(i, j), image.getPixel(i, j));
+      }
+    }
+  }
+
+  private static RGBImage getImage(int height, int width) {
+    RGBImage image = new RGBImage(height, width);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        image.setPixel(i, j, new Pixel(10, 20, 30));
+      }
+    }
+    return image;
+  }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A Junit class to test that the point operations of the RGB image, which run the planar kernels,
+ * produce exactly the same pixels as the operations of the pixels themselves.
+ */
+public class PointKernelsTest {
+
+  private static final int[] BLUE_PATTERNS = {0, 1, 85, 170, 254, 255, -1};
+
+  @Test
+  public void testSepia() {
+    for (int pattern : BLUE_PATTERNS) {
+      Image image = getImage(pattern);
+      Image result = image.toSepia();
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(image.getPixel(i, j).toSepia(), result.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLuma() {
+    for (int pattern : BLUE_PATTERNS) {
+      Image image = getImage(pattern);
+      Image result = image.lumaComponent();
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(image.getPixel(i, j).getPixelWithLumaComp(), result.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIntensity() {
+    for (int pattern : BLUE_PATTERNS) {
+      Image image = getImage(pattern);
+      Image result = image.intensityComponent();
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(image.getPixel(i, j).getPixelWithIntensityComp(), result.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testValue() {
+    for (int pattern : BLUE_PATTERNS) {
+      Image image = getImage(pattern);
+      Image result = image.valueComponent();
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(image.getPixel(i, j).getPixelWithValueComp(), result.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates an image which has every combination of the red and green values, with red along the
+   * rows and green along the columns.
+   *
+   * @param blue The blue value of every pixel, or -1 to vary it with the red and green values.
+   * @return The new image.
+   */
+  private Image getImage(int blue) {
+    BufferedImage bufferedImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+    for (int r = 0; r < 256; r++) {
+      for (int g = 0; g < 256; g++) {
+        int b = blue < 0 ? (r * 7 + g * 13) & 0xFF : blue;
+        bufferedImage.setRGB(g, r, (r << 16) | (g << 8) | b);
+      }
+    }
+    return RGBImage.getLoader().loadFromBufferedImage(bufferedImage);
+  }
+}
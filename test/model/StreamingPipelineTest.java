@@ -0,0 +1,132 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static model.ImageFixtures.assertPixelsEqual;
+import static model.ImageFixtures.getImage;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A Junit class to test the streaming of images a row at a time, that the rows read from the files
+ * are those of the loaded images, also when a file is read in many strips, and that the chains of
+ * operations give the same pixels as the operations on the loaded images.
+ */
+public class StreamingPipelineTest {
+
+  private ImageEditor editor;
+  private Image image;
+  private String pngPath;
+  private String ppmPath;
+
+  @Before
+  public void setUp() throws IOException {
+    editor = new ImageEditorImpl();
+    image = getImage(37, 23);
+    pngPath = getTempPath(".png");
+    ppmPath = getTempPath(".ppm");
+    editor.saveAsPNG(image, pngPath);
+    editor.saveAsPPM(image, ppmPath);
+  }
+
+  @Test
+  public void testReadStrips() throws IOException {
+    for (int stripPixels : new int[]{1, 23 * 5, 23 * 37, ImageReaderRowSource.STRIP_PIXELS}) {
+      try (RowSource source = new ImageReaderRowSource(pngPath, stripPixels)) {
+        assertRows(image, source);
+      }
+    }
+  }
+
+  @Test
+  public void testReadPpmWithComments() throws IOException {
+    String path = getTempPath(".ppm");
+    try (FileWriter writer = new FileWriter(path)) {
+      writer.write("P3\n# a comment\n2 1\n#another\n255\n300\n-4\n7\n1 2 3\n");
+    }
+    try (RowSource source = new PpmRowSource(path)) {
+      assertEquals(1, source.getHeight());
+      assertEquals(2, source.getWidth());
+      int[] red = new int[2];
+      int[] green = new int[2];
+      int[] blue = new int[2];
+      source.readRow(red, green, blue);
+      assertEquals(255, red[0]);
+      assertEquals(0, green[0]);
+      assertEquals(7, blue[0]);
+      assertEquals(1, red[1]);
+      assertEquals(2, green[1]);
+      assertEquals(3, blue[1]);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadInvalidPpm() throws IOException {
+    new PpmRowSource(pngPath);
+  }
+
+  @Test
+  public void testOperationsAreSameAsLoaded() throws IOException {
+    Image expected = editor.brighten(editor.brighten(editor.toSepia(image), 100), -100);
+    expected = editor.intensityComponent(editor.lumaComponent(expected));
+    String path = getTempPath(".ppm");
+    editor.stream(ppmPath).sepia().brighten(100).brighten(-100).lumaComponent()
+            .intensityComponent().save(path);
+    assertPixelsEqual(expected, editor.load(path));
+
+    expected = editor.colorTransform(editor.valueComponent(editor.redComponent(image)),
+            new double[][]{{0.2, 0.7, 0.1, 20}, {1, 0, 0, 0}, {0, 0, 1.5, -30}, {0, 0, 0, 1}});
+    path = getTempPath(".png");
+    editor.stream(pngPath).redComponent().valueComponent().colorTransform(
+            new double[][]{{0.2, 0.7, 0.1, 20}, {1, 0, 0, 0}, {0, 0, 1.5, -30}, {0, 0, 0, 1}})
+            .save(path);
+    assertPixelsEqual(expected, editor.load(path));
+  }
+
+  @Test
+  public void testConvolutionsAreSameAsLoaded() throws IOException {
+    Image expected = editor.sharpen(editor.blur(editor.toSepia(image)));
+    String path = getTempPath(".ppm");
+    editor.stream(ppmPath).sepia().blur().sharpen().save(path);
+    assertPixelsEqual(expected, editor.load(path));
+
+    for (int height = 1; height <= 6; height++) {
+      Image small = getImage(height, 4);
+      String smallPath = getTempPath(".ppm");
+      editor.saveAsPPM(small, smallPath);
+      try (RowSource source = new ConvolutionRowSource(new PpmRowSource(smallPath),
+              AbstractImage.SHARPEN_KERNEL)) {
+        assertRows(editor.sharpen(small), source);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStreamHaar() throws IOException {
+    editor.stream(getTempPath(".haar"));
+  }
+
+  private void assertRows(Image expected, RowSource source) throws IOException {
+    assertEquals(expected.getHeight(), source.getHeight());
+    assertEquals(expected.getWidth(), source.getWidth());
+    int[] red = new int[source.getWidth()];
+    int[] green = new int[source.getWidth()];
+    int[] blue = new int[source.getWidth()];
+    for (int i = 0; i < source.getHeight(); i++) {
+      source.readRow(red, green, blue);
+      for (int j = 0; j < source.getWidth(); j++) {
+        assertEquals(expected.getPixel(i, j), new Pixel(red[j], green[j], blue[j]));
+      }
+    }
+  }
+
+  private String getTempPath(String suffix) throws IOException {
+    File file = File.createTempFile("stream", suffix);
+    file.deleteOnExit();
+    return file.getPath();
+  }
+}
@@ -0,0 +1,127 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test suite for the tile scheduler. Tests that every row is run exactly once when several
+ * threads run loops at the same time, that the tiles of the interactive loops are taken first,
+ * that the exception of a tile reaches the calling thread, and that the operations cut into tiles
+ * produce the same pixels as the operations of the pixels.
+ */
+public class TileSchedulerTest {
+
+  @Test
+  public void testEveryRowOnce() throws InterruptedException {
+    TileScheduler scheduler = new TileScheduler(3);
+    int rows = 1000;
+    List<AtomicIntegerArray> counts = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      AtomicIntegerArray count = new AtomicIntegerArray(rows);
+      counts.add(count);
+      threads.add(new Thread(() -> scheduler.run(TileScheduler.Priority.BATCH, rows,
+              TileScheduler.MIN_TILE_PIXELS / 10, (from, to) -> {
+                for (int row = from; row < to; row++) {
+                  count.incrementAndGet(row);
+                }
+              })));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (AtomicIntegerArray count : counts) {
+      for (int row = 0; row < rows; row++) {
+        assertEquals(1, count.get(row));
+      }
+    }
+  }
+
+  @Test
+  public void testInteractiveFirst() {
+    TileScheduler scheduler = new TileScheduler(0);
+    List<String> order = new ArrayList<>();
+    scheduler.submit(TileScheduler.Priority.BATCH, 6, 3,
+            (from, to) -> order.add("batch " + from));
+    scheduler.submit(TileScheduler.Priority.INTERACTIVE, 4, 2,
+            (from, to) -> order.add("preview " + from));
+    while (scheduler.runNextTile()) {
+      if (order.size() == 1) {
+        scheduler.submit(TileScheduler.Priority.INTERACTIVE, 1, 1,
+                (from, to) -> order.add("click " + from));
+      }
+    }
+    assertEquals(List.of("preview 0", "preview 2", "click 0", "batch 0", "batch 2", "batch 4"),
+            order);
+  }
+
+  @Test
+  public void testFailure() {
+    TileScheduler scheduler = new TileScheduler(2);
+    try {
+      scheduler.run(TileScheduler.Priority.BATCH, 100, TileScheduler.MIN_TILE_PIXELS,
+              (from, to) -> {
+                if (from > 0) {
+                  throw new IllegalStateException("tile " + from);
+                }
+              });
+      assertTrue("the failure of the tile was lost", false);
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("tile "));
+    }
+    assertFalse(scheduler.runNextTile());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeWorkers() {
+    new TileScheduler(-1);
+  }
+
+  @Test
+  public void testLargeImage() {
+    Random random = new Random(7);
+    RGBImage image = new RGBImage(300, 200);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        image.setPixel(i, j, new Pixel(random.nextInt(256), random.nextInt(256),
+                random.nextInt(256)));
+      }
+    }
+
+    Image brightened = image.brighten(30);
+    Image sepia = image.toSepia();
+    Image flipped = image.horizontalFlip().brighten(0);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        Pixel pixel = image.getPixel(i, j);
+        assertEquals(pixel.brighten(30), brightened.getPixel(i, j));
+        assertEquals(pixel.toSepia(), sepia.getPixel(i, j));
+        assertEquals(image.getPixel(i, image.getWidth() - 1 - j), flipped.getPixel(i, j));
+      }
+    }
+
+    // the small regions are run as a single tile.
+    Image blurred = image.blur();
+    Image boxBlurred = image.blur(2);
+    Image blurredRegion = image.getConvolutedImageOfThis(AbstractImage.BLUR_KERNEL, 100, 50, 20,
+            20);
+    Image boxBlurredRegion = image.getBoxBlurredImageOfThis(2, 100, 50, 20, 20);
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 20; j++) {
+        assertEquals(blurredRegion.getPixel(i, j), blurred.getPixel(100 + i, 50 + j));
+        assertEquals(boxBlurredRegion.getPixel(i, j), boxBlurred.getPixel(100 + i, 50 + j));
+      }
+    }
+  }
+}